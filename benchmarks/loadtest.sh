@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+# 本地端到端压测：内嵌 ES 替身 + 应用上下文，输出吞吐量与延迟分位数
+# 用法：./loadtest.sh load.search-threads=64 standin.latency-median-ms=3 standin.reject-rate=0.01 --elasticsearch.admission.enabled=false
+set -euo pipefail
+cd "$(dirname "$0")"
+
+# 注解处理器、应用与基准在同一 reactor 中按依赖顺序构建
+mvn -B -q -f ../reactor -DskipTests package
+
+java -cp target/benchmarks.jar com.example.elasticsearch.loadtest.LoadTest "$@"
@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+# 回放线上采样查询（elasticsearch.capture.*），对比延迟分布并列出耗时回退的查询
+# 用法：./replay.sh files=../capture target=10.21.62.48:9200 rate=2
+set -euo pipefail
+cd "$(dirname "$0")"
+
+# 注解处理器、应用与基准在同一 reactor 中按依赖顺序构建
+mvn -B -q -f ../reactor -DskipTests package
+
+java -cp target/benchmarks.jar com.example.elasticsearch.loadtest.QueryReplay "$@"
@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# 运行 JMH 基准（附带 GC 分配统计），结果按提交号保存到 results/<commit>.json
+# 用法：./run.sh [JMH 参数，如基准名正则]
+# 对比：java -cp target/benchmarks.jar com.example.elasticsearch.benchmark.BenchmarkCompare results/<base>.json results/<head>.json
+set -euo pipefail
+cd "$(dirname "$0")"
+
+# 注解处理器、应用与基准在同一 reactor 中按依赖顺序构建
+mvn -B -q -f ../reactor -DskipTests package
+
+commit=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD -- ../src; then
+    commit="${commit}-dirty"
+fi
+mkdir -p results
+java -jar target/benchmarks.jar -prof gc -rf json -rff "results/${commit}.json" "$@"
+echo "结果已保存：results/${commit}.json"
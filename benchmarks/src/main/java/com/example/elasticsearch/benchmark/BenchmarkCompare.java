@@ -0,0 +1,88 @@
+package com.example.elasticsearch.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 对比两次 JMH 结果（-rf json），输出耗时与单次操作分配字节的变化，超过阈值标记为回退
+ * <p>
+ * 用法：java -cp target/benchmarks.jar com.example.elasticsearch.benchmark.BenchmarkCompare base.json head.json [阈值百分比]
+ *
+ */
+public class BenchmarkCompare {
+    private static final String ALLOC = "·gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法：BenchmarkCompare <base.json> <head.json> [阈值百分比，默认 5]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5D;
+        Map<String, JSONObject> base = load(args[0]);
+        Map<String, JSONObject> head = load(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format("%-70s %12s %12s %8s %12s %12s %8s",
+                "benchmark", "base", "head", "Δ%", "base(B/op)", "head(B/op)", "Δ%"));
+        for (Map.Entry<String, JSONObject> entry : head.entrySet()) {
+            JSONObject before = base.get(entry.getKey());
+            if (Objects.isNull(before)) {
+                continue;
+            }
+            JSONObject after = entry.getValue();
+            double scoreBefore = before.getJSONObject("primaryMetric").getDoubleValue("score");
+            double scoreAfter = after.getJSONObject("primaryMetric").getDoubleValue("score");
+            double allocBefore = alloc(before);
+            double allocAfter = alloc(after);
+            double scoreDelta = delta(scoreBefore, scoreAfter);
+            double allocDelta = delta(allocBefore, allocAfter);
+            boolean regressed = scoreDelta > threshold || allocDelta > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-70s %12.3f %12.3f %8.1f %12.1f %12.1f %8.1f%s",
+                    entry.getKey(), scoreBefore, scoreAfter, scoreDelta, allocBefore, allocAfter, allocDelta, regressed ? "  <- 回退" : ""));
+        }
+        System.out.println("回退项：" + regressions);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * 读取 JMH 结果，key 为 基准名 + 参数
+     */
+    private static Map<String, JSONObject> load(String file) throws IOException {
+        JSONArray results = JSON.parseArray(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        Map<String, JSONObject> map = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            String name = result.getString("benchmark").replace("com.example.elasticsearch.benchmark.", "");
+            JSONObject params = result.getJSONObject("params");
+            map.put(Objects.isNull(params) ? name : name + params.toJSONString(), result);
+        }
+        return map;
+    }
+
+    private static double alloc(JSONObject result) {
+        JSONObject secondary = result.getJSONObject("secondaryMetrics");
+        if (Objects.isNull(secondary) || Objects.isNull(secondary.getJSONObject(ALLOC))) {
+            return 0D;
+        }
+        return secondary.getJSONObject(ALLOC).getDoubleValue("score");
+    }
+
+    /**
+     * 平均耗时模式下数值越大越差
+     */
+    private static double delta(double before, double after) {
+        return before == 0D ? 0D : (after - before) / before * 100D;
+    }
+}
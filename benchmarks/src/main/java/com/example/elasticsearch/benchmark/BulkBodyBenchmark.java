@@ -0,0 +1,107 @@
+package com.example.elasticsearch.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.DirectBufferPool;
+import com.example.elasticsearch.es.lean.LeanBody;
+import com.example.elasticsearch.utils.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bulk NDJSON 请求体构建：每行 toJSONBytes 写入 ByteArrayOutputStream 再 toByteArray，
+ * 对比动作行按字节拼接、文档直接写入池化堆外缓冲区（关注 -prof gc 的 gc.alloc.rate.norm）
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BulkBodyBenchmark {
+    private static final String INDEX = "export_log-2020.09.13-000001";
+    private static final byte[] BULK_ID = ",\"_id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BULK_ACTION_END = "}}\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE = {'\n'};
+
+    @Param({"100", "1000"})
+    public int documents;
+
+    private final DirectBufferPool pool = new DirectBufferPool(16 * 1024 * 1024);
+    private List<ApplicationLoginLog> logs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        logs = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            logs.add(ApplicationLoginLog.builder()
+                    .id(String.valueOf(i))
+                    .applicationSide(random.nextInt(3))
+                    .operationUser("user" + random.nextInt(5000))
+                    .operationUserName("操作员" + random.nextInt(5000))
+                    .operationTime(new Date(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                    .ipGeographicAddress("上海市")
+                    .ip("10.21." + random.nextInt(255) + "." + random.nextInt(255))
+                    .successful(random.nextInt(10) > 0)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] heapBytes() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(logs.size() * 256);
+        for (ApplicationLoginLog log : logs) {
+            JSONObject action = new JSONObject(2);
+            action.put("_index", INDEX);
+            action.put("_id", log.getId());
+            body.write(JSON.toJSONBytes(Maps.bySO("index", action)));
+            body.write('\n');
+            body.write(JSON.toJSONBytes(log));
+            body.write('\n');
+        }
+        return body.toByteArray();
+    }
+
+    @Benchmark
+    public long pooledDirect() throws IOException {
+        byte[] action = ("{\"index\":{\"_index\":" + JSON.toJSONString(INDEX)).getBytes(StandardCharsets.UTF_8);
+        LeanBody body = LeanBody.pooled(pool, logs.size() * 256);
+        try {
+            for (ApplicationLoginLog log : logs) {
+                body.write(action);
+                if (Objects.nonNull(log.getId())) {
+                    body.write(BULK_ID);
+                    body.writeValue(log.getId());
+                }
+                body.write(BULK_ACTION_END);
+                body.writeJson(log);
+                body.write(NEW_LINE);
+            }
+            return body.length();
+        } finally {
+            body.release();
+        }
+    }
+}
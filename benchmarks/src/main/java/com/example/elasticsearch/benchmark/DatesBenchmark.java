@@ -0,0 +1,54 @@
+package com.example.elasticsearch.benchmark;
+
+import com.example.elasticsearch.utils.Dates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.elasticsearch.utils.Dates.Pattern.yyyy_MM_dd_HH_mm_ss;
+
+/**
+ * 日期处理热点：Dates.Pattern 解析与格式化；parseFallback 走格式不匹配时的降级解析
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DatesBenchmark {
+
+    private final Date date = new Date(1_600_000_000_000L);
+    private final LocalDateTime localDateTime = LocalDateTime.of(2020, 9, 13, 20, 26, 40);
+
+    @Benchmark
+    public Dates parse() {
+        return yyyy_MM_dd_HH_mm_ss.parse("2020-09-13 20:26:40");
+    }
+
+    @Benchmark
+    public Dates parseFallback() {
+        return yyyy_MM_dd_HH_mm_ss.parse("2020-09-13");
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return yyyy_MM_dd_HH_mm_ss.format(date);
+    }
+
+    @Benchmark
+    public String formatLocalDateTime() {
+        return yyyy_MM_dd_HH_mm_ss.format(localDateTime);
+    }
+}
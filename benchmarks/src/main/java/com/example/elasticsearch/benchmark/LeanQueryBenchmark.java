@@ -0,0 +1,174 @@
+package com.example.elasticsearch.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.DirectBufferPool;
+import com.example.elasticsearch.es.http.SearchHitsParser;
+import com.example.elasticsearch.es.lean.LeanBody;
+import com.example.elasticsearch.es.lean.LeanQuery;
+import com.github.pagehelper.PageInfo;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结构固定的热点查询（单个用户最近的登录记录）：
+ * SearchRequest/SearchSourceBuilder + XContent 序列化 + SearchResponse 解析（高级客户端对象模型），
+ * 对比 {@link LeanQuery} 骨架写入池化缓冲区 + 流式 {@link SearchHitsParser}
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LeanQueryBenchmark {
+    /**
+     * 模拟响应分片大小
+     */
+    private static final int CHUNK = 16 * 1024;
+    private static final String INDEX = "export_log-2020.09.13-000001";
+
+    private static final LeanQuery USER_LOGINS = LeanQuery.compile("{\"from\":\"{{from}}\",\"size\":\"{{size}}\",\"timeout\":\"{{timeout}}\","
+            + "\"query\":{\"bool\":{\"filter\":[{\"term\":{\"operationUser\":\"{{user}}\"}},"
+            + "{\"range\":{\"operationTime\":{\"gte\":\"{{begin}}\",\"format\":\"epoch_millis\"}}}]}},"
+            + "\"sort\":[{\"operationTime\":{\"order\":\"desc\"}}]}");
+
+    @Param({"20", "200"})
+    public int hits;
+
+    private final DirectBufferPool pool = new DirectBufferPool(1024 * 1024);
+    private final Date begin = new Date(1_600_000_000_000L);
+    private final TimeValue timeout = TimeValue.timeValueMillis(9_500);
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"took\":3,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},\"max_score\":null,\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            ApplicationLoginLog log = ApplicationLoginLog.builder()
+                    .id(String.valueOf(i))
+                    .applicationSide(random.nextInt(3))
+                    .operationUser("user42")
+                    .operationUserName("操作员42")
+                    .operationTime(new Date(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                    .ipGeographicAddress("上海市")
+                    .ip("10.21." + random.nextInt(255) + "." + random.nextInt(255))
+                    .successful(random.nextInt(10) > 0)
+                    .build();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"_index\":\"").append(INDEX).append("\",\"_type\":\"_doc\",\"_id\":\"").append(i)
+                    .append("\",\"_score\":null,\"_source\":").append(JSON.toJSONString(log))
+                    .append(",\"sort\":[").append(log.getOperationTime().getTime()).append("]}");
+        }
+        response = json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BytesReference highLevelRequest() throws IOException {
+        return XContentHelper.toXContent(highLevelSearchRequest().source(), XContentType.JSON, false);
+    }
+
+    @Benchmark
+    public long leanRequest() {
+        LeanBody body = LeanBody.pooled(pool);
+        try {
+            leanBound().writeTo(body);
+            return body.length();
+        } finally {
+            body.release();
+        }
+    }
+
+    @Benchmark
+    public PageInfo<ApplicationLoginLog> highLevelPage(Blackhole blackhole) throws IOException {
+        blackhole.consume(XContentHelper.toXContent(highLevelSearchRequest().source(), XContentType.JSON, false));
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, response)) {
+            SearchResponse searchResponse = SearchResponse.fromXContent(parser);
+            List<ApplicationLoginLog> list = new ArrayList<>(searchResponse.getHits().getHits().length);
+            for (SearchHit hit : searchResponse.getHits().getHits()) {
+                list.add(JSON.parseObject(hit.getSourceAsString(), ApplicationLoginLog.class));
+            }
+            PageInfo<ApplicationLoginLog> page = new PageInfo<>(list);
+            page.setTotal(searchResponse.getHits().getTotalHits().value);
+            return page;
+        }
+    }
+
+    @Benchmark
+    public PageInfo<ApplicationLoginLog> leanPage(Blackhole blackhole) throws IOException {
+        LeanBody body = LeanBody.pooled(pool);
+        try {
+            leanBound().writeTo(body);
+            blackhole.consume(body.length());
+        } finally {
+            body.release();
+        }
+        SearchHitsParser<ApplicationLoginLog> parser = new SearchHitsParser<>(ApplicationLoginLog.class);
+        for (int offset = 0; offset < response.length; offset += CHUNK) {
+            parser.feed(response, offset, Math.min(CHUNK, response.length - offset));
+        }
+        parser.endOfInput();
+        parser.close();
+        PageInfo<ApplicationLoginLog> page = new PageInfo<>(parser.getHits());
+        page.setTotal(parser.getTotal());
+        return page;
+    }
+
+    private SearchRequest highLevelSearchRequest() {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.termQuery("operationUser", "user42"))
+                        .filter(QueryBuilders.rangeQuery("operationTime").gte(begin.getTime()).format("epoch_millis")))
+                .from(0)
+                .size(hits)
+                .timeout(timeout)
+                .sort("operationTime", SortOrder.DESC);
+        return new SearchRequest(INDEX).source(source);
+    }
+
+    private LeanQuery.Bound leanBound() {
+        return USER_LOGINS.bind()
+                .set(LeanQuery.FROM, 0)
+                .set(LeanQuery.SIZE, hits)
+                .set(LeanQuery.TIMEOUT, timeout.getStringRep())
+                .set("user", "user42")
+                .set("begin", begin);
+    }
+}
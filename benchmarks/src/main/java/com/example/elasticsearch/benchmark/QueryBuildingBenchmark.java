@@ -0,0 +1,94 @@
+package com.example.elasticsearch.benchmark;
+
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.ESWhere;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询构建热点：ESWhere/Or 组装、ApplicationLoginLog.where()/buildEsSort()、SearchSourceBuilder 序列化
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueryBuildingBenchmark {
+
+    private ApplicationLoginLog query;
+    private SearchSourceBuilder searchSourceBuilder;
+
+    @Setup
+    public void setup() {
+        query = ApplicationLoginLog.builder()
+                .applicationSide(1)
+                .successful(true)
+                .operationUserName("操作员")
+                .operationTimeBegin(new Date(1_600_000_000_000L))
+                .operationTimeEnd(new Date(1_600_864_000_000L))
+                .sorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc()))
+                .build();
+        searchSourceBuilder = searchSource();
+    }
+
+    @Benchmark
+    public QueryBuilder esWhere() {
+        return ESWhere.of()
+                .and(1, () -> QueryBuilders.termQuery("applicationSide", 1))
+                .and(true, () -> QueryBuilders.termQuery("successful", true))
+                .and(ESWhere.Or.of()
+                        .or("user1", () -> QueryBuilders.termQuery("operationUser", "user1"))
+                        .or("user2", () -> QueryBuilders.termQuery("operationUser", "user2")))
+                .andIfNonBlank("操作员", () -> QueryBuilders.wildcardQuery("operationUserName", "*操作员*"))
+                .toPredicate();
+    }
+
+    @Benchmark
+    public QueryBuilder loginLogWhere() {
+        return query.where().toPredicate();
+    }
+
+    @Benchmark
+    public List<SortBuilder<?>> loginLogSort() {
+        return query.buildEsSort();
+    }
+
+    @Benchmark
+    public String searchSourceToString() {
+        return Strings.toString(searchSourceBuilder);
+    }
+
+    @Benchmark
+    public String buildAndSerialize() {
+        return Strings.toString(searchSource());
+    }
+
+    private SearchSourceBuilder searchSource() {
+        SearchSourceBuilder builder = new SearchSourceBuilder()
+                .query(query.where().toPredicate())
+                .size(20)
+                .from(0);
+        query.buildEsSort().forEach(builder::sort);
+        return builder;
+    }
+}
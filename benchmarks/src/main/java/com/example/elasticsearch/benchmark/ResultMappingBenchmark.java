@@ -0,0 +1,103 @@
+package com.example.elasticsearch.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.SearchHitsParser;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结果映射热点：HLRC 解析 + getSourceAsString + fastjson 反序列化（原 queryForPage 路径），
+ * 对比流式 {@link SearchHitsParser}
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResultMappingBenchmark {
+    /**
+     * 模拟响应分片大小
+     */
+    private static final int CHUNK = 16 * 1024;
+
+    @Param({"20", "1000"})
+    public int hits;
+
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"took\":3,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},\"max_score\":null,\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            ApplicationLoginLog log = ApplicationLoginLog.builder()
+                    .id(String.valueOf(i))
+                    .applicationSide(random.nextInt(3))
+                    .operationUser("user" + random.nextInt(5000))
+                    .operationUserName("操作员" + random.nextInt(5000))
+                    .operationTime(new Date(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                    .ipGeographicAddress("上海市")
+                    .ip("10.21." + random.nextInt(255) + "." + random.nextInt(255))
+                    .successful(random.nextInt(10) > 0)
+                    .build();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"_index\":\"export_log_index\",\"_type\":\"_doc\",\"_id\":\"").append(i)
+                    .append("\",\"_score\":null,\"_source\":").append(JSON.toJSONString(log))
+                    .append(",\"sort\":[").append(log.getOperationTime().getTime()).append("]}");
+        }
+        response = json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<ApplicationLoginLog> sourceAsString() throws IOException {
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, response)) {
+            SearchResponse searchResponse = SearchResponse.fromXContent(parser);
+            List<ApplicationLoginLog> list = new ArrayList<>();
+            for (SearchHit hit : searchResponse.getHits().getHits()) {
+                list.add(JSON.parseObject(hit.getSourceAsString(), ApplicationLoginLog.class));
+            }
+            return list;
+        }
+    }
+
+    @Benchmark
+    public List<ApplicationLoginLog> streamingParser() throws IOException {
+        SearchHitsParser<ApplicationLoginLog> parser = new SearchHitsParser<>(ApplicationLoginLog.class);
+        for (int offset = 0; offset < response.length; offset += CHUNK) {
+            parser.feed(response, offset, Math.min(CHUNK, response.length - offset));
+        }
+        parser.endOfInput();
+        parser.close();
+        return parser.getHits();
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.elasticsearch.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 本地 ES 替身：内嵌 HTTP 服务模拟 _search、_msearch、_bulk、_count，按配置注入延迟、错误与响应大小；
+ * 其他请求一律返回 200 {}
+ *
+ */
+@Slf4j
+public class ElasticsearchStandIn implements AutoCloseable {
+    /**
+     * 预生成的 _source 数量
+     */
+    private static final int SOURCE_POOL = 1024;
+    private static final byte[] REJECTED = ("{\"error\":{\"root_cause\":[],\"type\":\"es_rejected_execution_exception\","
+            + "\"reason\":\"rejected execution (stand-in)\"},\"status\":429}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAVAILABLE = ("{\"error\":{\"root_cause\":[],\"type\":\"unavailable_shards_exception\","
+            + "\"reason\":\"stand-in\"},\"status\":503}").getBytes(StandardCharsets.UTF_8);
+
+    private final StandInConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String[] sources = new String[SOURCE_POOL];
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    public ElasticsearchStandIn(StandInConfig config) throws IOException {
+        this.config = config;
+        Random random = new Random(42);
+        String padding = StringUtils.repeat('x', config.getSourcePaddingBytes());
+        for (int i = 0; i < SOURCE_POOL; i++) {
+            sources[i] = JSON.toJSONString(ApplicationLoginLog.builder()
+                    .id(String.valueOf(i))
+                    .applicationSide(random.nextInt(3))
+                    .operationUser("user" + random.nextInt(5000))
+                    .operationUserName("操作员" + random.nextInt(5000))
+                    .operationTime(new Date(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                    .ipGeographicAddress("上海市")
+                    .ip("10.21." + random.nextInt(255) + "." + random.nextInt(255))
+                    .successful(random.nextInt(10) > 0)
+                    .remarks(padding.isEmpty() ? null : padding)
+                    .build());
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.executor = Executors.newFixedThreadPool(config.getThreads());
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                log.warn("替身处理请求失败: {}", exchange.getRequestURI(), e);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 各端点收到的请求数
+     *
+     * @return {@link Map}
+     */
+    public Map<String, LongAdder> getRequests() {
+        return requests;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String endpoint = path.endsWith("/_search") ? "_search"
+                : path.endsWith("/_msearch") ? "_msearch"
+                : path.endsWith("/_bulk") ? "_bulk"
+                : path.endsWith("/_count") ? "_count"
+                : "other";
+        requests.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        byte[] body = readBody(exchange);
+
+        if (!"other".equals(endpoint)) {
+            long latency = config.sampleLatencyMillis();
+            if (latency > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            double dice = ThreadLocalRandom.current().nextDouble();
+            if (dice < config.getRejectRate()) {
+                respond(exchange, 429, REJECTED);
+                return;
+            }
+            if (dice < config.getRejectRate() + config.getErrorRate()) {
+                respond(exchange, 503, UNAVAILABLE);
+                return;
+            }
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        switch (endpoint) {
+            case "_search":
+                respond(exchange, 200, search(JSON.parseObject(new String(body, StandardCharsets.UTF_8))).getBytes(StandardCharsets.UTF_8));
+                break;
+            case "_msearch":
+                respond(exchange, 200, msearch(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+                break;
+            case "_bulk":
+                respond(exchange, 200, bulk(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+                break;
+            case "_count":
+                respond(exchange, 200, ("{\"count\":" + config.getTotalHits() + ",\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}}")
+                        .getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                respond(exchange, 200, "{}".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String search(JSONObject request) {
+        int size = Objects.isNull(request) || !request.containsKey("size") ? 10 : request.getIntValue("size");
+        int from = Objects.isNull(request) ? 0 : request.getIntValue("from");
+        int hits = (int) Math.max(0, Math.min(size, config.getTotalHits() - from));
+        StringBuilder json = new StringBuilder(256 + hits * (sources[0].length() + 96))
+                .append("{\"took\":").append(ThreadLocalRandom.current().nextInt(1, 20))
+                .append(",\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(Math.min(config.getTotalHits(), 10_000))
+                .append(",\"relation\":\"").append(config.getTotalHits() > 10_000 ? "gte" : "eq")
+                .append("\"},\"max_score\":null,\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int doc = (from + i) % SOURCE_POOL;
+            json.append("{\"_index\":\"export_log_index\",\"_type\":\"_doc\",\"_id\":\"").append(from + i)
+                    .append("\",\"_score\":null,\"_source\":").append(sources[doc])
+                    .append(",\"sort\":[").append(1_600_000_000_000L - from - i).append("]}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    private String msearch(String body) {
+        String[] lines = body.split("\n");
+        StringBuilder json = new StringBuilder("{\"took\":1,\"responses\":[");
+        for (int i = 1; i < lines.length; i += 2) {
+            if (i > 1) {
+                json.append(',');
+            }
+            String search = search(JSON.parseObject(lines[i]));
+            json.append(search, 0, search.length() - 1).append(",\"status\":200}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private String bulk(String body) {
+        String[] lines = body.split("\n");
+        StringBuilder json = new StringBuilder("{\"took\":").append(ThreadLocalRandom.current().nextInt(5, 50))
+                .append(",\"errors\":false,\"items\":[");
+        for (int i = 0; i < lines.length; i += 2) {
+            JSONObject action = JSON.parseObject(lines[i]).getJSONObject("index");
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"index\":{\"_index\":\"").append(action.getString("_index"))
+                    .append("\",\"_type\":\"_doc\",\"_id\":\"").append(Objects.toString(action.getString("_id"), String.valueOf(i)))
+                    .append("\",\"_version\":1,\"result\":\"created\",\"_shards\":{\"total\":2,\"successful\":1,\"failed\":0},")
+                    .append("\"_seq_no\":").append(i / 2).append(",\"_primary_term\":1,\"status\":201}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (Objects.nonNull(acceptEncoding) && acceptEncoding.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(status, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(body);
+            }
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.elasticsearch.loadtest;
+
+import com.example.elasticsearch.ElasticsearchDemoApplication;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.service.ElasticSearchService;
+import com.example.elasticsearch.service.SecurityAuditService;
+import com.github.pagehelper.PageInfo;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 端到端压测：启动本地 ES 替身与应用上下文，并发执行 loginLogPage 分页查询与 bulk 写入，
+ * 输出吞吐量与延迟分位数
+ * <p>
+ * 参数（key=value）：
+ * <ul>
+ * <li>load.search-threads / load.bulk-threads：并发线程数，默认 32 / 4</li>
+ * <li>load.page-size / load.bulk-size：分页大小 / 每批文档数，默认 20 / 500</li>
+ * <li>load.warmup-seconds / load.seconds：预热 / 测量时长，默认 10 / 30</li>
+ * <li>standin.*：替身配置，见 {@link StandInConfig#of(Map)}</li>
+ * <li>--xxx=yyy：透传给应用的配置，如 --elasticsearch.admission.enabled=false</li>
+ * </ul>
+ *
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        int searchThreads = Integer.parseInt(options.getOrDefault("load.search-threads", "32"));
+        int bulkThreads = Integer.parseInt(options.getOrDefault("load.bulk-threads", "4"));
+        int pageSize = Integer.parseInt(options.getOrDefault("load.page-size", "20"));
+        int bulkSize = Integer.parseInt(options.getOrDefault("load.bulk-size", "500"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("load.warmup-seconds", "10"));
+        long seconds = Long.parseLong(options.getOrDefault("load.seconds", "30"));
+        StandInConfig config = StandInConfig.of(options);
+
+        try (ElasticsearchStandIn standIn = new ElasticsearchStandIn(config)) {
+            String uri = "127.0.0.1:" + standIn.getPort();
+            springArgs.add(0, "--elasticsearch.uris=" + uri);
+            springArgs.add(0, "--spring.elasticsearch.rest.uris=" + uri);
+            springArgs.add(0, "--elasticsearch.metadata.enabled=false");
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ElasticsearchDemoApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(springArgs.toArray(new String[0]))) {
+                SecurityAuditService securityAuditService = context.getBean(SecurityAuditService.class);
+                ElasticSearchService elasticSearchService = context.getBean(ElasticSearchService.class);
+
+                Workload search = new Workload("loginLogPage", () -> {
+                    ApplicationLoginLog condition = ApplicationLoginLog.builder()
+                            .applicationSide(ThreadLocalRandom.current().nextInt(3))
+                            .operationUserName(ThreadLocalRandom.current().nextInt(4) == 0 ? "操作员" + ThreadLocalRandom.current().nextInt(5000) : null)
+                            .recentlyDays(7)
+                            .build();
+                    PageInfo<ApplicationLoginLog> pager = new PageInfo<>();
+                    pager.setPageNum(1 + ThreadLocalRandom.current().nextInt(10));
+                    pager.setPageSize(pageSize);
+                    securityAuditService.loginLogPage(condition, pager);
+                });
+                Workload bulk = new Workload("bulkSave", () -> {
+                    List<ApplicationLoginLog> documents = new ArrayList<>(bulkSize);
+                    for (int i = 0; i < bulkSize; i++) {
+                        documents.add(ApplicationLoginLog.builder()
+                                .id(Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36))
+                                .applicationSide(ThreadLocalRandom.current().nextInt(3))
+                                .operationUser("user" + ThreadLocalRandom.current().nextInt(5000))
+                                .operationUserName("操作员" + ThreadLocalRandom.current().nextInt(5000))
+                                .operationTime(new Date())
+                                .ipGeographicAddress("上海市")
+                                .ip("10.21." + ThreadLocalRandom.current().nextInt(255) + "." + ThreadLocalRandom.current().nextInt(255))
+                                .successful(true)
+                                .build());
+                    }
+                    elasticSearchService.bulkSave("export_log_index", documents, ApplicationLoginLog::getId);
+                });
+
+                System.out.println("预热 " + warmupSeconds + "s ...");
+                run(search, searchThreads, bulk, bulkThreads, warmupSeconds);
+                search.reset();
+                bulk.reset();
+                System.out.println("测量 " + seconds + "s ...");
+                run(search, searchThreads, bulk, bulkThreads, seconds);
+
+                System.out.println(String.format("%-14s %10s %10s %10s %10s %10s %10s %10s %10s",
+                        "workload", "ops", "ops/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+                search.report(seconds);
+                bulk.report(seconds);
+                System.out.println("替身请求数：" + standIn.getRequests());
+                System.out.println("压缩统计：" + context.getBean(EsCompression.class).getStats());
+            }
+        }
+    }
+
+    private static void run(Workload search, int searchThreads, Workload bulk, int bulkThreads, long seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(searchThreads + bulkThreads);
+        for (int i = 0; i < searchThreads + bulkThreads; i++) {
+            Workload workload = i < searchThreads ? search : bulk;
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        workload.execute();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, workload.name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * 单类压测负载，闭环执行并记录延迟
+     */
+    private static final class Workload {
+        private final String name;
+        private final Runnable action;
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        Workload(String name, Runnable action) {
+            this.name = name;
+            this.action = action;
+        }
+
+        void execute() {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                errors.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+            }
+            latency.recordValue(Math.min(latency.getHighestTrackableValue(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+        }
+
+        void reset() {
+            latency.reset();
+            errors.clear();
+        }
+
+        void report(long seconds) {
+            long errorCount = errors.values().stream().mapToLong(LongAdder::sum).sum();
+            System.out.println(String.format("%-14s %10d %10.1f %10d %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    name, latency.getTotalCount(), (double) latency.getTotalCount() / seconds, errorCount,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue())));
+            if (errorCount > 0) {
+                System.out.println("  错误分布：" + errors);
+            }
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000D;
+        }
+    }
+}
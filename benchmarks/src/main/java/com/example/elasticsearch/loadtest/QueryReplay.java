@@ -0,0 +1,216 @@
+package com.example.elasticsearch.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.es.FilterPath;
+import com.example.elasticsearch.es.capture.CapturedQuery;
+import com.example.elasticsearch.es.capture.QueryRecorder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 查询回放：按原始节奏（或按倍率加速/减速）重放 {@link QueryRecorder} 采样的查询，
+ * 对比记录与回放的延迟分布，并列出服务端耗时回退最明显的查询
+ * <p>
+ * 参数（key=value）：
+ * <ul>
+ * <li>files：记录文件或目录，默认 capture</li>
+ * <li>target：目标集群 host:port；不指定时启动本地 ES 替身（standin.* 参数同 {@link LoadTest}）</li>
+ * <li>rate：回放倍率，1 为原始节奏，2 为两倍速，0 为不等待尽快发送，默认 1</li>
+ * <li>concurrency：最大在途请求数，默认 64</li>
+ * <li>regression-factor / regression-min-ms：回放耗时超过记录耗时的倍数且差值超过该毫秒数时判定回退，默认 2 / 5</li>
+ * <li>top：列出的回退查询数，默认 20</li>
+ * </ul>
+ *
+ */
+public class QueryReplay {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        List<CapturedQuery> queries = load(new File(options.getOrDefault("files", "capture")));
+        if (queries.isEmpty()) {
+            System.out.println("没有可回放的查询");
+            return;
+        }
+        double rate = Double.parseDouble(options.getOrDefault("rate", "1"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        double factor = Double.parseDouble(options.getOrDefault("regression-factor", "2"));
+        long minMillis = Long.parseLong(options.getOrDefault("regression-min-ms", "5"));
+        int top = Integer.parseInt(options.getOrDefault("top", "20"));
+
+        ElasticsearchStandIn standIn = null;
+        String target = options.get("target");
+        if (Objects.isNull(target)) {
+            standIn = new ElasticsearchStandIn(StandInConfig.of(options));
+            target = "127.0.0.1:" + standIn.getPort();
+        }
+        String[] hostPort = target.split(":");
+        try (RestClient client = RestClient.builder(new HttpHost(hostPort[0], Integer.parseInt(hostPort[1]), "http")).build()) {
+            System.out.println(String.format("回放 %d 条查询 -> %s，倍率 %s，最大在途 %d", queries.size(), target, rate, concurrency));
+            Result result = replay(client, queries, rate, concurrency);
+
+            Histogram recorded = new Histogram(TimeUnit.MINUTES.toMicros(10), 3);
+            for (CapturedQuery query : queries) {
+                if (Objects.isNull(query.getError())) {
+                    recorded.recordValue(Math.min(recorded.getHighestTrackableValue(), query.getLatencyMicros()));
+                }
+            }
+            System.out.println(String.format("%-10s %10s %10s %10s %10s %10s %10s",
+                    "", "count", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+            print("recorded", recorded);
+            print("replay", result.latency);
+            System.out.println(String.format("回放失败 %d 条，耗时 %.1fs", result.errors.get(), result.elapsedNanos / 1e9));
+
+            List<Replayed> regressions = new ArrayList<>();
+            for (Replayed replayed : result.replayed) {
+                long before = replayed.query.getTook();
+                if (before >= 0 && replayed.took >= 0 && replayed.took > before * factor && replayed.took - before > minMillis) {
+                    regressions.add(replayed);
+                }
+            }
+            regressions.sort(Comparator.comparingLong((Replayed r) -> r.took - r.query.getTook()).reversed());
+            System.out.println(String.format("服务端耗时回退 %d 条（> %.1f 倍且 > %dms）：", regressions.size(), factor, minMillis));
+            for (Replayed replayed : regressions.subList(0, Math.min(top, regressions.size()))) {
+                System.out.println(String.format("  took %dms -> %dms  %s  %s", replayed.query.getTook(), replayed.took,
+                        replayed.query.getIndex(), StringUtils.abbreviate(replayed.query.getSource(), 300)));
+            }
+        } finally {
+            if (Objects.nonNull(standIn)) {
+                standIn.close();
+            }
+        }
+    }
+
+    /**
+     * 读取记录文件，按发起时间排序；未正常关闭的文件读到截断处为止
+     */
+    private static List<CapturedQuery> load(File path) throws IOException {
+        File[] files = path.isDirectory()
+                ? path.listFiles((d, n) -> n.startsWith(QueryRecorder.FILE_PREFIX) && n.endsWith(QueryRecorder.FILE_SUFFIX))
+                : new File[]{path};
+        List<CapturedQuery> queries = new ArrayList<>();
+        if (Objects.isNull(files)) {
+            return queries;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (StringUtils.isNotBlank(line)) {
+                        queries.add(JSON.parseObject(line, CapturedQuery.class));
+                    }
+                }
+            } catch (EOFException e) {
+                System.out.println("文件未完整写入，读取到截断处：" + file);
+            }
+        }
+        queries.sort(Comparator.comparingLong(CapturedQuery::getTimestamp));
+        return queries;
+    }
+
+    private static Result replay(RestClient client, List<CapturedQuery> queries, double rate, int concurrency) throws InterruptedException {
+        Result result = new Result();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long origin = queries.get(0).getTimestamp();
+        long start = System.nanoTime();
+        for (CapturedQuery query : queries) {
+            if (rate > 0) {
+                long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(query.getTimestamp() - origin) / rate);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            inFlight.acquire();
+            Request request = new Request("POST", "/" + query.getIndex() + "/_search");
+            request.setJsonEntity(query.getSource());
+            request.addParameter(FilterPath.PARAMETER, FilterPath.SEARCH.with());
+            long sent = System.nanoTime();
+            client.performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent);
+                    long took = -1;
+                    try {
+                        JSONObject body = JSON.parseObject(EntityUtils.toString(response.getEntity()));
+                        took = body.getLongValue("took");
+                    } catch (IOException | RuntimeException e) {
+                        result.errors.incrementAndGet();
+                    }
+                    result.latency.recordValue(Math.min(result.latency.getHighestTrackableValue(), micros));
+                    result.replayed.add(new Replayed(query, took));
+                    inFlight.release();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    result.errors.incrementAndGet();
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(concurrency);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void print(String name, Histogram histogram) {
+        System.out.println(String.format("%-10s %10d %10.2f %10.2f %10.2f %10.2f %10.2f", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000D, histogram.getValueAtPercentile(90) / 1000D,
+                histogram.getValueAtPercentile(99) / 1000D, histogram.getValueAtPercentile(99.9) / 1000D,
+                histogram.getMaxValue() / 1000D));
+    }
+
+    private static final class Result {
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+        private final ConcurrentLinkedQueue<Replayed> replayed = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+        private long elapsedNanos;
+    }
+
+    private static final class Replayed {
+        private final CapturedQuery query;
+        /**
+         * 回放时的服务端耗时
+         */
+        private final long took;
+
+        Replayed(CapturedQuery query, long took) {
+            this.query = query;
+            this.took = took;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.elasticsearch.loadtest;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ES 替身配置：延迟分布、错误率、响应大小
+ *
+ */
+@Data
+public class StandInConfig {
+    /**
+     * 延迟中位数（毫秒）
+     */
+    private double latencyMedianMillis = 5;
+    /**
+     * 延迟 p99（毫秒），与中位数一起确定对数正态分布；等于中位数时为固定延迟
+     */
+    private double latencyP99Millis = 50;
+    /**
+     * 返回 429 es_rejected_execution_exception 的比例
+     */
+    private double rejectRate = 0;
+    /**
+     * 返回 503 的比例
+     */
+    private double errorRate = 0;
+    /**
+     * 查询命中总数
+     */
+    private long totalHits = 100_000;
+    /**
+     * 每条 _source 额外填充的字节数，用于调整响应大小
+     */
+    private int sourcePaddingBytes = 0;
+    /**
+     * 处理请求的线程数
+     */
+    private int threads = 256;
+
+    /**
+     * p99 对应的标准正态分位数
+     */
+    private static final double Z_99 = 2.326;
+
+    /**
+     * 按对数正态分布采样一次延迟
+     *
+     * @return 毫秒
+     */
+    public long sampleLatencyMillis() {
+        if (latencyP99Millis <= latencyMedianMillis) {
+            return Math.round(latencyMedianMillis);
+        }
+        double sigma = Math.log(latencyP99Millis / latencyMedianMillis) / Z_99;
+        return Math.round(latencyMedianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    /**
+     * 从 standin.* 参数读取配置
+     *
+     * @param args 参数
+     * @return {@link StandInConfig}
+     */
+    public static StandInConfig of(Map<String, String> args) {
+        StandInConfig config = new StandInConfig();
+        config.setLatencyMedianMillis(Double.parseDouble(args.getOrDefault("standin.latency-median-ms", "5")));
+        config.setLatencyP99Millis(Double.parseDouble(args.getOrDefault("standin.latency-p99-ms", "50")));
+        config.setRejectRate(Double.parseDouble(args.getOrDefault("standin.reject-rate", "0")));
+        config.setErrorRate(Double.parseDouble(args.getOrDefault("standin.error-rate", "0")));
+        config.setTotalHits(Long.parseLong(args.getOrDefault("standin.total-hits", "100000")));
+        config.setSourcePaddingBytes(Integer.parseInt(args.getOrDefault("standin.source-padding-bytes", "0")));
+        config.setThreads(Integer.parseInt(args.getOrDefault("standin.threads", "256")));
+        return config;
+    }
+}
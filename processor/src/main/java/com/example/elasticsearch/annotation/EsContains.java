@@ -0,0 +1,27 @@
+package com.example.elasticsearch.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 包含子串：值非空白时生成 SubstringQuery.contains（n-gram 子字段）查询
+ *
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EsContains {
+    /**
+     * es 字段名称，默认与属性名相同
+     */
+    String field() default "";
+
+    /**
+     * 有 n-gram 子字段的具体索引名集合属性，传给 SubstringQuery.contains(field, value, indexed)：
+     * 为 null 时全部走 n-gram 查询，其余索引退回 SubstringQuery.wildcard
+     */
+    String indexedBy() default "";
+}
@@ -0,0 +1,41 @@
+package com.example.elasticsearch.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 范围查询的一端：同一 es 字段的多个属性合并为一个 range 查询，任一属性非空时生成
+ * <pre>
+ * &#64;EsRange(field = "operationTime", op = EsRange.Op.GTE, format = "yyyy-MM-dd HH:mm:ss")
+ * private Date operationTimeBegin;
+ * &#64;EsRange(field = "operationTime", op = EsRange.Op.LTE, format = "yyyy-MM-dd HH:mm:ss")
+ * private Date operationTimeEnd;
+ * </pre>
+ *
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EsRange {
+    /**
+     * es 字段名称
+     */
+    String field();
+
+    /**
+     * 比较方式
+     */
+    Op op();
+
+    /**
+     * Date 属性按该格式（系统时区）转为字符串；为空时使用毫秒时间戳
+     */
+    String format() default "";
+
+    enum Op {
+        GT, GTE, LT, LTE
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.elasticsearch.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 最近 N 天：整数属性非空时生成 (现在 - N 天, 现在) 的毫秒时间戳 range 查询
+ *
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EsRecentDays {
+    /**
+     * es 时间字段名称
+     */
+    String field();
+}
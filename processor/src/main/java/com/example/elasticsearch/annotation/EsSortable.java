@@ -0,0 +1,26 @@
+package com.example.elasticsearch.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 可排序字段：排序参数 Sorts.Order#name 取值为 {@link #name()}
+ *
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EsSortable {
+    /**
+     * 排序参数名称，默认与属性名相同
+     */
+    String name() default "";
+
+    /**
+     * es 字段名称，默认与属性名相同
+     */
+    String field() default "";
+}
@@ -0,0 +1,21 @@
+package com.example.elasticsearch.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 精确匹配：值非空时生成 term 查询，集合类型非空时生成 terms 查询
+ *
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EsTerm {
+    /**
+     * es 字段名称，默认与属性名相同
+     */
+    String field() default "";
+}
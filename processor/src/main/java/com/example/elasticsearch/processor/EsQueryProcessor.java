@@ -0,0 +1,428 @@
+package com.example.elasticsearch.processor;
+
+import com.example.elasticsearch.annotation.EsContains;
+import com.example.elasticsearch.annotation.EsIds;
+import com.example.elasticsearch.annotation.EsRange;
+import com.example.elasticsearch.annotation.EsRecentDays;
+import com.example.elasticsearch.annotation.EsSortable;
+import com.example.elasticsearch.annotation.EsTerm;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 根据实体属性上的查询注解，编译期生成 {实体}Queries 类：
+ * <ul>
+ *     <li>where(实体)：逐个属性判断后直接拼接查询条件，不创建 Supplier，不使用反射</li>
+ *     <li>sorts(排序参数)：按排序名称 switch 出排序对象，非法名称抛出 CustomException，不依赖 Enum.valueOf 的异常</li>
+ * </ul>
+ * 属性通过 getter 读取（Lombok @Data 生成），条件按属性声明顺序拼接
+ *
+ */
+public class EsQueryProcessor extends AbstractProcessor {
+    private static final String SUFFIX = "Queries";
+
+    private static final String ES_WHERE = "com.example.elasticsearch.es.ESWhere";
+    private static final String SORTS = "com.example.elasticsearch.es.Sorts";
+    private static final String SUBSTRING_QUERY = "com.example.elasticsearch.es.SubstringQuery";
+    private static final String CUSTOM_EXCEPTION = "com.example.elasticsearch.exception.CustomException";
+    private static final String STRING_UTILS = "org.apache.commons.lang3.StringUtils";
+    private static final String QUERY_BUILDERS = "org.elasticsearch.index.query.QueryBuilders";
+    private static final String RANGE_QUERY_BUILDER = "org.elasticsearch.index.query.RangeQueryBuilder";
+    private static final String SORT_BUILDER = "org.elasticsearch.search.sort.SortBuilder";
+    private static final String SORT_BUILDERS = "org.elasticsearch.search.sort.SortBuilders";
+    private static final String SORT_ORDER = "org.elasticsearch.search.sort.SortOrder";
+
+    /**
+     * 生成代码中使用的变量名，属性同名时加后缀
+     */
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList("condition", "where", "orders", "builders", "order", "direction"));
+
+    private static final List<Class<? extends Annotation>> ANNOTATIONS = Arrays.asList(
+            EsIds.class, EsTerm.class, EsRange.class, EsContains.class, EsRecentDays.class, EsSortable.class);
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return ANNOTATIONS.stream().map(Class::getCanonicalName).collect(Collectors.toSet());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Class<? extends Annotation> annotation : ANNOTATIONS) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement type : types) {
+            try {
+                generate(type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "生成 " + type.getSimpleName() + SUFFIX + " 失败：" + e, type);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        List<VariableElement> fields = new ArrayList<>();
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD && ANNOTATIONS.stream().anyMatch(a -> Objects.nonNull(element.getAnnotation(a)))) {
+                if (element.getModifiers().contains(Modifier.STATIC)) {
+                    error(element, "查询注解不能用于静态属性");
+                    return;
+                }
+                fields.add((VariableElement) element);
+            }
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String entity = type.getSimpleName().toString();
+        Source source = new Source();
+        source.type(type.getQualifiedName().toString());
+        StringBuilder body = new StringBuilder();
+        if (!where(type, fields, source, body) || !sorts(fields, source, body)) {
+            return;
+        }
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + entity + SUFFIX, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write("package " + packageName + ";\n\n");
+            for (String name : source.imports) {
+                if (!name.startsWith(packageName + ".") || name.indexOf('.', packageName.length() + 1) >= 0) {
+                    writer.write("import " + name + ";\n");
+                }
+            }
+            writer.write("\n/**\n * {@link " + entity + "} 的查询条件与排序构建，由 EsQueryProcessor 根据属性注解生成，请勿修改\n */\n");
+            writer.write("public final class " + entity + SUFFIX + " {\n");
+            writer.write(source.constants.toString());
+            writer.write("\n    private " + entity + SUFFIX + "() {\n    }\n");
+            writer.write(body.toString());
+            writer.write("}\n");
+        }
+    }
+
+    /**
+     * 生成 where 方法
+     */
+    private boolean where(TypeElement type, List<VariableElement> fields, Source source, StringBuilder out) {
+        String entity = type.getSimpleName().toString();
+        String esWhere = source.type(ES_WHERE);
+        String queryBuilders = source.type(QUERY_BUILDERS);
+        out.append("\n    /**\n     * 查询条件\n     *\n     * @param condition {@link ").append(entity).append("}\n")
+                .append("     * @return {@link ").append(esWhere).append("}\n     */\n");
+        out.append("    public static ").append(esWhere).append(" where(final ").append(entity).append(" condition) {\n");
+        out.append("        final ").append(esWhere).append(" where = ").append(esWhere).append(".of();\n");
+
+        Set<String> rangesDone = new HashSet<>();
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            EsIds ids = field.getAnnotation(EsIds.class);
+            EsTerm term = field.getAnnotation(EsTerm.class);
+            EsRange range = field.getAnnotation(EsRange.class);
+            EsContains contains = field.getAnnotation(EsContains.class);
+            EsRecentDays recentDays = field.getAnnotation(EsRecentDays.class);
+            if (Objects.nonNull(ids)) {
+                if (!isString(field.asType()) && !isCollection(field.asType())) {
+                    return error(field, "@EsIds 只能用于 String 或 String 集合");
+                }
+                String value = read(field, source, out);
+                if (isCollection(field.asType())) {
+                    out.append("        if (").append(value).append(" != null && !").append(value).append(".isEmpty()) {\n")
+                            .append("            where.and(").append(queryBuilders).append(".idsQuery().addIds(").append(value).append(".toArray(new String[0])));\n");
+                } else {
+                    out.append("        if (").append(value).append(" != null) {\n")
+                            .append("            where.and(").append(queryBuilders).append(".idsQuery().addIds(").append(value).append("));\n");
+                }
+                out.append("        }\n");
+            }
+            if (Objects.nonNull(term)) {
+                String esField = literal(term.field().isEmpty() ? name : term.field());
+                String value = read(field, source, out);
+                if (isCollection(field.asType())) {
+                    out.append("        if (").append(value).append(" != null && !").append(value).append(".isEmpty()) {\n")
+                            .append("            where.and(").append(queryBuilders).append(".termsQuery(").append(esField).append(", ").append(value).append("));\n");
+                } else {
+                    out.append("        if (").append(value).append(" != null) {\n")
+                            .append("            where.and(").append(queryBuilders).append(".termQuery(").append(esField).append(", ").append(value).append("));\n");
+                }
+                out.append("        }\n");
+            }
+            if (Objects.nonNull(range) && rangesDone.add(range.field())) {
+                if (!range(field, range, fields, source, out)) {
+                    return false;
+                }
+            }
+            if (Objects.nonNull(contains)) {
+                if (!isString(field.asType())) {
+                    return error(field, "@EsContains 只能用于 String");
+                }
+                String esField = literal(contains.field().isEmpty() ? name : contains.field());
+                String substringQuery = source.type(SUBSTRING_QUERY);
+                String value = read(field, source, out);
+                out.append("        if (").append(source.type(STRING_UTILS)).append(".isNotBlank(").append(value).append(")) {\n");
+                if (contains.indexedBy().isEmpty()) {
+                    out.append("            where.and(").append(substringQuery).append(".contains(").append(esField).append(", ").append(value).append("));\n");
+                } else {
+                    VariableElement indexedBy = fields(type).get(contains.indexedBy());
+                    if (Objects.isNull(indexedBy) || !isCollection(indexedBy.asType())) {
+                        return error(field, "@EsContains(indexedBy) 需指向索引名集合属性：" + contains.indexedBy());
+                    }
+                    out.append("            where.and(").append(substringQuery).append(".contains(").append(esField).append(", ").append(value)
+                            .append(", condition.").append(getter(indexedBy)).append("()));\n");
+                }
+                out.append("        }\n");
+            }
+            if (Objects.nonNull(recentDays)) {
+                if (!isInteger(field.asType())) {
+                    return error(field, "@EsRecentDays 只能用于整数");
+                }
+                String value = read(field, source, out);
+                String now = value + "Now";
+                out.append("        if (").append(value).append(" != null) {\n")
+                        .append("            final ").append(source.type("java.time.Instant")).append(' ').append(now).append(" = Instant.now();\n")
+                        .append("            where.and(").append(queryBuilders).append(".rangeQuery(").append(literal(recentDays.field())).append(")\n")
+                        .append("                    .gt(").append(now).append(".atZone(").append(source.type("java.time.ZoneId")).append(".systemDefault()).minusDays(")
+                        .append(value).append(").toInstant().toEpochMilli())\n")
+                        .append("                    .lt(").append(now).append(".toEpochMilli()));\n")
+                        .append("        }\n");
+            }
+        }
+        out.append("        return where;\n    }\n");
+        return true;
+    }
+
+    /**
+     * 同一 es 字段的所有 @EsRange 属性合并为一个 range 查询
+     */
+    private boolean range(VariableElement first, EsRange range, List<VariableElement> fields, Source source, StringBuilder out) {
+        List<VariableElement> group = fields.stream()
+                .filter(f -> Objects.nonNull(f.getAnnotation(EsRange.class)) && f.getAnnotation(EsRange.class).field().equals(range.field()))
+                .collect(Collectors.toList());
+        List<String> values = new ArrayList<>(group.size());
+        for (VariableElement field : group) {
+            if (field.asType().getKind().isPrimitive()) {
+                return error(field, "@EsRange 需使用包装类型，null 表示不限制");
+            }
+            values.add(read(field, source, out));
+        }
+        String builder = identifier(range.field()) + "Range";
+        out.append("        if (").append(values.stream().map(v -> v + " != null").collect(Collectors.joining(" || "))).append(") {\n")
+                .append("            final ").append(source.type(RANGE_QUERY_BUILDER)).append(' ').append(builder).append(" = ")
+                .append(source.type(QUERY_BUILDERS)).append(".rangeQuery(").append(literal(range.field())).append(");\n");
+        for (int i = 0; i < group.size(); i++) {
+            EsRange bound = group.get(i).getAnnotation(EsRange.class);
+            String value = values.get(i);
+            if ("java.util.Date".equals(group.get(i).asType().toString())) {
+                value = bound.format().isEmpty() ? value + ".getTime()" : source.formatter(bound.format()) + ".format(" + value + ".toInstant())";
+            }
+            out.append("            if (").append(values.get(i)).append(" != null) {\n")
+                    .append("                ").append(builder).append('.').append(bound.op().name().toLowerCase(Locale.ROOT)).append('(').append(value).append(");\n")
+                    .append("            }\n");
+        }
+        out.append("            where.and(").append(builder).append(");\n")
+                .append("        }\n");
+        return true;
+    }
+
+    /**
+     * 生成 sorts 方法
+     */
+    private boolean sorts(List<VariableElement> fields, Source source, StringBuilder out) {
+        Map<String, String> sortable = new LinkedHashMap<>();
+        for (VariableElement field : fields) {
+            EsSortable sort = field.getAnnotation(EsSortable.class);
+            if (Objects.nonNull(sort)) {
+                String name = sort.name().isEmpty() ? field.getSimpleName().toString() : sort.name();
+                if (Objects.nonNull(sortable.put(name, sort.field().isEmpty() ? field.getSimpleName().toString() : sort.field()))) {
+                    return error(field, "排序名称重复：" + name);
+                }
+            }
+        }
+        if (sortable.isEmpty()) {
+            return true;
+        }
+        String sorts = source.type(SORTS);
+        String sortBuilder = source.type(SORT_BUILDER);
+        String sortOrder = source.type(SORT_ORDER);
+        String names = sortable.keySet().stream().map(n -> "\"" + n + "\"").collect(Collectors.joining(",", "[", "]"));
+        source.constants.append("    /**\n     * 非法排序名称的提示\n     */\n")
+                .append("    private static final String SORT_NAMES = ").append(literal("排序字段可选范围：" + names)).append(";\n");
+
+        out.append("\n    /**\n     * 排序对象\n     *\n     * @param orders 排序参数，为 null 时不排序\n")
+                .append("     * @return {@link List}\n     */\n");
+        out.append("    public static ").append(source.type("java.util.List")).append('<').append(sortBuilder).append("<?>> sorts(final List<")
+                .append(sorts).append(".Order> orders) {\n");
+        out.append("        if (orders == null) {\n            return ").append(source.type("java.util.Collections")).append(".emptyList();\n        }\n");
+        out.append("        final List<").append(sortBuilder).append("<?>> builders = new ").append(source.type("java.util.ArrayList"))
+                .append("<>(orders.size());\n");
+        out.append("        for (").append(sorts).append(".Order order : orders) {\n")
+                .append("            final ").append(sortOrder).append(" direction = ").append(sorts).append(".Direction.ASC == order.getDirection() ? ")
+                .append(sortOrder).append(".ASC : ").append(sortOrder).append(".DESC;\n")
+                .append("            switch (order.getName() == null ? \"\" : order.getName()) {\n");
+        for (Map.Entry<String, String> entry : sortable.entrySet()) {
+            out.append("                case ").append(literal(entry.getKey())).append(":\n")
+                    .append("                    builders.add(").append(source.type(SORT_BUILDERS)).append(".fieldSort(").append(literal(entry.getValue()))
+                    .append(").order(direction));\n")
+                    .append("                    break;\n");
+        }
+        out.append("                default:\n")
+                .append("                    throw new ").append(source.type(CUSTOM_EXCEPTION)).append("(SORT_NAMES);\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        return builders;\n    }\n");
+        return true;
+    }
+
+    /**
+     * 读取属性到局部变量，返回变量名
+     */
+    private String read(VariableElement field, Source source, StringBuilder out) {
+        String name = field.getSimpleName().toString();
+        String local = RESERVED.contains(name) ? name + "Value" : name;
+        if (source.locals.add(local)) {
+            out.append("        final ").append(source.type(field.asType())).append(' ').append(local)
+                    .append(" = condition.").append(getter(field)).append("();\n");
+        }
+        return local;
+    }
+
+    private Map<String, VariableElement> fields(TypeElement type) {
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD) {
+                fields.put(element.getSimpleName().toString(), (VariableElement) element);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Lombok 的 getter 命名
+     */
+    private static String getter(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private boolean isString(TypeMirror type) {
+        return "java.lang.String".equals(type.toString());
+    }
+
+    private boolean isInteger(TypeMirror type) {
+        String name = type.toString();
+        return "java.lang.Integer".equals(name) || "java.lang.Long".equals(name) || "java.lang.Short".equals(name);
+    }
+
+    private boolean isCollection(TypeMirror type) {
+        TypeMirror collection = processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+        return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type), collection);
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+
+    /**
+     * es 字段名转为变量名，如 @timestamp -> timestamp、user.name -> userName
+     */
+    private static String identifier(String field) {
+        StringBuilder identifier = new StringBuilder(field.length());
+        boolean upper = false;
+        for (char c : field.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(c) || c == '$') {
+                upper = identifier.length() > 0;
+                continue;
+            }
+            identifier.append(upper ? Character.toUpperCase(c) : c);
+            upper = false;
+        }
+        return identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0)) ? "field" + identifier : identifier.toString();
+    }
+
+    /**
+     * Java 字符串字面量
+     */
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * 生成源码时收集 import 与静态常量
+     */
+    private static class Source {
+        private final Set<String> imports = new TreeSet<>();
+        private final Set<String> locals = new HashSet<>();
+        private final Map<String, String> formatters = new LinkedHashMap<>();
+        private final StringBuilder constants = new StringBuilder();
+
+        /**
+         * 登记 import，返回简单类名
+         */
+        private String type(String qualifiedName) {
+            imports.add(qualifiedName);
+            return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+        }
+
+        private String type(TypeMirror type) {
+            String name = type.toString();
+            int generic = name.indexOf('<');
+            if (type.getKind().isPrimitive() || generic >= 0 || name.indexOf('.') < 0) {
+                // 泛型集合直接使用全限定名，避免逐个处理类型参数
+                return name;
+            }
+            return name.startsWith("java.lang.") && name.indexOf('.', "java.lang.".length()) < 0 ? name.substring("java.lang.".length()) : type(name);
+        }
+
+        /**
+         * 同一格式只创建一个 DateTimeFormatter 常量
+         */
+        private String formatter(String pattern) {
+            return formatters.computeIfAbsent(pattern, p -> {
+                String name = "FORMAT_" + formatters.size();
+                constants.append("    private static final ").append(type("java.time.format.DateTimeFormatter")).append(' ').append(name)
+                        .append(" = DateTimeFormatter.ofPattern(").append(literal(p)).append(").withZone(").append(type("java.time.ZoneId"))
+                        .append(".systemDefault());\n");
+                return name;
+            });
+        }
+    }
+}
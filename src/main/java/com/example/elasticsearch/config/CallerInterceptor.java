@@ -0,0 +1,38 @@
+package com.example.elasticsearch.config;
+
+import com.example.elasticsearch.es.EsCaller;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 从请求头读取调用方标识，绑定到当前线程供 ES 准入控制使用
+ *
+ */
+public class CallerInterceptor implements AsyncHandlerInterceptor {
+    /**
+     * 请求头：调用方标识
+     */
+    public static final String HEADER_CALLER_ID = "X-Caller-Id";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String caller = request.getHeader(HEADER_CALLER_ID);
+        if (StringUtils.isNotBlank(caller)) {
+            EsCaller.bind(caller.trim());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        EsCaller.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        EsCaller.clear();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.elasticsearch.config;
+
+import com.example.elasticsearch.es.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 从请求头读取调用方的超时预算，绑定到当前线程供 ES 调用使用
+ *
+ */
+@Slf4j
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+    /**
+     * 请求头：调用方剩余超时预算（毫秒）
+     */
+    public static final String HEADER_REQUEST_TIMEOUT = "X-Request-Timeout";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String timeout = request.getHeader(HEADER_REQUEST_TIMEOUT);
+        if (StringUtils.isNotBlank(timeout)) {
+            try {
+                Deadline.bind(Deadline.afterMillis(Long.parseLong(timeout.trim())));
+            } catch (NumberFormatException e) {
+                log.warn("忽略非法的超时请求头 {}: {}", HEADER_REQUEST_TIMEOUT, timeout);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Deadline.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求不会回调 afterCompletion，释放容器线程前解除绑定
+        Deadline.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.elasticsearch.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ES 客户端准入控制配置
+ *
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "elasticsearch.admission")
+public class EsAdmissionProperties {
+    /**
+     * 是否开启准入控制
+     */
+    private boolean enabled = true;
+    /**
+     * 等待令牌或并发许可的最长时间（毫秒），超过后直接拒绝
+     */
+    private long queueTimeoutMillis = 200;
+    /**
+     * 集群反压（429）时限流速率的下调比例
+     */
+    private double backoffFactor = 0.5;
+    /**
+     * 连续成功多少次后将限流速率回升一档
+     */
+    private int recoverAfter = 50;
+    /**
+     * 未单独配置时使用的默认限制
+     */
+    private Limit defaults = new Limit(200, 20);
+    /**
+     * 单独配置的限制，key 格式：索引:操作类型（如 export_log_index:EXPORT）或 caller:调用方
+     */
+    private Map<String, Limit> limits = new LinkedHashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        /**
+         * 每秒令牌数
+         */
+        private double permitsPerSecond;
+        /**
+         * 最大并发请求数
+         */
+        private int maxConcurrency;
+    }
+}
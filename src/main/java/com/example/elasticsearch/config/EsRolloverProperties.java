@@ -0,0 +1,69 @@
+package com.example.elasticsearch.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 登录日志滚动索引配置
+ *
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "elasticsearch.rollover")
+public class EsRolloverProperties {
+    /**
+     * 是否开启滚动索引；关闭时读写仍使用 elasticsearch.export-index
+     */
+    private boolean enabled = false;
+    /**
+     * 读别名，所有滚动索引都带此别名；滚动索引名为 别名-yyyy.MM.dd-000001
+     */
+    private String alias = "export_log";
+    /**
+     * 滚动条件：索引创建后最长存活时间
+     */
+    private String maxAge = "1d";
+    /**
+     * 滚动条件：主分片总大小上限
+     */
+    private String maxSize = "50gb";
+    /**
+     * 保留天数，索引内最新数据早于该天数时整体删除
+     */
+    private int retentionDays = 90;
+    /**
+     * 数据迟到容忍天数：按索引创建日期裁剪查询范围时向前多覆盖的天数
+     */
+    private int lateArrivalDays = 1;
+    /**
+     * 检查滚动与保留的间隔（毫秒）
+     */
+    private long checkMillis = 600_000;
+    /**
+     * 新索引主分片数
+     */
+    private int shards = 1;
+    /**
+     * 新索引副本数
+     */
+    private int replicas = 1;
+    /**
+     * 索引排序字段（只对新建索引生效），为空时不排序；只写入滚动索引模板，未开启滚动时
+     * elasticsearch.export-index 不带索引排序，需按此配置重建索引后才能提前终止
+     */
+    private String sortField = "operationTime";
+    /**
+     * 索引排序方向
+     */
+    private String sortOrder = "desc";
+
+    /**
+     * 写别名
+     *
+     * @return String
+     */
+    public String getWriteAlias() {
+        return alias + "-write";
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.elasticsearch.controller;
+
+import com.example.elasticsearch.es.reindex.ReindexProgress;
+import com.example.elasticsearch.es.reindex.ReindexRequest;
+import com.example.elasticsearch.service.EsReindexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+
+@RestController
+@RequestMapping("/es/reindex")
+public class EsReindexController {
+
+    @Autowired
+    private EsReindexService esReindexService;
+
+    /**
+     * 开始重建索引，立即返回任务进度
+     */
+    @PostMapping
+    public ReindexProgress start(@RequestBody ReindexRequest request) {
+        return esReindexService.start(request);
+    }
+
+    /**
+     * 所有重建任务进度
+     */
+    @GetMapping
+    public Collection<ReindexProgress> list() {
+        return esReindexService.list();
+    }
+
+    /**
+     * 重建任务进度：已复制文档数、吞吐、当前限速
+     */
+    @GetMapping("/{id}")
+    public ReindexProgress get(@PathVariable String id) {
+        return esReindexService.get(id);
+    }
+
+    /**
+     * 取消重建任务
+     */
+    @DeleteMapping("/{id}")
+    public ReindexProgress cancel(@PathVariable String id) {
+        return esReindexService.cancel(id);
+    }
+}
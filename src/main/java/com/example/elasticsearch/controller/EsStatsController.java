@@ -0,0 +1,49 @@
+package com.example.elasticsearch.controller;
+
+import com.example.elasticsearch.es.FingerprintStats;
+import com.example.elasticsearch.service.EsQueryStatsService;
+import com.example.elasticsearch.service.EsSearchTemplateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/es/stats")
+public class EsStatsController {
+
+    @Autowired
+    private EsQueryStatsService esQueryStatsService;
+    @Autowired
+    private EsSearchTemplateService esSearchTemplateService;
+
+    /**
+     * 查询指纹排行，默认按总耗时排序
+     */
+    @GetMapping("/fingerprints")
+    public List<FingerprintStats> fingerprints(@RequestParam(defaultValue = "20") int top,
+                                               @RequestParam(defaultValue = "total") String orderBy) {
+        return esQueryStatsService.top(top, orderBy);
+    }
+
+    /**
+     * 清空查询指纹统计
+     */
+    @DeleteMapping("/fingerprints")
+    public void reset() {
+        esQueryStatsService.reset();
+    }
+
+    /**
+     * 已注册的搜索模板，按使用次数排序
+     */
+    @GetMapping("/templates")
+    public List<Map<String, Object>> templates() {
+        return esSearchTemplateService.list();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.elasticsearch.controller;
+
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.CancellableFuture;
+import com.example.elasticsearch.es.Collapsed;
+import com.example.elasticsearch.es.Deadline;
+import com.example.elasticsearch.es.suggest.Suggestion;
+import com.example.elasticsearch.service.LoginUserSuggestService;
+import com.example.elasticsearch.service.SecurityAuditService;
+import com.github.pagehelper.PageInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.propertyeditors.CustomDateEditor;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+@Slf4j
+@RestController
+@RequestMapping("/audit")
+public class SecurityAuditController {
+
+    @Autowired
+    private SecurityAuditService securityAuditService;
+    @Autowired
+    private LoginUserSuggestService loginUserSuggestService;
+
+    @InitBinder
+    public void initBinder(WebDataBinder binder) {
+        binder.registerCustomEditor(Date.class, new CustomDateEditor(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"), true));
+    }
+
+    /**
+     * 数据导出日志分页查询，调用方断开连接或请求超时时取消 ES 查询
+     */
+    @GetMapping("/login-log/page")
+    public DeferredResult<PageInfo<ApplicationLoginLog>> loginLogPage(ApplicationLoginLog condition,
+                                                                      @RequestParam(defaultValue = "1") int pageNum,
+                                                                      @RequestParam(defaultValue = "10") int pageSize) {
+        PageInfo<ApplicationLoginLog> pager = new PageInfo<>();
+        pager.setPageNum(pageNum);
+        pager.setPageSize(pageSize);
+
+        Deadline deadline = Deadline.current();
+        DeferredResult<PageInfo<ApplicationLoginLog>> result = new DeferredResult<>(Objects.isNull(deadline) ? null : deadline.remainingMillis());
+        CancellableFuture<PageInfo<ApplicationLoginLog>> future = securityAuditService.loginLogPageAsync(condition, pager);
+        future.whenComplete((page, e) -> {
+            if (Objects.nonNull(e)) {
+                result.setErrorResult(e);
+            } else {
+                result.setResult(page);
+            }
+        });
+        result.onTimeout(() -> future.cancel(true));
+        result.onError(e -> {
+            log.info("调用方已断开，取消查询: {}", future.getOpaqueId());
+            future.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * 每个操作用户的最近一次登录，按用户分页
+     *
+     * @param innerHits 每个用户额外返回的最近 N 次登录
+     */
+    @GetMapping("/login-log/latest")
+    public PageInfo<Collapsed<ApplicationLoginLog>> latestLoginPage(ApplicationLoginLog condition,
+                                                                    @RequestParam(defaultValue = "1") int pageNum,
+                                                                    @RequestParam(defaultValue = "10") int pageSize,
+                                                                    @RequestParam(defaultValue = "0") int innerHits) {
+        PageInfo<ApplicationLoginLog> pager = new PageInfo<>();
+        pager.setPageNum(pageNum);
+        pager.setPageSize(pageSize);
+        return securityAuditService.latestLoginPage(condition, pager, innerHits);
+    }
+
+    /**
+     * 单个操作用户最近 N 天的登录记录
+     */
+    @GetMapping("/login-log/user")
+    public PageInfo<ApplicationLoginLog> userLoginPage(@RequestParam String operationUser,
+                                                       @RequestParam(defaultValue = "30") int recentlyDays,
+                                                       @RequestParam(defaultValue = "1") int pageNum,
+                                                       @RequestParam(defaultValue = "10") int pageSize) {
+        PageInfo<ApplicationLoginLog> pager = new PageInfo<>();
+        pager.setPageNum(pageNum);
+        pager.setPageSize(pageSize);
+        return securityAuditService.userLoginPage(operationUser, recentlyDays, pager);
+    }
+
+    /**
+     * 操作用户输入提示，只读本地前缀索引，不访问 ES
+     */
+    @GetMapping("/login-log/suggest")
+    public List<Suggestion> suggest(@RequestParam(required = false) String prefix,
+                                    @RequestParam(defaultValue = "10") int size) {
+        return loginUserSuggestService.suggest(prefix, size);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.elasticsearch.demo;
+
+import com.alibaba.fastjson.JSON;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.Gzip;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * gzip 压缩阈值基准：对比不同请求体大小下的压缩/解压 CPU 耗时与传输节省时间，
+ * 找出压缩开始划算的请求体大小，作为 elasticsearch.compression.request-threshold-bytes 的依据
+ */
+public class TestCompressionThreshold {
+
+    /**
+     * 跨机架繁忙网络下单连接的有效带宽（bit/s）
+     */
+    private static final double BANDWIDTH_BITS_PER_SECOND = 100_000_000D;
+
+    private static final int[] SIZES = {512, 1024, 2048, 4096, 8192, 16384, 32768, 65536, 262144, 1048576, 4194304};
+
+    private static final int LEVEL = 1;
+
+    @Test
+    public void testThreshold() throws IOException {
+        Random random = new Random(42);
+        byte[] corpus = bulkBody(random, SIZES[SIZES.length - 1]);
+
+        System.out.println(String.format("%10s %10s %8s %12s %12s %12s %12s",
+                "size", "gzip", "ratio", "cpu(us)", "raw(us)", "wire(us)", "gain(us)"));
+        Integer breakEven = null;
+        for (int size : SIZES) {
+            byte[] body = new byte[size];
+            System.arraycopy(corpus, 0, body, 0, size);
+
+            int iterations = Math.max(20, 20_000_000 / size);
+            // 预热
+            for (int i = 0; i < iterations; i++) {
+                Gzip.decompress(new ByteArrayInputStream(Gzip.compress(body, LEVEL)), Integer.MAX_VALUE);
+            }
+            byte[] compressed = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                compressed = Gzip.compress(body, LEVEL);
+            }
+            long compressNanos = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Gzip.decompress(new ByteArrayInputStream(compressed), Integer.MAX_VALUE);
+            }
+            long decompressNanos = (System.nanoTime() - start) / iterations;
+
+            double cpuMicros = (compressNanos + decompressNanos) / 1000D;
+            double rawMicros = transferMicros(size);
+            double wireMicros = transferMicros(compressed.length);
+            double gain = rawMicros - wireMicros - cpuMicros;
+            if (breakEven == null && gain > 0) {
+                breakEven = size;
+            }
+            System.out.println(String.format("%10d %10d %8.2f %12.1f %12.1f %12.1f %12.1f",
+                    size, compressed.length, (double) compressed.length / size, cpuMicros, rawMicros, wireMicros, gain));
+        }
+        System.out.println("压缩开始划算的请求体大小 -> " + breakEven);
+    }
+
+    private static double transferMicros(long bytes) {
+        return bytes * 8D / BANDWIDTH_BITS_PER_SECOND * 1_000_000D;
+    }
+
+    /**
+     * 生成接近真实登录日志的 bulk NDJSON 请求体
+     */
+    private static byte[] bulkBody(Random random, int minSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(minSize + 1024);
+        long id = 0;
+        while (out.size() < minSize) {
+            ApplicationLoginLog log = ApplicationLoginLog.builder()
+                    .id(String.valueOf(++id))
+                    .applicationSide(random.nextInt(3))
+                    .operationUser("user" + random.nextInt(5000))
+                    .operationUserName("操作员" + random.nextInt(5000))
+                    .operationTime(new Date(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                    .ipGeographicAddress("上海市")
+                    .ip("10.21." + random.nextInt(255) + "." + random.nextInt(255))
+                    .successful(random.nextInt(10) > 0)
+                    .remarks(random.nextInt(10) > 0 ? null : "密码错误")
+                    .build();
+            out.write(("{\"index\":{\"_index\":\"export_log_index\",\"_id\":\"" + id + "\"}}\n").getBytes(StandardCharsets.UTF_8));
+            out.write(JSON.toJSONBytes(log));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.elasticsearch.demo;
 
+import com.example.elasticsearch.es.FilterPath;
+import com.example.elasticsearch.es.http.CompressionStats;
+import com.example.elasticsearch.es.http.Gzip;
+import com.example.elasticsearch.es.http.GzipResponseConsumerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.*;
@@ -16,6 +21,18 @@ public class TestESREST {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    private static final CompressionStats STATS = new CompressionStats();
+
+    // 响应按 gzip 传输，客户端解压
+    private static final RequestOptions COMPRESSED;
+
+    static {
+        RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder()
+                .addHeader(HttpHeaders.ACCEPT_ENCODING, Gzip.ENCODING);
+        builder.setHttpAsyncResponseConsumerFactory(new GzipResponseConsumerFactory(GzipResponseConsumerFactory.DEFAULT_BUFFER_LIMIT, STATS));
+        COMPRESSED = builder.build();
+    }
+
     private RestClient restClient;
 
     @Before
@@ -39,14 +56,17 @@ public class TestESREST {
 
     @After
     public void after() throws IOException {
+        System.out.println("压缩统计 -> " + STATS);
         restClient.close();
     }
 
-    // 查询集群状态
+    // 查询集群状态，只取索引状态与节点名，不拉取完整 cluster state
     @Test
     public void testGetInfo() throws IOException {
-        Request request = new Request("GET", "/_cluster/state");
+        Request request = new Request("GET", "/_cluster/state/metadata,nodes");
+        request.addParameter("filter_path", "metadata.indices.*.state,nodes.*.name");
         request.addParameter("pretty", "true");
+        request.setOptions(COMPRESSED);
         Response response = this.restClient.performRequest(request);
 
         System.out.println(response.getStatusLine());
@@ -60,6 +80,7 @@ public class TestESREST {
     public void testCreateData() throws IOException {
 
         Request request = new Request("POST", "/haoke/house");
+        request.addParameter("filter_path", "_id,result");
 
         Map<String, Object> data = new HashMap<>();
         data.put("id", "2001");
@@ -81,6 +102,7 @@ public class TestESREST {
     public void testQueryData() throws IOException {
 
         Request request = new Request("GET", "/haoke/house/G0pfE2gBCKv8opxuRz1y");
+        request.setOptions(COMPRESSED);
 
         Response response = this.restClient.performRequest(request);
 
@@ -95,7 +117,9 @@ public class TestESREST {
         Request request = new Request("POST", "/haoke/house/_search");
         String searchJson = "{\"query\": {\"match\": {\"title\": \"拎包入住\"}}}";
         request.setJsonEntity(searchJson);
+        request.addParameter(FilterPath.PARAMETER, FilterPath.SEARCH.value());
         request.addParameter("pretty", "true");
+        request.setOptions(COMPRESSED);
 
         Response response = this.restClient.performRequest(request);
 
@@ -0,0 +1,33 @@
+package com.example.elasticsearch.demo;
+
+import com.alibaba.fastjson.JSON;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.entity.DocBean;
+import com.example.elasticsearch.es.mapping.MappingAdvice;
+import com.example.elasticsearch.es.mapping.MappingAdvisor;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * 输出实体类的精简 mapping / 索引模板及每个字段的取舍说明，
+ * 可与 GET /{index}/_mapping 的动态 mapping 对比
+ */
+public class TestMappingAdvisor {
+
+    @Test
+    public void testApplicationLoginLog() {
+        MappingAdvice advice = MappingAdvisor.advise(ApplicationLoginLog.class);
+        advice.getNotes().forEach(System.out::println);
+        System.out.println(JSON.toJSONString(MappingAdvisor.template(ApplicationLoginLog.class,
+                Collections.singletonList("export_log-*"), null), true));
+    }
+
+    @Test
+    public void testDocBean() {
+        MappingAdvice advice = MappingAdvisor.advise(DocBean.class);
+        advice.getNotes().forEach(System.out::println);
+        System.out.println(JSON.toJSONString(MappingAdvisor.template(DocBean.class,
+                Collections.singletonList("ems*"), null), true));
+    }
+}
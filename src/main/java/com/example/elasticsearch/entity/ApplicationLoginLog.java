@@ -1,33 +1,40 @@
 package com.example.elasticsearch.entity;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
+import com.example.elasticsearch.annotation.EsContains;
+import com.example.elasticsearch.annotation.EsIds;
+import com.example.elasticsearch.annotation.EsRange;
+import com.example.elasticsearch.annotation.EsRecentDays;
+import com.example.elasticsearch.annotation.EsSortable;
+import com.example.elasticsearch.annotation.EsTerm;
 import com.example.elasticsearch.es.ESWhere;
+import com.example.elasticsearch.es.Groups;
 import com.example.elasticsearch.es.Sorts;
-import com.example.elasticsearch.exception.CustomException;
-import com.example.elasticsearch.utils.Dates;
+import com.example.elasticsearch.es.SubstringQuery;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 import java.util.stream.Stream;
 
-import static com.example.elasticsearch.utils.Dates.Pattern.yyyy_MM_dd_HH_mm_ss;
-
 
 /**
  * 应用端登陆日志 es日志结构
+ * <p>
+ * 查询条件与排序由属性上的 @EsXxx 注解在编译期生成到 {@link ApplicationLoginLogQueries}
  */
 @Data
 @NoArgsConstructor
@@ -37,14 +44,20 @@ public class ApplicationLoginLog {
     /**
      * 主键id
      */
+    @EsIds
     private String id;
     /**
      * 应用端
      */
+    @EsTerm
     private Integer applicationSide;
     /**
-     * 操作用户名
+     * 操作用户名，子字段 operationUserName.ngram 用于子串查询
      */
+    @EsContains(indexedBy = "substringIndices")
+    @MultiField(mainField = @Field(type = FieldType.Keyword),
+            otherFields = @InnerField(suffix = SubstringQuery.SUFFIX, type = FieldType.Text,
+                    analyzer = SubstringQuery.ANALYZER, searchAnalyzer = SubstringQuery.SEARCH_ANALYZER))
     private String operationUserName;
     /**
      * 操作用户
@@ -55,6 +68,7 @@ public class ApplicationLoginLog {
      */
     @JSONField(format = "yyyy-MM-dd HH:mm:ss")
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss",timezone = "GMT+8")
+    @EsSortable
     private Date operationTime;
     /**
      * 登陆地点
@@ -67,6 +81,7 @@ public class ApplicationLoginLog {
     /**
      * 是否操作成功
      */
+    @EsTerm
     private Boolean successful;
     /**
      * 备注（报错信息）
@@ -86,20 +101,30 @@ public class ApplicationLoginLog {
      */
     @Transient
     @JsonIgnore
+    @EsRange(field = "operationTime", op = EsRange.Op.GTE, format = "yyyy-MM-dd HH:mm:ss")
     private Date operationTimeBegin;
     /**
      * 操作时间区间：结束时间时间
      */
     @Transient
     @JsonIgnore
+    @EsRange(field = "operationTime", op = EsRange.Op.LTE, format = "yyyy-MM-dd HH:mm:ss")
     private Date operationTimeEnd;
     /**
      *  最近多少天
      */
     @Transient
     @JsonIgnore
+    @EsRecentDays(field = "@timestamp")
     private Integer recentlyDays ;
 
+    /**
+     * 查询的索引中有 operationUserName.ngram 子字段的索引；为 null 表示都有，其余（迁移前的旧索引）走通配符查询
+     */
+    @Transient
+    @JsonIgnore
+    private Set<String> substringIndices;
+
     /**
      * 排序对象
      */
@@ -109,23 +134,8 @@ public class ApplicationLoginLog {
 
 
     public ESWhere where() {
-        return ESWhere.of()
-                .and(id, () -> QueryBuilders.idsQuery().addIds(id))
-//                .and(hasOperationTimeRange(), () -> QueryBuilders.rangeQuery("operationTime")
-//                        .gt(Objects.isNull(operationTimeBegin) ? null : Dates.of(operationTimeBegin).timestamp().getTime())
-//                        .lt(Objects.isNull(operationTimeEnd) ? null : Dates.of(operationTimeEnd).timestamp().getTime())
-//                )
-                .and(hasOperationTimeRange(), () -> QueryBuilders.rangeQuery("operationTime")
-                        .gte(yyyy_MM_dd_HH_mm_ss.format(operationTimeBegin))
-                        .lte(yyyy_MM_dd_HH_mm_ss.format(operationTimeEnd))
-                )
-                .and(recentlyDays, () -> QueryBuilders.rangeQuery("@timestamp")
-                        .gt(Dates.now().addDay(-recentlyDays).timestamp().getTime())
-                        .lt(Dates.now().timestamp().getTime())
-                )
-                .and(applicationSide, () -> QueryBuilders.termQuery("applicationSide", applicationSide))
-                .and(successful, () -> QueryBuilders.termQuery("successful", successful))
-                .andIfNonBlank(operationUserName, () -> QueryBuilders.wildcardQuery("operationUserName", "*".concat(operationUserName).concat("*")));    }
+        return ApplicationLoginLogQueries.where(this);
+    }
 
 
     /**
@@ -138,7 +148,7 @@ public class ApplicationLoginLog {
     }
 
     /**
-     * 枚举：定义排序字段
+     * 枚举：定义排序字段，名称与 @EsSortable 属性一致
      */
     public enum OrderBy implements Sorts.ISort {
         // 按 id 排序可替代按创建时间排序
@@ -187,20 +197,30 @@ public class ApplicationLoginLog {
         }
     }
 
-    private List<Sorts> parseSorts() {
-        try {
-            return Objects.isNull(sorts) ? null : sorts.stream().map(by -> OrderBy.valueOf(by.getName()).get(by.getDirection())).collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new CustomException("排序字段可选范围：".concat(JSON.toJSONString(OrderBy.names())));
+    /**
+     * 枚举：定义聚合、折叠字段
+     */
+    public enum GroupBy implements Groups.IGroup {
+        operationUser("operationUser"),
+        operationUserName("operationUserName"),
+        ;
+        /**
+         * es 字段名称
+         */
+        public final String filedName;
+
+        GroupBy(String filedName) {
+            this.filedName = filedName;
+        }
+
+        @Override
+        public String getFieldName() {
+            return filedName;
         }
     }
 
     public List<SortBuilder<?>> buildEsSort() {
-        List<Sorts> sorts = parseSorts();
-        if (sorts != null) {
-            return sorts.stream().map(Sorts::esSort).collect(Collectors.toList());
-        }
-        return Collections.emptyList();
+        return ApplicationLoginLogQueries.sorts(sorts);
     }
 
 
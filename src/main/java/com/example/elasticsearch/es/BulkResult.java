@@ -0,0 +1,64 @@
+package com.example.elasticsearch.es;
+
+import com.alibaba.fastjson.JSON;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量写入结果
+ *
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+@Accessors(chain = true)
+public class BulkResult {
+    /**
+     * 提交的文档数
+     */
+    private int total;
+    /**
+     * 服务端耗时（毫秒）
+     */
+    private long took;
+    /**
+     * 写入失败的文档
+     */
+    @Builder.Default
+    private List<Failure> failures = new ArrayList<>();
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @Data
+    public static class Failure {
+        /**
+         * 文档 id，由 ES 生成 id 的文档为 null
+         */
+        private String id;
+        /**
+         * HTTP 状态码，429 表示集群拒绝
+         */
+        private int status;
+        /**
+         * 失败原因
+         */
+        private String reason;
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
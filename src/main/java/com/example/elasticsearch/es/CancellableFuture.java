@@ -0,0 +1,101 @@
+package com.example.elasticsearch.es;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 可取消的 ES 异步调用结果，取消时同时中止客户端请求与服务端任务
+ *
+ * @param <T> 泛型
+ */
+public class CancellableFuture<T> extends CompletableFuture<T> {
+    /**
+     * 请求标识，对应请求头 X-Opaque-Id，用于定位服务端任务
+     */
+    private final String opaqueId;
+    /**
+     * 取消时执行的动作
+     */
+    private volatile Runnable onCancel;
+    /**
+     * 取消动作是否已执行，取消与设置取消动作并发时保证只执行一次
+     */
+    private final AtomicBoolean cancelRan = new AtomicBoolean();
+
+    public CancellableFuture(String opaqueId) {
+        this.opaqueId = opaqueId;
+    }
+
+    public String getOpaqueId() {
+        return opaqueId;
+    }
+
+    /**
+     * 设置取消动作，若已被取消则立即执行
+     *
+     * @param onCancel {@link Runnable}
+     * @return {@link CancellableFuture}
+     */
+    public CancellableFuture<T> onCancel(Runnable onCancel) {
+        this.onCancel = onCancel;
+        if (isCancelled()) {
+            runOnCancel();
+        }
+        return this;
+    }
+
+    /**
+     * 转换结果，转换后的结果被取消时同样取消本次调用
+     *
+     * @param mapper {@link Function}
+     * @param <U>    泛型
+     * @return {@link CancellableFuture}
+     */
+    public <U> CancellableFuture<U> map(Function<? super T, ? extends U> mapper) {
+        CancellableFuture<U> mapped = new CancellableFuture<>(opaqueId);
+        whenComplete((value, e) -> {
+            if (Objects.nonNull(e)) {
+                mapped.completeExceptionally(e);
+                return;
+            }
+            try {
+                mapped.complete(mapper.apply(value));
+            } catch (RuntimeException ex) {
+                mapped.completeExceptionally(ex);
+            }
+        });
+        return mapped.onCancel(() -> cancel(true));
+    }
+
+    /**
+     * 以指定异常结束并执行取消动作，如截止时间已到时中止请求
+     *
+     * @param cause {@link Throwable}
+     * @return 本次调用是否由此结束
+     */
+    public boolean abort(Throwable cause) {
+        boolean aborted = completeExceptionally(cause);
+        if (aborted) {
+            runOnCancel();
+        }
+        return aborted;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            runOnCancel();
+        }
+        return cancelled;
+    }
+
+    private void runOnCancel() {
+        Runnable action = onCancel;
+        if (Objects.nonNull(action) && cancelRan.compareAndSet(false, true)) {
+            action.run();
+        }
+    }
+}
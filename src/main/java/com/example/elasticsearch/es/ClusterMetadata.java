@@ -0,0 +1,129 @@
+package com.example.elasticsearch.es;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 集群元数据快照（不可变）：索引、别名、字段类型、节点列表
+ *
+ */
+public final class ClusterMetadata {
+    /**
+     * 尚未加载时的空快照
+     */
+    public static final ClusterMetadata EMPTY = new ClusterMetadata(-1, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+
+    /**
+     * cluster state 版本号
+     */
+    private final long version;
+    /**
+     * 索引名 -> 索引元数据
+     */
+    private final Map<String, IndexMetadata> indices;
+    /**
+     * 别名 -> 索引名
+     */
+    private final Map<String, Set<String>> aliases;
+    /**
+     * 节点名
+     */
+    private final List<String> nodes;
+
+    public ClusterMetadata(long version, Map<String, IndexMetadata> indices, Map<String, Set<String>> aliases, List<String> nodes) {
+        this.version = version;
+        this.indices = Collections.unmodifiableMap(indices);
+        this.aliases = Collections.unmodifiableMap(aliases);
+        this.nodes = Collections.unmodifiableList(nodes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, IndexMetadata> getIndices() {
+        return indices;
+    }
+
+    public Map<String, Set<String>> getAliases() {
+        return aliases;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 单个索引的元数据
+     */
+    public static final class IndexMetadata {
+        private final String name;
+        /**
+         * open / close
+         */
+        private final String state;
+        /**
+         * mapping 版本号，变化时才重新拉取 mapping
+         */
+        private final long mappingVersion;
+        private final Set<String> aliases;
+        /**
+         * 字段路径（含多字段，如 name.keyword） -> 字段类型
+         */
+        private final Map<String, String> fieldTypes;
+        /**
+         * 索引排序字段（index.sort.field），未配置时为空
+         */
+        private final List<String> sortFields;
+        /**
+         * 索引排序方向（index.sort.order），与 sortFields 一一对应
+         */
+        private final List<String> sortOrders;
+
+        public IndexMetadata(String name, String state, long mappingVersion, Set<String> aliases, Map<String, String> fieldTypes,
+                             List<String> sortFields, List<String> sortOrders) {
+            this.name = name;
+            this.state = state;
+            this.mappingVersion = mappingVersion;
+            this.aliases = Collections.unmodifiableSet(aliases);
+            this.fieldTypes = Collections.unmodifiableMap(fieldTypes);
+            this.sortFields = Collections.unmodifiableList(sortFields);
+            this.sortOrders = Collections.unmodifiableList(sortOrders);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public boolean isOpen() {
+            return !Objects.equals("close", state);
+        }
+
+        public long getMappingVersion() {
+            return mappingVersion;
+        }
+
+        public Set<String> getAliases() {
+            return aliases;
+        }
+
+        public Map<String, String> getFieldTypes() {
+            return fieldTypes;
+        }
+
+        public List<String> getSortFields() {
+            return sortFields;
+        }
+
+        public List<String> getSortOrders() {
+            return sortOrders;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.elasticsearch.es;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 字段折叠（collapse）后的一组结果
+ *
+ * @param <T> 泛型
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class Collapsed<T> {
+    /**
+     * 组内按排序的第一条，如每个用户最近一次登录
+     */
+    private T hit;
+    /**
+     * 组内文档总数，未请求 inner_hits 时为 -1
+     */
+    @Builder.Default
+    private long total = -1;
+    /**
+     * 组内按排序的前 N 条（inner_hits）
+     */
+    @Builder.Default
+    private List<T> innerHits = Collections.emptyList();
+}
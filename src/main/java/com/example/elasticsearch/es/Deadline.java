@@ -0,0 +1,140 @@
+package com.example.elasticsearch.es;
+
+import com.example.elasticsearch.exception.DeadlineExceededException;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求截止时间，随 HTTP 请求进入，并贯穿整个 ES 调用链路
+ *
+ */
+public final class Deadline {
+
+    /**
+     * 当前线程绑定的截止时间
+     */
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 截止时刻，{@link System#nanoTime()}
+     */
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 从当前时刻起指定毫秒数后截止
+     *
+     * @param millis long 超时预算（毫秒）
+     * @return {@link Deadline}
+     */
+    public static Deadline afterMillis(final long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    /**
+     * 绑定截止时间到当前线程
+     *
+     * @param deadline {@link Deadline}
+     */
+    public static void bind(final Deadline deadline) {
+        Objects.requireNonNull(deadline, "参数【deadline】是必须的");
+        CURRENT.set(deadline);
+    }
+
+    /**
+     * 获取当前线程绑定的截止时间，未绑定时返回 null
+     *
+     * @return {@link Deadline}
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 解除当前线程绑定的截止时间
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 在当前线程绑定的截止时间与操作默认预算之间取更早者
+     *
+     * @param budgetMillis long 操作默认预算（毫秒）
+     * @return {@link Deadline}
+     */
+    public static Deadline resolve(final long budgetMillis) {
+        return afterMillis(budgetMillis).min(current());
+    }
+
+    /**
+     * 取两个截止时间中更早的一个
+     *
+     * @param other {@link Deadline} 可以为 null
+     * @return {@link Deadline}
+     */
+    public Deadline min(final Deadline other) {
+        if (Objects.isNull(other)) {
+            return this;
+        }
+        return other.deadlineNanos - deadlineNanos < 0 ? other : this;
+    }
+
+    /**
+     * 剩余预算（毫秒），已超时返回 0
+     *
+     * @return long
+     */
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * 剩余预算
+     *
+     * @return {@link TimeValue}
+     */
+    public TimeValue remaining() {
+        return TimeValue.timeValueMillis(remainingMillis());
+    }
+
+    /**
+     * 交给 ES 服务端的超时：从剩余预算中预留传输与解析响应的时间，
+     * 服务端先于客户端超时，才能返回部分结果而不是被客户端直接断开
+     *
+     * @param marginMillis long 预留时间（毫秒），不少于剩余预算的 10%，且最多预留一半
+     * @return {@link TimeValue}
+     */
+    public TimeValue serverTimeout(final long marginMillis) {
+        long remaining = remainingMillis();
+        long margin = Math.max(marginMillis, remaining / 10);
+        return TimeValue.timeValueMillis(Math.max(remaining - margin, remaining / 2));
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    /**
+     * 预算已耗尽时快速失败
+     *
+     * @param operation {@link EsOperation} 当前操作
+     * @return {@link Deadline}
+     */
+    public Deadline check(final EsOperation operation) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("请求超时预算已耗尽：".concat(operation.name()));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + remainingMillis() + "ms}";
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.elasticsearch.es;
+
+/**
+ * 当前 ES 调用方标识，用于按调用方进行准入控制
+ *
+ */
+public final class EsCaller {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private EsCaller() {
+    }
+
+    /**
+     * 绑定调用方到当前线程
+     *
+     * @param caller 调用方标识
+     */
+    public static void bind(final String caller) {
+        CURRENT.set(caller);
+    }
+
+    /**
+     * 获取当前线程绑定的调用方，未绑定时返回 null
+     *
+     * @return 调用方标识
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
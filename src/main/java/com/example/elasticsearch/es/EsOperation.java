@@ -0,0 +1,30 @@
+package com.example.elasticsearch.es;
+
+/**
+ * ES 操作类型，不同类型使用不同的默认超时预算
+ *
+ */
+public enum EsOperation {
+    SEARCH("交互式查询"), EXPORT("数据导出"), BULK("批量写入");
+    /**
+     * 枚举属性说明
+     */
+    final String comment;
+
+    EsOperation(String comment) {
+        this.comment = comment;
+    }
+
+    /**
+     * 转换为 {@link Item} 对象
+     *
+     * @return {@link Item}
+     */
+    public Item getObject() {
+        return Item.builder()
+                .key(this.name())
+                .value(this.ordinal())
+                .comment(this.comment)
+                .build();
+    }
+}
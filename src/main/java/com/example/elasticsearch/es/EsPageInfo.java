@@ -0,0 +1,19 @@
+package com.example.elasticsearch.es;
+
+import com.github.pagehelper.PageInfo;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 带命中总数关系的分页结果：排序与索引排序一致时总数只统计到上限，此时 total 为下限值
+ *
+ * @param <T> 泛型
+ */
+@Getter
+@Setter
+public class EsPageInfo<T> extends PageInfo<T> {
+    /**
+     * 命中总数关系：eq 精确值，gte 下限（总页数不可据此计算）；未统计总数时为 null
+     */
+    private String totalRelation;
+}
@@ -0,0 +1,67 @@
+package com.example.elasticsearch.es;
+
+import org.elasticsearch.client.Request;
+
+/**
+ * 各类 ES 操作实际读取的响应字段，通过 filter_path 参数让服务端只返回这些字段，
+ * 减少传输字节数与客户端解析耗时
+ *
+ */
+public enum FilterPath {
+    /**
+     * _search：只读取总数、超时标记与 _source，不返回 _shards、_index、_type、_id、_score
+     */
+    SEARCH("查询", "took", "timed_out", "hits.total", "hits.hits._source"),
+    /**
+     * _bulk：只读取每条结果的状态码与失败原因，不返回 _id、_version、_shards、_seq_no 等；
+     * filter_path 会丢弃没有匹配字段的数组元素，每条保留状态码以便按位置对应到提交的文档
+     */
+    BULK("批量写入", "took", "errors", "items.*.status", "items.*.error.type", "items.*.error.reason"),
+    /**
+     * _tasks：只读取任务的请求标识
+     */
+    TASKS("任务列表", "nodes.*.tasks.*.headers.X-Opaque-Id"),
+    ;
+    /**
+     * 请求参数名
+     */
+    public static final String PARAMETER = "filter_path";
+    /**
+     * 枚举属性说明
+     */
+    final String comment;
+    /**
+     * 参数值
+     */
+    final String value;
+
+    FilterPath(String comment, String... paths) {
+        this.comment = comment;
+        this.value = String.join(",", paths);
+    }
+
+    public String value() {
+        return value;
+    }
+
+    /**
+     * 在默认字段之外追加字段
+     *
+     * @param paths 追加的字段
+     * @return 参数值
+     */
+    public String with(String... paths) {
+        return paths.length == 0 ? value : value + "," + String.join(",", paths);
+    }
+
+    /**
+     * 为请求加上 filter_path 参数
+     *
+     * @param request {@link Request}
+     * @return {@link Request}
+     */
+    public Request apply(Request request) {
+        request.addParameter(PARAMETER, value);
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.elasticsearch.es;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个查询指纹的聚合统计
+ *
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class FingerprintStats {
+    /**
+     * 指纹 id
+     */
+    private String fingerprint;
+    /**
+     * 查询索引
+     */
+    private String index;
+    /**
+     * 去掉字面值后的查询结构
+     */
+    private String shape;
+    /**
+     * 执行次数
+     */
+    private long count;
+    /**
+     * 客户端观测总耗时（毫秒）
+     */
+    private double totalMillis;
+    /**
+     * 平均耗时（毫秒）
+     */
+    private double avgMillis;
+    /**
+     * 最大耗时（毫秒）
+     */
+    private double maxMillis;
+    /**
+     * 服务端 took 总和（毫秒）
+     */
+    private long totalTookMillis;
+    /**
+     * 平均返回命中数
+     */
+    private double avgHits;
+    /**
+     * 超过慢查询阈值的次数
+     */
+    private long slowCount;
+}
@@ -0,0 +1,23 @@
+package com.example.elasticsearch.es;
+
+/**
+ * 聚合 / 折叠分组字段
+ *
+ */
+public final class Groups {
+
+    private Groups() {
+    }
+
+    /**
+     * GroupBy 枚举规范接口：声明实体中用于聚合、折叠的字段，这些字段需保留 doc_values
+     */
+    public interface IGroup {
+        /**
+         * es 字段名称
+         *
+         * @return String
+         */
+        String getFieldName();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.elasticsearch.es;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 查询指纹：去掉请求体中的字面值（查询值、分页、超时），只保留查询结构，
+ * 结构相同的查询（同一 ESWhere 条件组合）得到相同指纹
+ *
+ */
+public final class QueryFingerprint {
+    /**
+     * 字面值占位符
+     */
+    private static final String PLACEHOLDER = "?";
+    /**
+     * 保留取值的字段：排序方向影响执行方式
+     */
+    private static final String ORDER = "order";
+
+    /**
+     * 指纹 id
+     */
+    private final String id;
+    /**
+     * 去掉字面值后的查询结构
+     */
+    private final String shape;
+
+    private QueryFingerprint(String id, String shape) {
+        this.id = id;
+        this.shape = shape;
+    }
+
+    /**
+     * 计算请求体的指纹
+     *
+     * @param source 请求体 JSON
+     * @return {@link QueryFingerprint}
+     */
+    public static QueryFingerprint of(String source) {
+        Object canonical = strip(JSON.parseObject(source, Feature.OrderedField));
+        String shape = JSON.toJSONString(canonical);
+        return new QueryFingerprint(Hashing.murmur3_128().hashString(shape, StandardCharsets.UTF_8).toString().substring(0, 16), shape);
+    }
+
+    private static Object strip(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject stripped = new JSONObject(true);
+            for (Map.Entry<String, Object> entry : ((JSONObject) value).entrySet()) {
+                stripped.put(entry.getKey(), ORDER.equals(entry.getKey()) && !(entry.getValue() instanceof JSONObject)
+                        ? entry.getValue() : strip(entry.getValue()));
+            }
+            return stripped;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray stripped = new JSONArray(array.size());
+            boolean scalars = true;
+            for (Object element : array) {
+                scalars &= !(element instanceof JSONObject || element instanceof JSONArray);
+            }
+            if (scalars) {
+                // 标量数组（terms、ids 等）只保留结构，不区分元素个数
+                stripped.add(PLACEHOLDER);
+                return stripped;
+            }
+            for (Object element : array) {
+                stripped.add(strip(element));
+            }
+            return stripped;
+        }
+        return Objects.isNull(value) ? null : PLACEHOLDER;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
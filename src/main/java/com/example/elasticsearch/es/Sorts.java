@@ -111,7 +111,7 @@ public class Sorts implements Serializable {
         return Sorts.builder()
                 .esSort(SortBuilders
                         .fieldSort(sort.getFieldName())
-                        .order(SortOrder.DESC)
+                        .order(SortOrder.ASC)
                 )
                 .build();
     }
@@ -0,0 +1,163 @@
+package com.example.elasticsearch.es;
+
+import com.example.elasticsearch.utils.Maps;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 子串查询：用 n-gram 子字段代替 *x* 前导通配符查询（前导通配符需遍历整个词典）
+ * <ul>
+ *     <li>关键词长度不超过 {@link #MAX_GRAM}：本身就是一个 gram，term 查询即为精确结果</li>
+ *     <li>更长的关键词：所有重叠的 {@link #MAX_GRAM} 长度 gram 同时命中得到候选文档，
+ *     再用脚本在候选文档上读取主字段 doc_values 校验确实包含该子串</li>
+ * </ul>
+ * 匹配不区分大小写；主字段需为开启 doc_values 的 keyword
+ *
+ */
+public final class SubstringQuery {
+    /**
+     * 子字段后缀，如 operationUserName.ngram
+     */
+    public static final String SUFFIX = "ngram";
+    /**
+     * 索引分词器：1 ~ 3 字的所有子串，小写
+     */
+    public static final String ANALYZER = "substring_ngram";
+    /**
+     * 查询分词器：整个关键词小写后作为一个词
+     */
+    public static final String SEARCH_ANALYZER = "substring_keyword";
+    public static final int MIN_GRAM = 1;
+    public static final int MAX_GRAM = 3;
+    private static final String INDEX_FIELD = "_index";
+
+    private static final String VERIFY_SCRIPT = "for (def v : doc[params.field]) { if (v.toLowerCase().contains(params.value)) { return true; } } return false;";
+
+    private SubstringQuery() {
+    }
+
+    /**
+     * 子字段路径
+     *
+     * @param field 主字段
+     * @return String
+     */
+    public static String subfield(String field) {
+        return field + "." + SUFFIX;
+    }
+
+    /**
+     * 分词器配置，需加入使用了 n-gram 子字段的索引 settings
+     *
+     * @return {@link Map}
+     */
+    public static Map<String, Object> analysis() {
+        return Maps.ofSO()
+                .put("index.max_ngram_diff", MAX_GRAM - MIN_GRAM)
+                .put("analysis", Maps.ofSO()
+                        .put("tokenizer", Maps.bySO(ANALYZER, Maps.ofSO()
+                                .put("type", "ngram")
+                                .put("min_gram", MIN_GRAM)
+                                .put("max_gram", MAX_GRAM)
+                                .build()))
+                        .put("analyzer", Maps.ofSO()
+                                .put(ANALYZER, Maps.ofSO()
+                                        .put("type", "custom")
+                                        .put("tokenizer", ANALYZER)
+                                        .put("filter", Collections.singletonList("lowercase"))
+                                        .build())
+                                .put(SEARCH_ANALYZER, Maps.ofSO()
+                                        .put("type", "custom")
+                                        .put("tokenizer", "keyword")
+                                        .put("filter", Collections.singletonList("lowercase"))
+                                        .build())
+                                .build())
+                        .build())
+                .build();
+    }
+
+    /**
+     * 字段包含子串
+     *
+     * @param field 主字段，需带 n-gram 子字段
+     * @param value 子串
+     * @return {@link QueryBuilder}
+     */
+    public static QueryBuilder contains(String field, String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        int length = lower.codePointCount(0, lower.length());
+        if (length <= MAX_GRAM) {
+            return QueryBuilders.termQuery(subfield(field), lower);
+        }
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + MAX_GRAM <= length; i++) {
+            int begin = lower.offsetByCodePoints(0, i);
+            grams.add(lower.substring(begin, lower.offsetByCodePoints(begin, MAX_GRAM)));
+        }
+        BoolQueryBuilder query = QueryBuilders.boolQuery();
+        grams.forEach(gram -> query.filter(QueryBuilders.termQuery(subfield(field), gram)));
+        // 脚本查询只在其他条件命中的候选文档上执行
+        query.filter(QueryBuilders.scriptQuery(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, VERIFY_SCRIPT,
+                Maps.ofSO().put("field", field).put("value", lower).build())));
+        return query;
+    }
+
+    /**
+     * 字段包含子串，按索引选择查询方式：有 n-gram 子字段的索引走 {@link #contains(String, String)}，
+     * 其余（迁移前的旧索引）走 {@link #wildcard(String, String)}，两个分支以 _index 互斥
+     *
+     * @param field   主字段
+     * @param value   子串
+     * @param indexed 有 n-gram 子字段的具体索引名；为 null 表示全部都有，为空表示都没有
+     * @return {@link QueryBuilder}
+     */
+    public static QueryBuilder contains(String field, String value, Collection<String> indexed) {
+        if (Objects.isNull(indexed)) {
+            return contains(field, value);
+        }
+        if (indexed.isEmpty()) {
+            return wildcard(field, value);
+        }
+        QueryBuilder ngramIndices = QueryBuilders.termsQuery(INDEX_FIELD, indexed);
+        return QueryBuilders.boolQuery()
+                .should(QueryBuilders.boolQuery().filter(ngramIndices).filter(contains(field, value)))
+                .should(QueryBuilders.boolQuery().mustNot(ngramIndices).filter(wildcard(field, value)))
+                .minimumShouldMatch(1);
+    }
+
+    /**
+     * 字段包含子串：前导通配符查询，用于没有 n-gram 子字段的旧索引
+     *
+     * @param field 字段
+     * @param value 子串
+     * @return {@link QueryBuilder}
+     */
+    public static QueryBuilder wildcard(String field, String value) {
+        return QueryBuilders.wildcardQuery(field, "*" + escape(value) + "*");
+    }
+
+    /**
+     * 转义通配符查询中的 * ? \
+     */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '*' || c == '?' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
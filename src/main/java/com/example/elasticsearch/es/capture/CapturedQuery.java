@@ -0,0 +1,61 @@
+package com.example.elasticsearch.es.capture;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 采样记录的一次线上查询，用于回放基准
+ *
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class CapturedQuery {
+    /**
+     * 发起时间（毫秒时间戳）
+     */
+    private long timestamp;
+    /**
+     * 操作类型
+     */
+    private String operation;
+    /**
+     * 查询索引
+     */
+    private String index;
+    /**
+     * 请求体，由 SearchSourceBuilder 生成，包含查询条件、排序与分页
+     */
+    private String source;
+    /**
+     * 页码
+     */
+    private int pageNum;
+    /**
+     * 每页条数
+     */
+    private int pageSize;
+    /**
+     * 服务端耗时（毫秒），失败时为 -1
+     */
+    private long took;
+    /**
+     * 客户端观测耗时（微秒）
+     */
+    private long latencyMicros;
+    /**
+     * 返回的命中数
+     */
+    private int hits;
+    /**
+     * 命中总数
+     */
+    private long total;
+    /**
+     * 失败时的异常类型
+     */
+    private String error;
+}
@@ -0,0 +1,168 @@
+package com.example.elasticsearch.es.capture;
+
+import com.alibaba.fastjson.JSON;
+import com.google.common.io.CountingOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 线上查询采样记录（默认关闭）：按比例采样查询写入滚动的 gzip NDJSON 文件，供回放工具重放对比。
+ * 写文件在后台单线程执行，队列满时丢弃，不阻塞查询线程
+ *
+ */
+@Component
+@Slf4j
+public class QueryRecorder {
+    /**
+     * 文件名前缀
+     */
+    public static final String FILE_PREFIX = "queries-";
+    /**
+     * 文件名后缀
+     */
+    public static final String FILE_SUFFIX = ".ndjson.gz";
+    /**
+     * 每写入多少条刷一次盘，进程异常退出时最多丢失这些记录
+     */
+    private static final int FLUSH_EVERY = 100;
+
+    @Value("${elasticsearch.capture.enabled:false}")
+    private boolean enabled;
+    /**
+     * 采样比例 0-1
+     */
+    @Value("${elasticsearch.capture.sample-rate:0.01}")
+    private double sampleRate;
+    /**
+     * 记录文件目录
+     */
+    @Value("${elasticsearch.capture.dir:capture}")
+    private String dir;
+    /**
+     * 单个文件压缩后的最大字节数，超过后滚动
+     */
+    @Value("${elasticsearch.capture.max-file-bytes:67108864}")
+    private long maxFileBytes;
+    /**
+     * 保留的文件数
+     */
+    @Value("${elasticsearch.capture.max-files:10}")
+    private int maxFiles;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10_000), r -> {
+        Thread thread = new Thread(r, "es-query-recorder");
+        thread.setDaemon(true);
+        return thread;
+    }, (r, executor) -> dropped.incrementAndGet());
+
+    private CountingOutputStream file;
+    private OutputStream out;
+    private int unflushed;
+
+    /**
+     * 本次查询是否采样
+     *
+     * @return boolean
+     */
+    public boolean sample() {
+        return enabled && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * 异步写入一条记录
+     *
+     * @param query {@link CapturedQuery}
+     */
+    public void record(CapturedQuery query) {
+        writer.execute(() -> write(query));
+    }
+
+    /**
+     * 队列满被丢弃的记录数
+     *
+     * @return long
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void write(CapturedQuery query) {
+        try {
+            if (Objects.isNull(out) || file.getCount() >= maxFileBytes) {
+                rotate();
+            }
+            out.write(JSON.toJSONBytes(query));
+            out.write('\n');
+            if (++unflushed >= FLUSH_EVERY) {
+                out.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            log.warn("写入查询记录失败", e);
+            closeQuietly();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeQuietly();
+        File directory = new File(dir);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录：" + directory.getAbsolutePath());
+        }
+        String name = FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + FILE_SUFFIX;
+        file = new CountingOutputStream(new FileOutputStream(new File(directory, name)));
+        // syncFlush：flush 后已写入的记录可被完整解压
+        out = new GZIPOutputStream(file, 64 * 1024, true);
+
+        File[] files = directory.listFiles((d, n) -> n.startsWith(FILE_PREFIX) && n.endsWith(FILE_SUFFIX));
+        if (Objects.nonNull(files) && files.length > maxFiles) {
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            for (int i = 0; i < files.length - maxFiles; i++) {
+                if (!files[i].delete()) {
+                    log.warn("删除过期查询记录失败：{}", files[i]);
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        if (Objects.isNull(out)) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("关闭查询记录文件失败", e);
+        }
+        out = null;
+        unflushed = 0;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        closeQuietly();
+    }
+}
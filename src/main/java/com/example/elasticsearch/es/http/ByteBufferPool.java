@@ -0,0 +1,63 @@
+package com.example.elasticsearch.es.http;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小的堆内缓冲区池，用于接收响应分片，避免每个请求重复分配
+ *
+ */
+public class ByteBufferPool {
+    /**
+     * 默认池：16KB 缓冲区，最多缓存 256 个
+     */
+    public static final ByteBufferPool DEFAULT = new ByteBufferPool(16 * 1024, 256);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 获取一个已清空的缓冲区，池为空时新建
+     *
+     * @return {@link ByteBuffer}
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (Objects.isNull(buffer)) {
+            return ByteBuffer.allocate(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，池已满或大小不符时直接丢弃
+     *
+     * @param buffer {@link ByteBuffer}
+     */
+    public void release(ByteBuffer buffer) {
+        if (Objects.isNull(buffer) || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            pool.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
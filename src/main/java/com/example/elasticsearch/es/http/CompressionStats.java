@@ -0,0 +1,95 @@
+package com.example.elasticsearch.es.http;
+
+import com.alibaba.fastjson.JSON;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * gzip 压缩统计：原始字节数与实际传输字节数
+ *
+ */
+public class CompressionStats {
+    /**
+     * 请求体原始字节数（仅统计超过阈值、实际压缩的请求）
+     */
+    private final AtomicLong requestRawBytes = new AtomicLong();
+    /**
+     * 请求体压缩后字节数
+     */
+    private final AtomicLong requestWireBytes = new AtomicLong();
+    /**
+     * 已压缩的请求数
+     */
+    private final AtomicLong compressedRequests = new AtomicLong();
+    /**
+     * 响应体压缩后字节数（仅统计 gzip 响应）
+     */
+    private final AtomicLong responseWireBytes = new AtomicLong();
+    /**
+     * 响应体解压后字节数
+     */
+    private final AtomicLong responseRawBytes = new AtomicLong();
+    /**
+     * 已解压的响应数
+     */
+    private final AtomicLong compressedResponses = new AtomicLong();
+
+    public void recordRequest(long raw, long wire) {
+        requestRawBytes.addAndGet(raw);
+        requestWireBytes.addAndGet(wire);
+        compressedRequests.incrementAndGet();
+    }
+
+    public void recordResponse(long wire, long raw) {
+        responseWireBytes.addAndGet(wire);
+        responseRawBytes.addAndGet(raw);
+        compressedResponses.incrementAndGet();
+    }
+
+    public long getRequestRawBytes() {
+        return requestRawBytes.get();
+    }
+
+    public long getRequestWireBytes() {
+        return requestWireBytes.get();
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    public long getResponseWireBytes() {
+        return responseWireBytes.get();
+    }
+
+    public long getResponseRawBytes() {
+        return responseRawBytes.get();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * 请求方向节省的字节数
+     *
+     * @return long
+     */
+    public long getRequestBytesSaved() {
+        return getRequestRawBytes() - getRequestWireBytes();
+    }
+
+    /**
+     * 响应方向节省的字节数
+     *
+     * @return long
+     */
+    public long getResponseBytesSaved() {
+        return getResponseRawBytes() - getResponseWireBytes();
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.elasticsearch.es.http;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按大小分级的堆外缓冲区池，用于写入请求体：分级为 4KB 到 1MB 之间 2 的幂。
+ * 请求体直接写入堆外内存，NIO 通道发送时不再复制到临时的堆外缓冲区
+ * <p>
+ * 池中缓存的总字节数有上限，超出后归还的缓冲区直接丢弃，由 GC 回收其堆外内存
+ *
+ */
+public class DirectBufferPool {
+    public static final int MIN_SIZE = 4 * 1024;
+    public static final int MAX_SIZE = 1024 * 1024;
+    /**
+     * 默认池：最多缓存 64MB
+     */
+    public static final DirectBufferPool DEFAULT = new DirectBufferPool(64L * 1024 * 1024);
+
+    private final long maxPooledBytes;
+    private final Queue<ByteBuffer>[] classes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.classes = new Queue[index(MAX_SIZE) + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * 不小于 size 的最小分级，超过最大分级时为最大分级
+     *
+     * @param size 期望大小
+     * @return int
+     */
+    public static int sizeClass(int size) {
+        if (size <= MIN_SIZE) {
+            return MIN_SIZE;
+        }
+        if (size >= MAX_SIZE) {
+            return MAX_SIZE;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int index(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity / MIN_SIZE);
+    }
+
+    /**
+     * 获取一个已清空的缓冲区，对应分级为空时新建
+     *
+     * @param size 期望大小，按 {@link #sizeClass(int)} 取整
+     * @return {@link ByteBuffer}
+     */
+    public ByteBuffer acquire(int size) {
+        int capacity = sizeClass(size);
+        ByteBuffer buffer = classes[index(capacity)].poll();
+        if (Objects.isNull(buffer)) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        pooledBytes.addAndGet(-capacity);
+        hits.increment();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，池已满或不是本池的分级时直接丢弃
+     *
+     * @param buffer {@link ByteBuffer}
+     */
+    public void release(ByteBuffer buffer) {
+        if (Objects.isNull(buffer) || !buffer.isDirect()) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if (capacity < MIN_SIZE || capacity > MAX_SIZE || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) <= maxPooledBytes) {
+            classes[index(capacity)].offer(buffer);
+        } else {
+            pooledBytes.addAndGet(-capacity);
+        }
+    }
+
+    /**
+     * 池中缓存的字节数
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * 从池中取得缓冲区的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 新分配缓冲区的次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.elasticsearch.es.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.elasticsearch.client.RequestOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * ES 请求/响应 gzip 压缩：请求体超过阈值时压缩，响应通过 Accept-Encoding 协商压缩
+ *
+ */
+@Component
+@Slf4j
+public class EsCompression {
+    /**
+     * 是否开启压缩
+     */
+    @Value("${elasticsearch.compression.enabled:true}")
+    private boolean enabled;
+    /**
+     * 请求体压缩阈值（字节），小于阈值时压缩收益低于 CPU 开销
+     */
+    @Value("${elasticsearch.compression.request-threshold-bytes:16384}")
+    private int requestThresholdBytes;
+    /**
+     * 压缩级别 1-9，1 最快
+     */
+    @Value("${elasticsearch.compression.level:1}")
+    private int level;
+
+    private final CompressionStats stats = new CompressionStats();
+
+    private volatile GzipResponseConsumerFactory responseConsumerFactory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompressionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 为请求参数加上 Accept-Encoding 及可解压 gzip 的响应消费者
+     *
+     * @param builder {@link RequestOptions.Builder}
+     * @return {@link RequestOptions.Builder}
+     */
+    public RequestOptions.Builder acceptGzip(RequestOptions.Builder builder) {
+        if (!enabled) {
+            return builder;
+        }
+        if (responseConsumerFactory == null) {
+            responseConsumerFactory = new GzipResponseConsumerFactory(GzipResponseConsumerFactory.DEFAULT_BUFFER_LIMIT, stats);
+        }
+        builder.addHeader(HttpHeaders.ACCEPT_ENCODING, Gzip.ENCODING);
+        builder.setHttpAsyncResponseConsumerFactory(responseConsumerFactory);
+        return builder;
+    }
+
+    /**
+     * 构建请求体，超过阈值时 gzip 压缩
+     *
+     * @param body        byte[] 请求体
+     * @param contentType {@link ContentType}
+     * @return {@link HttpEntity}
+     */
+    public HttpEntity entity(byte[] body, ContentType contentType) throws IOException {
+        if (!enabled || body.length < requestThresholdBytes) {
+            return new NByteArrayEntity(body, contentType);
+        }
+        byte[] compressed = Gzip.compress(body, level);
+        stats.recordRequest(body.length, compressed.length);
+        NByteArrayEntity entity = new NByteArrayEntity(compressed, contentType);
+        entity.setContentEncoding(Gzip.ENCODING);
+        return entity;
+    }
+
+    /**
+     * 构建请求体，超过阈值时 gzip 压缩（压缩结果同样写入池化缓冲区）
+     *
+     * @param body        {@link PooledBody} 请求体，由调用方在收到完整响应后归还，失败时放弃
+     * @param contentType {@link ContentType}
+     * @return {@link HttpEntity}
+     */
+    public HttpEntity entity(PooledBody body, ContentType contentType) throws IOException {
+        if (enabled && body.length() >= requestThresholdBytes) {
+            long raw = body.length();
+            body.gzip(level);
+            stats.recordRequest(raw, body.length());
+        }
+        return body.entity(contentType);
+    }
+}
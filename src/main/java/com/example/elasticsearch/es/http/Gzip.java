@@ -0,0 +1,73 @@
+package com.example.elasticsearch.es.http;
+
+import org.apache.http.ContentTooLongException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 压缩工具
+ *
+ */
+public final class Gzip {
+    public static final String ENCODING = "gzip";
+
+    private Gzip() {
+    }
+
+    /**
+     * 按指定压缩级别压缩
+     *
+     * @param data  byte[] 原始数据
+     * @param level int 压缩级别 1-9，1 最快
+     * @return byte[]
+     */
+    public static byte[] compress(final byte[] data, final int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = output(out, level)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 按指定压缩级别压缩写入目标流
+     *
+     * @param out   {@link OutputStream} 压缩数据写入的流
+     * @param level int 压缩级别 1-9，1 最快
+     * @return {@link GZIPOutputStream}，关闭时写入结尾并关闭目标流
+     */
+    public static GZIPOutputStream output(final OutputStream out, final int level) throws IOException {
+        return new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * 解压，解压后超过上限时抛出异常
+     *
+     * @param in    {@link InputStream} gzip 数据
+     * @param limit int 解压后最大字节数
+     * @return byte[]
+     */
+    public static byte[] decompress(final InputStream in, final int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        try (GZIPInputStream gzip = new GZIPInputStream(in, 8192)) {
+            int n;
+            while ((n = gzip.read(buffer)) != -1) {
+                if (out.size() + n > limit) {
+                    throw new ContentTooLongException("解压后响应体超过上限 [" + limit + "]");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.elasticsearch.es.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.HttpAsyncResponseConsumerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.Objects;
+
+/**
+ * 支持 gzip 响应的消费者工厂：响应体按 gzip 接收，完成后解压并统计节省的字节数
+ *
+ */
+public class GzipResponseConsumerFactory implements HttpAsyncResponseConsumerFactory {
+    /**
+     * 与默认 HeapBufferedResponseConsumerFactory 相同的缓冲上限 100MB
+     */
+    public static final int DEFAULT_BUFFER_LIMIT = 100 * 1024 * 1024;
+
+    private final int bufferLimit;
+    private final CompressionStats stats;
+
+    public GzipResponseConsumerFactory(int bufferLimit, CompressionStats stats) {
+        this.bufferLimit = bufferLimit;
+        this.stats = stats;
+    }
+
+    @Override
+    public HttpAsyncResponseConsumer<HttpResponse> createHttpAsyncResponseConsumer() {
+        return new GzipAwareResponseConsumer(bufferLimit, stats);
+    }
+
+    /**
+     * 判断响应是否为 gzip 编码
+     *
+     * @param response {@link HttpResponse}
+     * @return true gzip
+     */
+    public static boolean isGzip(HttpResponse response) {
+        return Objects.nonNull(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING))
+                && Gzip.ENCODING.equalsIgnoreCase(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue());
+    }
+
+    static class GzipAwareResponseConsumer extends HeapBufferedAsyncResponseConsumer {
+        private final CompressionStats stats;
+
+        GzipAwareResponseConsumer(int bufferLimit, CompressionStats stats) {
+            super(bufferLimit);
+            this.stats = stats;
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) throws Exception {
+            HttpResponse response = super.buildResult(context);
+            HttpEntity entity = response.getEntity();
+            if (Objects.isNull(entity) || !isGzip(response)) {
+                return response;
+            }
+            // chunked 响应没有 Content-Length，先读出压缩数据再解压
+            byte[] wire = EntityUtils.toByteArray(entity);
+            byte[] raw = Gzip.decompress(new ByteArrayInputStream(wire), getBufferLimit());
+            stats.recordResponse(wire.length, raw.length);
+            response.setEntity(new ByteArrayEntity(raw, ContentType.get(entity)));
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.elasticsearch.es.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 写入 {@link DirectBufferPool} 缓冲区链的请求体：容量不足时借出两倍大小的缓冲区追加到链尾，已写入的数据不复制。
+ * 发送时各缓冲区依次直接写入 NIO 通道
+ * <p>
+ * 写入完成后通过 {@link #entity(ContentType)} 发送；收到完整响应后请求体必已发送完毕，此时调用 {@link #release()} 归还全部缓冲区。
+ * 失败、取消或同步调用抛出异常（如线程被中断）时 I/O 线程可能仍在发送，只能调用 {@link #discard()} 放弃缓冲区，
+ * 之后都不能再使用本对象与其实体
+ *
+ */
+public final class PooledBody extends OutputStream {
+    /**
+     * 为 null 时使用堆内缓冲区，不归还
+     */
+    private final DirectBufferPool pool;
+    private final List<ByteBuffer> chunks = new ArrayList<>(4);
+    private ByteBuffer current;
+    private long length;
+    private String contentEncoding;
+
+    /**
+     * @param pool     {@link DirectBufferPool}，为 null 时不使用池
+     * @param sizeHint 预计大小，决定第一个缓冲区的分级
+     */
+    public PooledBody(DirectBufferPool pool, int sizeHint) {
+        this.pool = pool;
+        append(sizeHint);
+    }
+
+    public PooledBody(DirectBufferPool pool) {
+        this(pool, DirectBufferPool.MIN_SIZE);
+    }
+
+    private void append(int size) {
+        current = Objects.isNull(pool) ? ByteBuffer.allocate(DirectBufferPool.sizeClass(size)) : pool.acquire(size);
+        chunks.add(current);
+    }
+
+    @Override
+    public void write(int b) {
+        if (!current.hasRemaining()) {
+            append(current.capacity() * 2);
+        }
+        current.put((byte) b);
+        length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (!current.hasRemaining()) {
+                append(current.capacity() * 2);
+            }
+            int n = Math.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+            length += n;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * 按 gzip 压缩替换当前内容，压缩结果写入新借出的缓冲区，原缓冲区立即归还
+     *
+     * @param level int 压缩级别 1-9，1 最快
+     */
+    public void gzip(int level) throws IOException {
+        PooledBody compressed = new PooledBody(pool, (int) Math.min(length / 4, DirectBufferPool.MAX_SIZE));
+        try (GZIPOutputStream gzip = Gzip.output(compressed, level)) {
+            writeTo(gzip);
+        } catch (IOException | RuntimeException e) {
+            compressed.release();
+            throw e;
+        }
+        release();
+        chunks.addAll(compressed.chunks);
+        current = compressed.current;
+        length = compressed.length;
+        contentEncoding = Gzip.ENCODING;
+    }
+
+    /**
+     * 按顺序写出全部内容
+     *
+     * @param out {@link OutputStream}
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] copy = null;
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer view = (ByteBuffer) chunk.duplicate().flip();
+            if (view.hasArray()) {
+                out.write(view.array(), view.arrayOffset(), view.remaining());
+                continue;
+            }
+            if (Objects.isNull(copy)) {
+                copy = new byte[8192];
+            }
+            while (view.hasRemaining()) {
+                int n = Math.min(copy.length, view.remaining());
+                view.get(copy, 0, n);
+                out.write(copy, 0, n);
+            }
+        }
+    }
+
+    /**
+     * 请求实体，直接引用各缓冲区，不复制；需在写入完成后获取
+     *
+     * @param contentType {@link ContentType}
+     * @return {@link HttpEntity}
+     */
+    public HttpEntity entity(ContentType contentType) {
+        ByteBuffer[] views = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = (ByteBuffer) chunks.get(i).duplicate().flip();
+        }
+        Entity entity = new Entity(views, length);
+        entity.setContentType(contentType.toString());
+        entity.setContentEncoding(contentEncoding);
+        return entity;
+    }
+
+    /**
+     * 归还全部缓冲区，可重复调用
+     */
+    public void release() {
+        if (Objects.nonNull(pool)) {
+            for (ByteBuffer chunk : chunks) {
+                pool.release(chunk);
+            }
+        }
+        chunks.clear();
+        current = null;
+    }
+
+    /**
+     * 放弃全部缓冲区，不归还到池：请求可能仍在发送时使用，堆外内存在实体不再被引用后由 GC 回收；
+     * 之后调用 {@link #release()} 不再有效果
+     */
+    public void discard() {
+        chunks.clear();
+        current = null;
+    }
+
+    public byte[] toByteArray() {
+        ByteBuffer bytes = ByteBuffer.allocate((int) length);
+        for (ByteBuffer chunk : chunks) {
+            bytes.put((ByteBuffer) chunk.duplicate().flip());
+        }
+        return bytes.array();
+    }
+
+    @Override
+    public String toString() {
+        return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 非阻塞发送的实体：通道可写时依次写出各缓冲区，通道写满即返回等待下次可写。
+     * 请求失败在其他节点重试时 {@link #close()} 重置读取位置，内容不变
+     */
+    private static final class Entity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+        private final ByteBuffer[] views;
+        private final long length;
+        private int next;
+
+        private Entity(ByteBuffer[] views, long length) {
+            this.views = views;
+            this.length = length;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            while (next < views.length) {
+                ByteBuffer view = views[next];
+                encoder.write(view);
+                if (view.hasRemaining()) {
+                    return;
+                }
+                next++;
+            }
+            encoder.complete();
+        }
+
+        @Override
+        public void close() {
+            for (ByteBuffer view : views) {
+                view.rewind();
+            }
+            next = 0;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() {
+            ByteBuffer bytes = ByteBuffer.allocate((int) length);
+            for (ByteBuffer view : views) {
+                bytes.put((ByteBuffer) view.duplicate().rewind());
+            }
+            return new ByteArrayInputStream(bytes.array());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] copy = new byte[8192];
+            for (ByteBuffer view : views) {
+                ByteBuffer read = (ByteBuffer) view.duplicate().rewind();
+                while (read.hasRemaining()) {
+                    int n = Math.min(copy.length, read.remaining());
+                    read.get(copy, 0, n);
+                    out.write(copy, 0, n);
+                }
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.elasticsearch.es.http;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 增量解析 _search 响应：响应分片到达即解析，每解析完一个 hits.hits[]._source 立即回调，
+ * 只保留当前 _source 的原始字节，不在堆上缓冲整个响应；profile、aggregations 与每个命中的 inner_hits 整体保留
+ *
+ * @param <T> 泛型
+ */
+public class SearchHitsParser<T> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Class<T> clazz;
+    private final Consumer<T> onHit;
+    private final List<T> hits = new ArrayList<>();
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    /**
+     * 已输入的字节数，即下一段数据的绝对偏移
+     */
+    private long fed;
+    /**
+     * 当前 _source 的原始字节
+     */
+    private byte[] capture = new byte[4096];
+    private int captureLength;
+    /**
+     * 当前 _source 起始绝对偏移，-1 表示不在 _source 中
+     */
+    private long captureStart = -1;
+    private int sourceDepth;
+    /**
+     * 当前捕获的对象
+     */
+    private Capture capturing;
+
+    private long took = -1;
+    private boolean timedOut;
+    private long total = -1;
+    private String totalRelation;
+    private int hitCount;
+    private JSONObject profile;
+    private JSONObject aggregations;
+    /**
+     * 第 i 个命中的 inner_hits，没有时为 null
+     */
+    private final List<JSONObject> innerHits = new ArrayList<>();
+
+    /**
+     * 收集命中结果到 {@link #getHits()}
+     *
+     * @param clazz 响应类型
+     */
+    public SearchHitsParser(Class<T> clazz) {
+        this(clazz, null);
+    }
+
+    /**
+     * 每解析出一个命中结果即回调
+     *
+     * @param clazz 响应类型
+     * @param onHit 命中回调，为 null 时收集到 {@link #getHits()}
+     */
+    public SearchHitsParser(Class<T> clazz, Consumer<T> onHit) {
+        this.clazz = clazz;
+        this.onHit = Objects.isNull(onHit) ? hits::add : onHit;
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 输入一段响应数据并解析出其中完整的 token；返回前数据已全部消费，调用方可复用数组
+     *
+     * @param bytes  byte[]
+     * @param offset int
+     * @param length int
+     */
+    public void feed(byte[] bytes, int offset, int length) throws IOException {
+        long chunkStart = fed;
+        feeder.feedInput(bytes, offset, offset + length);
+        fed += length;
+        if (captureStart >= 0) {
+            append(bytes, offset, length);
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token, bytes, offset, length, chunkStart);
+        }
+    }
+
+    /**
+     * 响应结束
+     */
+    public void endOfInput() throws IOException {
+        feeder.endOfInput();
+        while (parser.nextToken() != null) {
+            // 消费剩余 token，校验 JSON 完整性
+        }
+    }
+
+    private void handle(JsonToken token, byte[] bytes, int offset, int length, long chunkStart) throws IOException {
+        if (sourceDepth > 0) {
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                sourceDepth++;
+            } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                if (--sourceDepth == 0) {
+                    emit(parser.getCurrentLocation().getByteOffset());
+                }
+            }
+            return;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            JsonStreamContext context = parser.getParsingContext();
+            if (isHitField(context, "_source")) {
+                startCapture(Capture.SOURCE, bytes, offset, length, chunkStart);
+                return;
+            }
+            if (isHitField(context, "inner_hits")) {
+                startCapture(Capture.INNER_HITS, bytes, offset, length, chunkStart);
+                return;
+            }
+            if (isRootField(context, "profile")) {
+                startCapture(Capture.PROFILE, bytes, offset, length, chunkStart);
+                return;
+            }
+            if (isRootField(context, "aggregations")) {
+                startCapture(Capture.AGGREGATIONS, bytes, offset, length, chunkStart);
+                return;
+            }
+        }
+        if (token.isScalarValue()) {
+            JsonStreamContext context = parser.getParsingContext();
+            String name = parser.getCurrentName();
+            if (isRootObject(context)) {
+                if ("took".equals(name)) {
+                    took = parser.getLongValue();
+                } else if ("timed_out".equals(name)) {
+                    timedOut = parser.getBooleanValue();
+                }
+            } else if (isField(context, "hits") && "total".equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+                // rest_total_hits_as_int=true
+                total = parser.getLongValue();
+            } else if (Objects.nonNull(context.getParent()) && isField(context.getParent(), "hits")
+                    && "total".equals(context.getParent().getCurrentName())) {
+                if ("value".equals(name)) {
+                    total = parser.getLongValue();
+                } else if ("relation".equals(name)) {
+                    totalRelation = parser.getText();
+                }
+            }
+        }
+    }
+
+    private void startCapture(Capture capture, byte[] bytes, int offset, int length, long chunkStart) {
+        // START_OBJECT 在读到 '{' 时立即返回，当前位置紧随 '{' 之后
+        int relative = (int) (parser.getCurrentLocation().getByteOffset() - 1 - chunkStart);
+        while (relative > 0 && bytes[offset + relative] != '{') {
+            relative--;
+        }
+        sourceDepth = 1;
+        capturing = capture;
+        captureStart = chunkStart + relative;
+        captureLength = 0;
+        append(bytes, offset + relative, length - relative);
+    }
+
+    /**
+     * 根对象 -> name
+     */
+    private static boolean isRootField(JsonStreamContext context, String name) {
+        JsonStreamContext parent = context.getParent();
+        return isRootObject(parent) && name.equals(parent.getCurrentName());
+    }
+
+    /**
+     * 根对象 -> hits -> hits[] -> {} -> name
+     */
+    private static boolean isHitField(JsonStreamContext context, String name) {
+        JsonStreamContext hit = context.getParent();
+        if (Objects.isNull(hit) || !hit.inObject() || !name.equals(hit.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext array = hit.getParent();
+        return Objects.nonNull(array) && array.inArray()
+                && isField(array.getParent(), "hits") && "hits".equals(array.getParent().getCurrentName());
+    }
+
+    /**
+     * context 为根对象下名为 name 的对象中的字段
+     */
+    private static boolean isField(JsonStreamContext context, String name) {
+        if (Objects.isNull(context) || !context.inObject()) {
+            return false;
+        }
+        JsonStreamContext parent = context.getParent();
+        return isRootObject(parent) && name.equals(parent.getCurrentName());
+    }
+
+    private static boolean isRootObject(JsonStreamContext context) {
+        return Objects.nonNull(context) && context.inObject() && Objects.nonNull(context.getParent()) && context.getParent().inRoot();
+    }
+
+    private void emit(long endOffset) {
+        int length = (int) Math.min(captureLength, endOffset - captureStart);
+        while (length < captureLength && capture[length - 1] != '}') {
+            length++;
+        }
+        captureStart = -1;
+        switch (capturing) {
+            case PROFILE:
+                profile = JSON.parseObject(capture, 0, length, decoder, JSONObject.class);
+                return;
+            case AGGREGATIONS:
+                aggregations = JSON.parseObject(capture, 0, length, decoder, JSONObject.class);
+                return;
+            case INNER_HITS:
+                // inner_hits 在 _source 之后输出，属于最近一个命中
+                if (hitCount > 0) {
+                    while (innerHits.size() < hitCount) {
+                        innerHits.add(null);
+                    }
+                    innerHits.set(hitCount - 1, JSON.parseObject(capture, 0, length, decoder, JSONObject.class));
+                }
+                return;
+            default:
+                break;
+        }
+        hitCount++;
+        onHit.accept(JSON.parseObject(capture, 0, length, decoder, clazz));
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (captureLength + length > capture.length) {
+            capture = Arrays.copyOf(capture, Math.max(capture.length * 2, captureLength + length));
+        }
+        System.arraycopy(bytes, offset, capture, captureLength, length);
+        captureLength += length;
+    }
+
+    public long getTook() {
+        return took;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * 命中总数，响应中未包含时返回 -1
+     *
+     * @return long
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 命中总数关系：eq 精确值，gte 下限
+     *
+     * @return String
+     */
+    public String getTotalRelation() {
+        return totalRelation;
+    }
+
+    /**
+     * 未指定回调时收集到的命中结果
+     *
+     * @return {@link List}
+     */
+    public List<T> getHits() {
+        return hits;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 请求设置 profile: true 时的 profile 结果，否则返回 null
+     *
+     * @return {@link JSONObject}
+     */
+    public JSONObject getProfile() {
+        return profile;
+    }
+
+    /**
+     * 响应中的 aggregations，没有时返回 null
+     *
+     * @return {@link JSONObject}
+     */
+    public JSONObject getAggregations() {
+        return aggregations;
+    }
+
+    /**
+     * 第 i 个命中的 inner_hits（按名称），没有时返回 null
+     *
+     * @param i 命中序号
+     * @return {@link JSONObject}
+     */
+    public JSONObject getInnerHits(int i) {
+        return i < innerHits.size() ? innerHits.get(i) : null;
+    }
+
+    /**
+     * 已解析的响应字节数
+     *
+     * @return long
+     */
+    public long getBytes() {
+        return fed;
+    }
+
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private enum Capture {
+        SOURCE, PROFILE, AGGREGATIONS, INNER_HITS
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.elasticsearch.es.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * 增量 gzip 解压：数据分片到达即解压，不需要缓冲完整响应
+ *
+ */
+final class StreamingGunzip {
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * 解压输出回调
+     */
+    interface Sink {
+        void accept(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] out;
+    /**
+     * 头部未完整到达前暂存头部字节
+     */
+    private ByteArrayOutputStream header = new ByteArrayOutputStream(32);
+    private long inflated;
+
+    StreamingGunzip(int outputBufferSize) {
+        this.out = new byte[outputBufferSize];
+    }
+
+    /**
+     * 输入一段压缩数据，解压结果写入 sink；返回前输入数据已全部消费，调用方可复用输入数组
+     */
+    void feed(byte[] bytes, int offset, int length, Sink sink) throws IOException {
+        if (header != null) {
+            header.write(bytes, offset, length);
+            byte[] buffered = header.toByteArray();
+            int headerLength = headerLength(buffered);
+            if (headerLength < 0) {
+                return;
+            }
+            header = null;
+            inflate(buffered, headerLength, buffered.length - headerLength, sink);
+            return;
+        }
+        inflate(bytes, offset, length, sink);
+    }
+
+    private void inflate(byte[] bytes, int offset, int length, Sink sink) throws IOException {
+        if (inflater.finished() || length == 0) {
+            // 已到达 deflate 结尾，剩余为 CRC32 与长度尾部
+            return;
+        }
+        inflater.setInput(bytes, offset, length);
+        try {
+            while (true) {
+                int n = inflater.inflate(out);
+                if (n > 0) {
+                    inflated += n;
+                    sink.accept(out, 0, n);
+                } else if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    /**
+     * 解析 gzip 头部长度，数据不足时返回 -1
+     */
+    private static int headerLength(byte[] b) throws ZipException {
+        if (b.length < 10) {
+            return -1;
+        }
+        if ((b[0] & 0xff) != 0x1f || (b[1] & 0xff) != 0x8b || b[2] != 8) {
+            throw new ZipException("不是 gzip 格式");
+        }
+        int flags = b[3] & 0xff;
+        int pos = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (b.length < pos + 2) {
+                return -1;
+            }
+            pos += 2 + ((b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(b, pos);
+        }
+        if ((flags & FCOMMENT) != 0 && pos >= 0) {
+            pos = skipZeroTerminated(b, pos);
+        }
+        if ((flags & FHCRC) != 0 && pos >= 0) {
+            pos += 2;
+        }
+        return pos < 0 || pos > b.length ? -1 : pos;
+    }
+
+    private static int skipZeroTerminated(byte[] b, int pos) {
+        for (int i = pos; i < b.length; i++) {
+            if (b[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    long getInflated() {
+        return inflated;
+    }
+
+    void end() {
+        inflater.end();
+    }
+}
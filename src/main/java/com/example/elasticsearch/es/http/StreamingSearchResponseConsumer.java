@@ -0,0 +1,154 @@
+package com.example.elasticsearch.es.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * 流式 _search 响应消费者：响应体分片写入池化缓冲区后直接交给 {@link SearchHitsParser} 增量解析，
+ * 命中结果边到达边回调，不在堆上缓冲完整响应；gzip 响应边接收边解压。
+ * 非 2xx 响应仍完整缓冲，交给 RestClient 构造 ResponseException
+ *
+ * @param <T> 泛型
+ */
+public class StreamingSearchResponseConsumer<T> extends AbstractAsyncResponseConsumer<HttpResponse> {
+    /**
+     * 错误响应体缓冲上限
+     */
+    private static final int ERROR_BODY_LIMIT = 10 * 1024 * 1024;
+
+    private final SearchHitsParser<T> parser;
+    private final ByteBufferPool pool;
+    private final CompressionStats stats;
+
+    private HttpResponse response;
+    private ContentType contentType;
+    private ByteBuffer buffer;
+    private StreamingGunzip gunzip;
+    private ByteArrayOutputStream errorBody;
+    private long wireBytes;
+    /**
+     * 消费者在请求发出时创建
+     */
+    private final long createdNanos = System.nanoTime();
+    private long timeToFirstByteNanos;
+    private long decodeNanos;
+
+    public StreamingSearchResponseConsumer(SearchHitsParser<T> parser, ByteBufferPool pool, CompressionStats stats) {
+        this.parser = parser;
+        this.pool = pool;
+        this.stats = stats;
+    }
+
+    /**
+     * 请求发出到收到响应头的耗时
+     *
+     * @return long 纳秒
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * 解压与解析响应体的耗时
+     *
+     * @return long 纳秒
+     */
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    public SearchHitsParser<T> getParser() {
+        return parser;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.timeToFirstByteNanos = System.nanoTime() - createdNanos;
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        this.contentType = contentType;
+        this.buffer = pool.acquire();
+        if (response.getStatusLine().getStatusCode() >= 300) {
+            errorBody = new ByteArrayOutputStream(1024);
+        } else if (GzipResponseConsumerFactory.isGzip(response)) {
+            gunzip = new StreamingGunzip(pool.getBufferSize());
+        }
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        int n;
+        while ((n = decoder.read(buffer)) > 0) {
+            wireBytes += n;
+            if (Objects.nonNull(errorBody)) {
+                if (errorBody.size() + n > ERROR_BODY_LIMIT) {
+                    throw new IOException("错误响应体超过上限 [" + ERROR_BODY_LIMIT + "]");
+                }
+                errorBody.write(buffer.array(), buffer.arrayOffset(), n);
+            } else {
+                long start = System.nanoTime();
+                if (Objects.nonNull(gunzip)) {
+                    gunzip.feed(buffer.array(), buffer.arrayOffset(), n, parser::feed);
+                } else {
+                    parser.feed(buffer.array(), buffer.arrayOffset(), n);
+                }
+                decodeNanos += System.nanoTime() - start;
+            }
+            buffer.clear();
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) throws Exception {
+        if (Objects.nonNull(errorBody)) {
+            byte[] body = errorBody.toByteArray();
+            if (GzipResponseConsumerFactory.isGzip(response)) {
+                body = Gzip.decompress(new ByteArrayInputStream(body), ERROR_BODY_LIMIT);
+                response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            }
+            response.setEntity(new ByteArrayEntity(body, contentType));
+            return response;
+        }
+        if (Objects.nonNull(buffer)) {
+            long start = System.nanoTime();
+            parser.endOfInput();
+            decodeNanos += System.nanoTime() - start;
+        }
+        if (Objects.nonNull(gunzip)) {
+            stats.recordResponse(wireBytes, gunzip.getInflated());
+        }
+        // 响应体已被解析，结果从 parser 获取
+        response.setEntity(null);
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        pool.release(buffer);
+        buffer = null;
+        if (Objects.nonNull(gunzip)) {
+            gunzip.end();
+        }
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // 关闭解析器失败不影响结果
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.elasticsearch.es.jfr;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一次 ES 客户端调用的记录，字段与 {@link EsCallEvent} 一致；调用方只依赖本类，不直接依赖 jdk.jfr
+ * <p>
+ * 运行时 JDK 支持 JFR（8u262 及以上、11+）时提交为 {@link EsCallEvent}，否则不记录，
+ * shouldCommit() 恒为 false，避免缺少 jdk.jfr.Event 时查询与写入抛出 NoClassDefFoundError
+ *
+ */
+@Slf4j
+public class EsCall {
+    private static final boolean JFR_AVAILABLE = jfrAvailable();
+
+    public String index;
+    public String operation;
+    public String fingerprint;
+    public String opaqueId;
+    public long requestBytes;
+    public long responseBytes;
+    public int hits;
+    public long took;
+    public long admissionWait;
+    public long timeToFirstByte;
+    public long decode;
+    public String error;
+
+    EsCall() {
+    }
+
+    /**
+     * 开始记录一次调用
+     *
+     * @return {@link EsCall}
+     */
+    public static EsCall begin() {
+        return JFR_AVAILABLE ? JfrEsCall.create() : new EsCall();
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            // 加载并初始化事件类，确认 jdk.jfr.Event 可链接
+            Class.forName(EsCallEvent.class.getName(), true, EsCall.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.info("当前 JDK 不支持 JFR，不记录 ES 调用事件：{}", e.toString());
+            return false;
+        }
+    }
+
+    public void end() {
+    }
+
+    /**
+     * 是否需要提交，为 false 时调用方跳过字段计算
+     *
+     * @return boolean
+     */
+    public boolean shouldCommit() {
+        return false;
+    }
+
+    public void commit() {
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.elasticsearch.es.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * ES 客户端调用的 JFR 事件，可与同一录制中的 GC、线程活动对照；未开启录制时 shouldCommit() 为 false，
+ * 调用方据此跳过字段计算，开销仅为一次 begin/end
+ * <p>
+ * 开启：-XX:StartFlightRecording 或 jcmd JFR.start，事件名 com.example.elasticsearch.EsCall
+ *
+ */
+@Name("com.example.elasticsearch.EsCall")
+@Label("Elasticsearch Call")
+@Category({"Application", "Elasticsearch"})
+@Description("ES 客户端调用：索引、操作、查询指纹、字节数、命中数、排队与解码耗时")
+@StackTrace(false)
+public class EsCallEvent extends jdk.jfr.Event {
+
+    @Label("Index")
+    public String index;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Fingerprint")
+    @Description("查询指纹，见 /es/stats/fingerprints")
+    public String fingerprint;
+
+    @Label("Opaque Id")
+    public String opaqueId;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    @Description("解压后的响应体字节数")
+    public long responseBytes;
+
+    @Label("Hits")
+    public int hits;
+
+    @Label("Server Took")
+    @Timespan(Timespan.MILLISECONDS)
+    public long took;
+
+    @Label("Admission Wait")
+    @Timespan
+    @Description("客户端准入控制（限流、并发许可）排队耗时")
+    public long admissionWait;
+
+    @Label("Time To First Byte")
+    @Timespan
+    @Description("请求发出到收到响应头，包含连接池租用连接的等待与服务端处理")
+    public long timeToFirstByte;
+
+    @Label("Decode Time")
+    @Timespan
+    @Description("解压与解析响应体的 CPU 耗时")
+    public long decode;
+
+    @Label("Error")
+    public String error;
+}
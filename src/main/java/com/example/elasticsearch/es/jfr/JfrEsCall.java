@@ -0,0 +1,45 @@
+package com.example.elasticsearch.es.jfr;
+
+/**
+ * 以 {@link EsCallEvent} 提交的调用记录，仅在 JFR 可用时加载
+ *
+ */
+final class JfrEsCall extends EsCall {
+    private final EsCallEvent event = new EsCallEvent();
+
+    private JfrEsCall() {
+    }
+
+    static EsCall create() {
+        JfrEsCall call = new JfrEsCall();
+        call.event.begin();
+        return call;
+    }
+
+    @Override
+    public void end() {
+        event.end();
+    }
+
+    @Override
+    public boolean shouldCommit() {
+        return event.shouldCommit();
+    }
+
+    @Override
+    public void commit() {
+        event.index = index;
+        event.operation = operation;
+        event.fingerprint = fingerprint;
+        event.opaqueId = opaqueId;
+        event.requestBytes = requestBytes;
+        event.responseBytes = responseBytes;
+        event.hits = hits;
+        event.took = took;
+        event.admissionWait = admissionWait;
+        event.timeToFirstByte = timeToFirstByte;
+        event.decode = decode;
+        event.error = error;
+        event.commit();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.elasticsearch.es.lean;
+
+import com.alibaba.fastjson.JSON;
+import com.example.elasticsearch.es.http.DirectBufferPool;
+import com.example.elasticsearch.es.http.PooledBody;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * 请求体写入器：骨架字节直接写入 {@link PooledBody}，参数值先编码到线程内复用的数组再整体写入
+ * <p>
+ * 成功回调中调用 {@link #release()} 归还缓冲区；失败或取消时请求可能仍在发送，调用 {@link #discard()} 放弃缓冲区
+ *
+ */
+public final class LeanBody {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * 编码数组超过该大小时不再保留在线程内
+     */
+    private static final int SCRATCH_LIMIT = 64 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private final PooledBody body;
+    /**
+     * 参数值的编码数组，仅在 {@link #writeValue(Object)} 期间有效
+     */
+    private byte[] bytes;
+    private int length;
+
+    private LeanBody(PooledBody body) {
+        this.body = body;
+    }
+
+    /**
+     * 从池中借出缓冲区
+     *
+     * @param pool {@link DirectBufferPool}
+     * @return {@link LeanBody}
+     */
+    public static LeanBody pooled(DirectBufferPool pool) {
+        return new LeanBody(new PooledBody(pool));
+    }
+
+    /**
+     * 从池中借出缓冲区
+     *
+     * @param pool     {@link DirectBufferPool}
+     * @param sizeHint 预计大小
+     * @return {@link LeanBody}
+     */
+    public static LeanBody pooled(DirectBufferPool pool, int sizeHint) {
+        return new LeanBody(new PooledBody(pool, sizeHint));
+    }
+
+    /**
+     * 不使用池
+     *
+     * @param capacity 初始容量
+     * @return {@link LeanBody}
+     */
+    public static LeanBody unpooled(int capacity) {
+        return new LeanBody(new PooledBody(null, capacity));
+    }
+
+    public void write(byte[] value) {
+        body.write(value, 0, value.length);
+    }
+
+    private void write(byte value) {
+        ensure(1);
+        bytes[length++] = value;
+    }
+
+    /**
+     * 以 fastjson 序列化写入对象，直接编码到缓冲区，不生成中间的 String 或 byte[]
+     *
+     * @param value 对象
+     */
+    public void writeJson(Object value) throws IOException {
+        JSON.writeJSONString(body, value);
+    }
+
+    /**
+     * 以 JSON 值写入
+     *
+     * @param value 参数值
+     */
+    public void writeValue(Object value) {
+        bytes = SCRATCH.get();
+        length = 0;
+        encode(value);
+        body.write(bytes, 0, length);
+        if (bytes.length <= SCRATCH_LIMIT) {
+            SCRATCH.set(bytes);
+        }
+        bytes = null;
+    }
+
+    private void encode(Object value) {
+        if (Objects.isNull(value)) {
+            writeBytes(NULL);
+        } else if (value instanceof CharSequence) {
+            writeString((CharSequence) value);
+        } else if (value instanceof Boolean) {
+            writeBytes((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            writeAscii(value.toString());
+        } else if (value instanceof Date) {
+            writeLong(((Date) value).getTime());
+        } else if (value instanceof Collection) {
+            write((byte) '[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    write((byte) ',');
+                }
+                first = false;
+                encode(element);
+            }
+            write((byte) ']');
+        } else if (value.getClass().isArray()) {
+            write((byte) '[');
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                if (i > 0) {
+                    write((byte) ',');
+                }
+                encode(Array.get(value, i));
+            }
+            write((byte) ']');
+        } else if (value instanceof Enum) {
+            writeString(((Enum<?>) value).name());
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void writeAscii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            bytes[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    /**
+     * 转义后按 UTF-8 写入 JSON 字符串
+     */
+    private void writeString(CharSequence value) {
+        // 每个字符最多 6 字节（\\u00XX 或 3 字节 UTF-8，代理对 2 个字符共 4 字节）
+        ensure(value.length() * 6 + 2);
+        byte[] b = bytes;
+        int p = length;
+        b[p++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    b[p++] = '\\';
+                    b[p++] = (byte) c;
+                } else if (c < 0x20) {
+                    b[p++] = '\\';
+                    b[p++] = 'u';
+                    b[p++] = '0';
+                    b[p++] = '0';
+                    b[p++] = HEX[c >> 4];
+                    b[p++] = HEX[c & 0xF];
+                } else {
+                    b[p++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                b[p++] = (byte) (0xF0 | (codePoint >> 18));
+                b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与 String#getBytes 一致写为 ?
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        length = p;
+    }
+
+    private void writeBytes(byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, length, value.length);
+        length += value.length;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra <= bytes.length) {
+            return;
+        }
+        byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+        System.arraycopy(bytes, 0, grown, 0, length);
+        bytes = grown;
+    }
+
+    public long length() {
+        return body.length();
+    }
+
+    /**
+     * 底层请求体，用于压缩等
+     *
+     * @return {@link PooledBody}
+     */
+    public PooledBody getBody() {
+        return body;
+    }
+
+    /**
+     * 请求实体，直接引用缓冲区，不复制
+     *
+     * @return {@link HttpEntity}
+     */
+    public HttpEntity entity() {
+        return body.entity(ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * 归还缓冲区，只能在收到完整响应后或请求发出前调用，之后不能再使用本对象与其实体
+     */
+    public void release() {
+        body.release();
+    }
+
+    /**
+     * 放弃缓冲区，不归还到池，用于请求失败或取消时（请求可能仍在发送）
+     *
+     * @see PooledBody#discard()
+     */
+    public void discard() {
+        body.discard();
+    }
+
+    @Override
+    public String toString() {
+        return body.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.elasticsearch.es.lean;
+
+import com.example.elasticsearch.es.QueryFingerprint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预序列化的查询骨架：JSON 请求体中值为 "{{name}}" 的位置是参数，其余部分编译时转为 UTF-8 字节，
+ * 执行时按顺序写入骨架字节与参数值，不构建 SearchSourceBuilder，也不经过 XContent
+ * <pre>
+ * LeanQuery query = LeanQuery.compile("{\"from\":\"{{from}}\",\"size\":\"{{size}}\",\"query\":{\"term\":{\"operationUser\":\"{{user}}\"}}}");
+ * query.bind().set("user", user)
+ * </pre>
+ * 适用于结构固定的热点查询；参数可以是 String、Number、Boolean、Date（毫秒时间戳）、集合或数组
+ *
+ */
+public final class LeanQuery {
+    /**
+     * 分页与超时参数，骨架中存在时由 ElasticSearchService 填充
+     */
+    public static final String FROM = "from";
+    public static final String SIZE = "size";
+    public static final String TIMEOUT = "timeout";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\"\\{\\{(\\w+)}}\"");
+
+    private final String skeleton;
+    /**
+     * segments[i] 之后是第 i 个参数，最后一段之后没有参数
+     */
+    private final byte[][] segments;
+    /**
+     * 参数名，按出现顺序
+     */
+    private final String[] slots;
+    private final QueryFingerprint fingerprint;
+
+    private LeanQuery(String skeleton, byte[][] segments, String[] slots) {
+        this.skeleton = skeleton;
+        this.segments = segments;
+        this.slots = slots;
+        this.fingerprint = QueryFingerprint.of(skeleton);
+    }
+
+    /**
+     * 编译查询骨架，通常保存为静态常量
+     *
+     * @param skeleton 请求体 JSON，参数写作 "{{name}}"，同名参数可出现多次
+     * @return {@link LeanQuery}
+     */
+    public static LeanQuery compile(String skeleton) {
+        List<byte[]> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(skeleton);
+        int last = 0;
+        while (matcher.find()) {
+            segments.add(skeleton.substring(last, matcher.start()).getBytes(StandardCharsets.UTF_8));
+            slots.add(matcher.group(1));
+            last = matcher.end();
+        }
+        segments.add(skeleton.substring(last).getBytes(StandardCharsets.UTF_8));
+        return new LeanQuery(skeleton, segments.toArray(new byte[0][]), slots.toArray(new String[0]));
+    }
+
+    /**
+     * 绑定一组参数
+     *
+     * @return {@link Bound}
+     */
+    public Bound bind() {
+        return new Bound(this);
+    }
+
+    /**
+     * 是否有该参数
+     *
+     * @param name 参数名
+     * @return boolean
+     */
+    public boolean has(String name) {
+        for (String slot : slots) {
+            if (slot.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getSkeleton() {
+        return skeleton;
+    }
+
+    /**
+     * 查询指纹，编译时计算一次
+     *
+     * @return {@link QueryFingerprint}
+     */
+    public QueryFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return skeleton;
+    }
+
+    /**
+     * 绑定了参数的查询
+     */
+    public static final class Bound {
+        private final LeanQuery query;
+        /**
+         * 与 slots 一一对应
+         */
+        private final Object[] values;
+        private final boolean[] bound;
+
+        private Bound(LeanQuery query) {
+            this.query = query;
+            this.values = new Object[query.slots.length];
+            this.bound = new boolean[query.slots.length];
+        }
+
+        /**
+         * 设置参数，同名参数的所有位置都会被设置
+         *
+         * @param name  参数名
+         * @param value 参数值，null 写为 JSON null
+         * @return {@link Bound}
+         */
+        public Bound set(String name, Object value) {
+            boolean found = false;
+            for (int i = 0; i < query.slots.length; i++) {
+                if (query.slots[i].equals(name)) {
+                    values[i] = value;
+                    bound[i] = true;
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("查询骨架中没有参数：" + name);
+            }
+            return this;
+        }
+
+        public LeanQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * 写入请求体
+         *
+         * @param body {@link LeanBody}
+         */
+        public void writeTo(LeanBody body) {
+            byte[][] segments = query.segments;
+            for (int i = 0; i < values.length; i++) {
+                if (!bound[i]) {
+                    throw new IllegalStateException("查询骨架参数未设置：" + query.slots[i]);
+                }
+                body.write(segments[i]);
+                body.writeValue(values[i]);
+            }
+            body.write(segments[segments.length - 1]);
+        }
+
+        /**
+         * 请求体 JSON，用于慢查询日志
+         */
+        @Override
+        public String toString() {
+            LeanBody body = LeanBody.unpooled(query.skeleton.length() * 2);
+            try {
+                writeTo(body);
+                return body.toString();
+            } catch (RuntimeException e) {
+                return query.skeleton + " " + Arrays.toString(values);
+            }
+        }
+    }
+}
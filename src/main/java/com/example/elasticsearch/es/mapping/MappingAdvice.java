@@ -0,0 +1,40 @@
+package com.example.elasticsearch.es.mapping;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link MappingAdvisor} 生成结果
+ *
+ */
+@Data
+@AllArgsConstructor
+public class MappingAdvice {
+    /**
+     * mappings 请求体
+     */
+    private JSONObject mappings;
+    /**
+     * 取自 @Document 的索引配置（分片数、副本数）
+     */
+    private Map<String, Object> settings;
+    /**
+     * 字段 -> 用途
+     */
+    private Map<String, Set<MappingAdvisor.Usage>> usages;
+    /**
+     * 每个字段的取舍说明
+     */
+    private List<String> notes;
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this, true);
+    }
+}
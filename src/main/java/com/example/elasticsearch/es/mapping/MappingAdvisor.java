@@ -0,0 +1,448 @@
+package com.example.elasticsearch.es.mapping;
+
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.example.elasticsearch.es.ESWhere;
+import com.example.elasticsearch.es.Groups;
+import com.example.elasticsearch.es.Sorts;
+import com.example.elasticsearch.es.SubstringQuery;
+import com.example.elasticsearch.utils.Maps;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.MatchPhrasePrefixQueryBuilder;
+import org.elasticsearch.index.query.MatchPhraseQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 按实体类生成精简的 mapping 与索引模板：
+ * <ul>
+ *     <li>字段类型取自 {@link Field} 注解或 Java 类型，不依赖动态 mapping（字符串不再生成 text + keyword 多字段）</li>
+ *     <li>查询字段取自实体的 where()：用探测值填充查询参数后解析生成的查询条件</li>
+ *     <li>排序字段取自实体内实现 {@link Sorts.ISort} 的 OrderBy 枚举，聚合字段取自实现 {@link Groups.IGroup} 的 GroupBy 枚举</li>
+ *     <li>不参与查询的字段不建索引，不参与排序、聚合的字段关闭 doc_values，只做精确匹配的数值字段映射为 keyword</li>
+ * </ul>
+ * 实体没有 where() 与 OrderBy 时无法得知字段用途，只按类型生成，不关闭索引与 doc_values
+ *
+ */
+public final class MappingAdvisor {
+    /**
+     * 查询中出现但实体中不存在的 range 字段（如 logstash 生成的 @timestamp）映射为日期
+     */
+    private static final String UNKNOWN_RANGE_TYPE = "date";
+
+    private MappingAdvisor() {
+    }
+
+    /**
+     * 字段用途
+     */
+    public enum Usage {
+        /**
+         * term / terms / wildcard / prefix / exists 精确匹配
+         */
+        EXACT,
+        /**
+         * range 范围查询
+         */
+        RANGE,
+        /**
+         * match 等全文检索
+         */
+        FULL_TEXT,
+        /**
+         * 排序
+         */
+        SORT,
+        /**
+         * 聚合、折叠
+         */
+        AGGREGATE
+    }
+
+    /**
+     * 生成 mapping
+     *
+     * @param entity 实体类
+     * @return {@link MappingAdvice}
+     */
+    public static MappingAdvice advise(Class<?> entity) {
+        Map<String, Set<Usage>> usages = usages(entity);
+        boolean known = !usages.isEmpty();
+        JSONObject properties = new JSONObject(true);
+        List<String> notes = new ArrayList<>();
+
+        for (Class<?> clazz = entity; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                if (skip(field) || properties.containsKey(name(field))) {
+                    continue;
+                }
+                String name = name(field);
+                Set<Usage> usage = usages.getOrDefault(name, EnumSet.noneOf(Usage.class));
+                properties.put(name, property(field, usage, known, notes));
+            }
+        }
+        // 查询或排序中使用、实体中不存在的字段
+        usages.forEach((name, usage) -> {
+            if (!properties.containsKey(name) && !name.startsWith("_")) {
+                String type = usage.contains(Usage.RANGE) || usage.contains(Usage.SORT) ? UNKNOWN_RANGE_TYPE : "keyword";
+                properties.put(name, Maps.ofSO().put("type", type).build());
+                notes.add(String.format("%s: 实体中不存在，按查询用途 %s 映射为 %s", name, usage, type));
+            }
+        });
+
+        JSONObject mappings = new JSONObject(true);
+        // 未声明的字段（如 logstash 附加字段）只保存在 _source 中，不生成 mapping
+        mappings.put("dynamic", false);
+        mappings.put("properties", properties);
+        return new MappingAdvice(mappings, settings(entity), usages, notes);
+    }
+
+    /**
+     * 生成索引模板
+     *
+     * @param entity        实体类
+     * @param indexPatterns 索引名匹配
+     * @param settings      额外的索引配置，覆盖 {@link Document} 注解中的分片与副本数
+     * @return 模板请求体
+     */
+    public static JSONObject template(Class<?> entity, List<String> indexPatterns, Map<String, Object> settings) {
+        MappingAdvice advice = advise(entity);
+        JSONObject merged = new JSONObject(true);
+        merged.putAll(advice.getSettings());
+        if (Objects.nonNull(settings)) {
+            merged.putAll(settings);
+        }
+        JSONObject template = new JSONObject(true);
+        template.put("index_patterns", indexPatterns);
+        template.put("settings", merged);
+        template.put("mappings", advice.getMappings());
+        return template;
+    }
+
+    private static Map<String, Object> property(java.lang.reflect.Field field, Set<Usage> usage, boolean known, List<String> notes) {
+        String name = name(field);
+        String type = type(field, usage);
+        Maps<String, Object> property = Maps.ofSO().put("type", type);
+        Field annotation = annotation(field);
+        if (Objects.nonNull(annotation)) {
+            property.put(StringUtils.isNotBlank(annotation.analyzer()), "analyzer", annotation.analyzer());
+            property.put(StringUtils.isNotBlank(annotation.searchAnalyzer()), "search_analyzer", annotation.searchAnalyzer());
+        }
+        if ("date".equals(type)) {
+            property.put("format", dateFormat(field));
+        }
+        MultiField multiField = field.getAnnotation(MultiField.class);
+        boolean substring = false;
+        if (Objects.nonNull(multiField) && multiField.otherFields().length > 0) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            for (InnerField inner : multiField.otherFields()) {
+                Maps<String, Object> innerProperty = Maps.ofSO()
+                        .put("type", inner.type().name().toLowerCase())
+                        .put(StringUtils.isNotBlank(inner.analyzer()), "analyzer", inner.analyzer())
+                        .put(StringUtils.isNotBlank(inner.searchAnalyzer()), "search_analyzer", inner.searchAnalyzer());
+                if (SubstringQuery.ANALYZER.equals(inner.analyzer())) {
+                    // 子串过滤只需判断是否包含，不评分：不需要 norms、词频与位置
+                    innerProperty.put("norms", false).put("index_options", "docs");
+                    substring = true;
+                }
+                fields.put(inner.suffix(), innerProperty.build());
+            }
+            property.put("fields", fields);
+        }
+        if (!known) {
+            return property.build();
+        }
+
+        boolean queried = usage.contains(Usage.EXACT) || usage.contains(Usage.RANGE) || usage.contains(Usage.FULL_TEXT);
+        // 排序与聚合读取 doc_values
+        boolean sorted = usage.contains(Usage.SORT) || usage.contains(Usage.AGGREGATE);
+        if ("text".equals(type)) {
+            if (!queried) {
+                // 不建索引同时也不生成 norms
+                property.put("index", false);
+                notes.add(String.format("%s: 未参与查询，不建索引", name));
+            }
+            if (sorted) {
+                property.put("fields", Maps.bySO("keyword", Maps.ofSO().put("type", "keyword").put("ignore_above", 256).build()));
+            }
+            return property.build();
+        }
+        if (!queried) {
+            property.put("index", false);
+        }
+        if (!sorted && !substring) {
+            property.put("doc_values", false);
+        }
+        if (substring) {
+            notes.add(String.format("%s: 子串查询走 %s 子字段，长关键词在候选文档上读取 doc_values 校验", name, SubstringQuery.subfield(name)));
+        } else if (!queried && !sorted) {
+            notes.add(String.format("%s: 未参与查询、排序与聚合，只保存在 _source 中", name));
+        } else if (!sorted) {
+            notes.add(String.format("%s: 只用于 %s 查询，关闭 doc_values", name, usage));
+        } else if (!queried) {
+            notes.add(String.format("%s: 只用于 %s，不建索引", name, usage));
+        }
+        if ("keyword".equals(type) && isNumber(field.getType())) {
+            notes.add(String.format("%s: 数值字段只做精确匹配，映射为 keyword（term 查询走倒排索引而非 BKD 树）", name));
+        }
+        return property.build();
+    }
+
+    /**
+     * {@link Field} 注解，或 {@link MultiField} 的主字段注解
+     */
+    private static Field annotation(java.lang.reflect.Field field) {
+        MultiField multiField = field.getAnnotation(MultiField.class);
+        return Objects.nonNull(multiField) ? multiField.mainField() : field.getAnnotation(Field.class);
+    }
+
+    private static String type(java.lang.reflect.Field field, Set<Usage> usage) {
+        Field annotation = annotation(field);
+        if (Objects.nonNull(annotation) && annotation.type() != FieldType.Auto) {
+            return annotation.type().name().toLowerCase();
+        }
+        Class<?> type = field.getType();
+        if (type == String.class || type.isEnum()) {
+            return usage.contains(Usage.FULL_TEXT) ? "text" : "keyword";
+        }
+        if (isNumber(type) && usage.contains(Usage.EXACT) && !usage.contains(Usage.RANGE)
+                && !usage.contains(Usage.SORT) && !usage.contains(Usage.AGGREGATE)) {
+            // 标识类数值：只做 term 查询时 keyword 更快
+            return "keyword";
+        }
+        if (type == Integer.class || type == int.class) {
+            return "integer";
+        }
+        if (type == Long.class || type == long.class) {
+            return "long";
+        }
+        if (type == Short.class || type == short.class) {
+            return "short";
+        }
+        if (type == Byte.class || type == byte.class) {
+            return "byte";
+        }
+        if (type == Double.class || type == double.class || type == BigDecimal.class) {
+            return "double";
+        }
+        if (type == Float.class || type == float.class) {
+            return "float";
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return "boolean";
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return "date";
+        }
+        return "object";
+    }
+
+    private static boolean isNumber(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != boolean.class && type != char.class);
+    }
+
+    /**
+     * 日期格式取自 {@link JSONField} / {@link JsonFormat}，同时接受毫秒时间戳
+     */
+    private static String dateFormat(java.lang.reflect.Field field) {
+        JSONField jsonField = field.getAnnotation(JSONField.class);
+        if (Objects.nonNull(jsonField) && StringUtils.isNotBlank(jsonField.format())) {
+            return jsonField.format() + "||epoch_millis";
+        }
+        JsonFormat jsonFormat = field.getAnnotation(JsonFormat.class);
+        if (Objects.nonNull(jsonFormat) && StringUtils.isNotBlank(jsonFormat.pattern())) {
+            return jsonFormat.pattern() + "||epoch_millis";
+        }
+        return "strict_date_optional_time||epoch_millis";
+    }
+
+    /**
+     * 分片与副本数取自 {@link Document}；有 n-gram 子字段时加入对应的分词器配置
+     */
+    private static Map<String, Object> settings(Class<?> entity) {
+        Maps<String, Object> settings = Maps.ofSO();
+        Document document = entity.getAnnotation(Document.class);
+        if (Objects.nonNull(document)) {
+            settings.put("number_of_shards", document.shards())
+                    .put("number_of_replicas", document.replicas());
+        }
+        for (Class<?> clazz = entity; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                MultiField multiField = field.getAnnotation(MultiField.class);
+                if (Objects.nonNull(multiField) && Arrays.stream(multiField.otherFields())
+                        .anyMatch(inner -> SubstringQuery.ANALYZER.equals(inner.analyzer()))) {
+                    return settings.putAll(SubstringQuery.analysis()).build();
+                }
+            }
+        }
+        return settings.build();
+    }
+
+    /**
+     * 字段用途：where() 生成的查询条件 + OrderBy 排序字段
+     */
+    static Map<String, Set<Usage>> usages(Class<?> entity) {
+        Map<String, Set<Usage>> usages = new LinkedHashMap<>();
+        for (Class<?> nested : entity.getDeclaredClasses()) {
+            if (nested.isEnum() && Sorts.ISort.class.isAssignableFrom(nested)) {
+                for (Object constant : nested.getEnumConstants()) {
+                    usage(usages, ((Sorts.ISort) constant).getFieldName(), Usage.SORT);
+                }
+            }
+            if (nested.isEnum() && Groups.IGroup.class.isAssignableFrom(nested)) {
+                for (Object constant : nested.getEnumConstants()) {
+                    usage(usages, ((Groups.IGroup) constant).getFieldName(), Usage.AGGREGATE);
+                }
+            }
+        }
+        QueryBuilder query = probe(entity);
+        if (Objects.nonNull(query)) {
+            collect(query, usages);
+        }
+        return usages;
+    }
+
+    /**
+     * 所有查询参数填充探测值后调用 where()，得到包含全部可能条件的查询
+     */
+    private static QueryBuilder probe(Class<?> entity) {
+        try {
+            Method where = entity.getMethod("where");
+            if (!ESWhere.class.isAssignableFrom(where.getReturnType())) {
+                return null;
+            }
+            Object instance = entity.getDeclaredConstructor().newInstance();
+            for (Class<?> clazz = entity; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                    Object value = probeValue(field.getType());
+                    if (Objects.nonNull(value) && !Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                        field.setAccessible(true);
+                        field.set(instance, value);
+                    }
+                }
+            }
+            ESWhere condition = (ESWhere) where.invoke(instance);
+            return condition.isEmpty() ? null : condition.build();
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("解析 " + entity.getSimpleName() + ".where() 失败", e);
+        }
+    }
+
+    private static Object probeValue(Class<?> type) {
+        if (type == String.class) {
+            return "probe";
+        }
+        if (type == Integer.class) {
+            return 1;
+        }
+        if (type == Long.class) {
+            return 1L;
+        }
+        if (type == Short.class) {
+            return (short) 1;
+        }
+        if (type == Double.class) {
+            return 1D;
+        }
+        if (type == Float.class) {
+            return 1F;
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (type == Boolean.class) {
+            return Boolean.TRUE;
+        }
+        if (type == Date.class) {
+            return new Date();
+        }
+        return null;
+    }
+
+    private static void collect(QueryBuilder query, Map<String, Set<Usage>> usages) {
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            bool.must().forEach(q -> collect(q, usages));
+            bool.filter().forEach(q -> collect(q, usages));
+            bool.should().forEach(q -> collect(q, usages));
+            bool.mustNot().forEach(q -> collect(q, usages));
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            collect(((ConstantScoreQueryBuilder) query).innerQuery(), usages);
+        } else if (query instanceof TermQueryBuilder) {
+            usage(usages, ((TermQueryBuilder) query).fieldName(), Usage.EXACT);
+        } else if (query instanceof TermsQueryBuilder) {
+            usage(usages, ((TermsQueryBuilder) query).fieldName(), Usage.EXACT);
+        } else if (query instanceof WildcardQueryBuilder) {
+            usage(usages, ((WildcardQueryBuilder) query).fieldName(), Usage.EXACT);
+        } else if (query instanceof PrefixQueryBuilder) {
+            usage(usages, ((PrefixQueryBuilder) query).fieldName(), Usage.EXACT);
+        } else if (query instanceof ExistsQueryBuilder) {
+            usage(usages, ((ExistsQueryBuilder) query).fieldName(), Usage.EXACT);
+        } else if (query instanceof RangeQueryBuilder) {
+            usage(usages, ((RangeQueryBuilder) query).fieldName(), Usage.RANGE);
+        } else if (query instanceof MatchQueryBuilder) {
+            usage(usages, ((MatchQueryBuilder) query).fieldName(), Usage.FULL_TEXT);
+        } else if (query instanceof MatchPhraseQueryBuilder) {
+            usage(usages, ((MatchPhraseQueryBuilder) query).fieldName(), Usage.FULL_TEXT);
+        } else if (query instanceof MatchPhrasePrefixQueryBuilder) {
+            usage(usages, ((MatchPhrasePrefixQueryBuilder) query).fieldName(), Usage.FULL_TEXT);
+        } else if (query instanceof MultiMatchQueryBuilder) {
+            ((MultiMatchQueryBuilder) query).fields().keySet().forEach(f -> usage(usages, f, Usage.FULL_TEXT));
+        }
+    }
+
+    private static void usage(Map<String, Set<Usage>> usages, String field, Usage usage) {
+        // 多字段（name.keyword）归到主字段
+        String name = StringUtils.substringBefore(field, ".");
+        usages.computeIfAbsent(name.isEmpty() ? field : name, k -> EnumSet.noneOf(Usage.class)).add(usage);
+    }
+
+    private static boolean skip(java.lang.reflect.Field field) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+            return true;
+        }
+        if (field.isAnnotationPresent(Transient.class) || field.isAnnotationPresent(JsonIgnore.class)) {
+            return true;
+        }
+        JSONField jsonField = field.getAnnotation(JSONField.class);
+        return Objects.nonNull(jsonField) && !jsonField.serialize();
+    }
+
+    private static String name(java.lang.reflect.Field field) {
+        JSONField jsonField = field.getAnnotation(JSONField.class);
+        return Objects.nonNull(jsonField) && StringUtils.isNotBlank(jsonField.name()) ? jsonField.name() : field.getName();
+    }
+}
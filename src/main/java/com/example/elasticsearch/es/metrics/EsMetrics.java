@@ -0,0 +1,202 @@
+package com.example.elasticsearch.es.metrics;
+
+import com.example.elasticsearch.es.BulkResult;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.es.http.CompressionStats;
+import com.example.elasticsearch.es.http.DirectBufferPool;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.es.http.SearchHitsParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ES 客户端指标：按索引、操作类型记录延迟、请求/响应字节数、命中数、服务端 took、错误与 bulk 失败率，
+ * 通过 Actuator /actuator/prometheus 暴露
+ *
+ */
+@Component
+public class EsMetrics {
+    /**
+     * 客户端观测耗时
+     */
+    public static final String REQUESTS = "es.client.requests";
+    /**
+     * 服务端返回的 took
+     */
+    public static final String TOOK = "es.server.took";
+    public static final String REQUEST_BYTES = "es.client.request.bytes";
+    public static final String RESPONSE_BYTES = "es.client.response.bytes";
+    public static final String HITS = "es.client.hits";
+    public static final String ERRORS = "es.client.errors";
+    public static final String BULK_ITEMS = "es.client.bulk.items";
+    /**
+     * 采样 profile：分片各阶段耗时
+     */
+    public static final String PROFILE_SHARD = "es.profile.shard";
+    /**
+     * 采样 profile：查询子句自身耗时
+     */
+    public static final String PROFILE_CLAUSE = "es.profile.clause";
+
+    private final MeterRegistry registry;
+
+    public EsMetrics(MeterRegistry registry, EsCompression esCompression) {
+        this.registry = registry;
+        CompressionStats stats = esCompression.getStats();
+        FunctionCounter.builder("es.client.compression.request.bytes", stats, CompressionStats::getRequestRawBytes)
+                .tag("stage", "raw").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("es.client.compression.request.bytes", stats, CompressionStats::getRequestWireBytes)
+                .tag("stage", "wire").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("es.client.compression.response.bytes", stats, CompressionStats::getResponseRawBytes)
+                .tag("stage", "raw").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("es.client.compression.response.bytes", stats, CompressionStats::getResponseWireBytes)
+                .tag("stage", "wire").baseUnit("bytes").register(registry);
+        // 请求体堆外缓冲区池：miss 即新分配的缓冲区
+        DirectBufferPool pool = DirectBufferPool.DEFAULT;
+        FunctionCounter.builder("es.client.buffer.pool.acquire", pool, DirectBufferPool::getHits)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("es.client.buffer.pool.acquire", pool, DirectBufferPool::getMisses)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("es.client.buffer.pool.pooled", pool, DirectBufferPool::getPooledBytes)
+                .baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * 记录一次成功的查询
+     *
+     * @param operation    {@link EsOperation}
+     * @param index        索引
+     * @param nanos        客户端观测耗时
+     * @param requestBytes 请求体字节数
+     * @param parser       {@link SearchHitsParser}
+     */
+    public void search(EsOperation operation, String index, long nanos, long requestBytes, SearchHitsParser<?> parser) {
+        Tags tags = tags(operation, index);
+        timer(REQUESTS, tags.and("outcome", "success")).record(nanos, TimeUnit.NANOSECONDS);
+        summary(REQUEST_BYTES, tags, "bytes").record(requestBytes);
+        summary(RESPONSE_BYTES, tags, "bytes").record(parser.getBytes());
+        summary(HITS, tags, "hits").record(parser.getHitCount());
+        if (parser.getTook() >= 0) {
+            timer(TOOK, tags).record(parser.getTook(), TimeUnit.MILLISECONDS);
+        }
+        if (parser.isTimedOut()) {
+            error(operation, index, "search_timed_out", "200");
+        }
+    }
+
+    /**
+     * 记录一次成功的批量写入
+     *
+     * @param index         索引
+     * @param nanos         客户端观测耗时
+     * @param requestBytes  请求体字节数
+     * @param responseBytes 响应体字节数
+     * @param result        {@link BulkResult}
+     */
+    public void bulk(String index, long nanos, long requestBytes, long responseBytes, BulkResult result) {
+        Tags tags = tags(EsOperation.BULK, index);
+        timer(REQUESTS, tags.and("outcome", "success")).record(nanos, TimeUnit.NANOSECONDS);
+        timer(TOOK, tags).record(result.getTook(), TimeUnit.MILLISECONDS);
+        summary(REQUEST_BYTES, tags, "bytes").record(requestBytes);
+        summary(RESPONSE_BYTES, tags, "bytes").record(responseBytes);
+        counter(BULK_ITEMS, tags.and("result", "success")).increment(result.getTotal() - result.getFailures().size());
+        for (BulkResult.Failure failure : result.getFailures()) {
+            counter(BULK_ITEMS, tags.and("result", "failed").and("status", String.valueOf(failure.getStatus()))).increment();
+        }
+    }
+
+    /**
+     * 记录一次失败的调用（含准入拒绝、超时预算耗尽）
+     *
+     * @param operation {@link EsOperation}
+     * @param index     索引
+     * @param nanos     客户端观测耗时，未发出请求时为 0
+     * @param e         异常
+     */
+    public void failure(EsOperation operation, String index, long nanos, Throwable e) {
+        Tags tags = tags(operation, index);
+        if (nanos > 0) {
+            timer(REQUESTS, tags.and("outcome", "error")).record(nanos, TimeUnit.NANOSECONDS);
+        }
+        error(operation, index, e.getClass().getSimpleName(), status(e));
+    }
+
+    /**
+     * 记录 profile 中单个分片各阶段耗时
+     *
+     * @param operation      {@link EsOperation}
+     * @param index          索引
+     * @param queryNanos     query 阶段耗时
+     * @param rewriteNanos   查询重写耗时
+     * @param collectorNanos collector 耗时
+     */
+    public void profileShard(EsOperation operation, String index, long queryNanos, long rewriteNanos, long collectorNanos) {
+        Tags tags = tags(operation, index);
+        timer(PROFILE_SHARD, tags.and("phase", "query")).record(queryNanos, TimeUnit.NANOSECONDS);
+        timer(PROFILE_SHARD, tags.and("phase", "rewrite")).record(rewriteNanos, TimeUnit.NANOSECONDS);
+        timer(PROFILE_SHARD, tags.and("phase", "collector")).record(collectorNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录 profile 中单个查询子句的自身耗时（不含子查询）
+     *
+     * @param operation {@link EsOperation}
+     * @param index     索引
+     * @param type      Lucene 查询类型，如 BooleanQuery、WildcardQuery
+     * @param selfNanos 自身耗时
+     */
+    public void profileClause(EsOperation operation, String index, String type, long selfNanos) {
+        timer(PROFILE_CLAUSE, tags(operation, index).and("type", Objects.toString(type, "unknown"))).record(selfNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void error(EsOperation operation, String index, String exception, String status) {
+        counter(ERRORS, tags(operation, index).and("exception", exception).and("status", status)).increment();
+    }
+
+    private static String status(Throwable e) {
+        if (e instanceof ResponseException) {
+            return String.valueOf(((ResponseException) e).getResponse().getStatusLine().getStatusCode());
+        }
+        if (e instanceof ElasticsearchException && Objects.nonNull(((ElasticsearchException) e).status())) {
+            return String.valueOf(((ElasticsearchException) e).status().getStatus());
+        }
+        return "none";
+    }
+
+    private static Tags tags(EsOperation operation, String index) {
+        return Tags.of("operation", operation.name(), "index", index);
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry);
+    }
+
+    private DistributionSummary summary(String name, Tags tags, String unit) {
+        return DistributionSummary.builder(name)
+                .tags(tags)
+                .baseUnit(unit)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter counter(String name, Tags tags) {
+        return registry.counter(name, tags);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.elasticsearch.es.reindex;
+
+import com.alibaba.fastjson.JSON;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重建索引任务进度
+ *
+ */
+@Data
+public class ReindexProgress {
+    /**
+     * 任务 id
+     */
+    private String id;
+    private String source;
+    private String target;
+    private String alias;
+    private volatile Phase phase = Phase.PENDING;
+    /**
+     * 源索引文档总数（开始时统计）
+     */
+    private volatile long total;
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * 因集群拒绝（429）重试的文档数
+     */
+    private final AtomicLong retried = new AtomicLong();
+    /**
+     * 当前限流速率（文档/秒）
+     */
+    private volatile double throttle;
+    private Date startTime;
+    private volatile Date endTime;
+    private volatile String error;
+    private volatile boolean cancelled;
+
+    public long getElapsedMillis() {
+        if (startTime == null) {
+            return 0;
+        }
+        long end = endTime == null ? System.currentTimeMillis() : endTime.getTime();
+        return end - startTime.getTime();
+    }
+
+    /**
+     * 平均吞吐（文档/秒）
+     *
+     * @return long
+     */
+    public long getDocsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed <= 0 ? 0 : copied.get() * TimeUnit.SECONDS.toMillis(1) / elapsed;
+    }
+
+    /**
+     * 复制进度百分比
+     *
+     * @return double
+     */
+    public double getPercent() {
+        return total <= 0 ? 0 : Math.min(100, copied.get() * 100.0 / total);
+    }
+
+    public boolean isDone() {
+        return phase == Phase.SUCCEEDED || phase == Phase.FAILED;
+    }
+
+    public enum Phase {
+        PENDING, PREPARING, COPYING, RESTORING, FORCE_MERGING, SWAPPING, SUCCEEDED, FAILED
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
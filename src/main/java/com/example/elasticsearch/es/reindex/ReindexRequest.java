@@ -0,0 +1,43 @@
+package com.example.elasticsearch.es.reindex;
+
+import lombok.Data;
+
+/**
+ * 重建索引请求，未设置的参数使用 elasticsearch.reindex.* 默认配置
+ *
+ */
+@Data
+public class ReindexRequest {
+    /**
+     * 源索引或别名
+     */
+    private String source;
+    /**
+     * 目标索引，不存在时按源索引的 mapping、分片数、分词与索引排序配置创建
+     */
+    private String target;
+    /**
+     * 完成后原子切换到目标索引的别名，为空时不切换
+     */
+    private String alias;
+    /**
+     * 别名当前是实体索引（如 ems）或切换后删除原索引，切换与删除在同一次 _aliases 请求中完成
+     */
+    private boolean removeOldIndex;
+    /**
+     * 并行读取的切片数（sliced scroll）
+     */
+    private Integer slices;
+    /**
+     * 每批读取与写入的文档数
+     */
+    private Integer batchSize;
+    /**
+     * 写入速率上限（文档/秒），集群反压时自动下调
+     */
+    private Integer maxDocsPerSecond;
+    /**
+     * 完成后强制合并的段数，0 为不合并
+     */
+    private Integer maxNumSegments;
+}
@@ -0,0 +1,217 @@
+package com.example.elasticsearch.es.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 不可变的前缀索引（有序数组）：所有候选项的检索词小写后排序，连续存放在一个 char[] 中，
+ * 前缀查询二分定位起点后顺序扫描，按登录次数取前 N 个
+ * <p>
+ * 每个候选项以 operationUser 与 operationUserName 两个检索词登记
+ *
+ */
+public final class PrefixIndex {
+    public static final PrefixIndex EMPTY = of(Collections.emptyList());
+
+    /**
+     * 单次查询最多扫描的检索词数，前缀过短时不扫描整个索引
+     */
+    private static final int SCAN_LIMIT = 10_000;
+
+    /**
+     * 按检索词排序后连续存放的字符
+     */
+    private final char[] chars;
+    /**
+     * 第 i 个检索词为 chars[offsets[i], offsets[i + 1])
+     */
+    private final int[] offsets;
+    /**
+     * 第 i 个检索词所属的候选项
+     */
+    private final int[] owners;
+    private final Suggestion[] entries;
+    /**
+     * 按登录次数倒序的候选项下标，空前缀时直接取前 N 个
+     */
+    private final int[] byCount;
+
+    private PrefixIndex(char[] chars, int[] offsets, int[] owners, Suggestion[] entries, int[] byCount) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.owners = owners;
+        this.entries = entries;
+        this.byCount = byCount;
+    }
+
+    /**
+     * 构建前缀索引
+     *
+     * @param suggestions 候选项
+     * @return {@link PrefixIndex}
+     */
+    public static PrefixIndex of(Collection<Suggestion> suggestions) {
+        Suggestion[] entries = suggestions.toArray(new Suggestion[0]);
+        List<String> keys = new ArrayList<>(entries.length * 2);
+        List<Integer> keyOwners = new ArrayList<>(entries.length * 2);
+        for (int i = 0; i < entries.length; i++) {
+            Set<String> entryKeys = new LinkedHashSet<>(2);
+            addKey(entryKeys, entries[i].getOperationUser());
+            addKey(entryKeys, entries[i].getOperationUserName());
+            for (String key : entryKeys) {
+                keys.add(key);
+                keyOwners.add(i);
+            }
+        }
+        Integer[] order = IntStream.range(0, keys.size()).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparing(keys::get));
+
+        int totalChars = keys.stream().mapToInt(String::length).sum();
+        char[] chars = new char[totalChars];
+        int[] offsets = new int[keys.size() + 1];
+        int[] owners = new int[keys.size()];
+        int position = 0;
+        for (int i = 0; i < order.length; i++) {
+            String key = keys.get(order[i]);
+            key.getChars(0, key.length(), chars, position);
+            offsets[i] = position;
+            owners[i] = keyOwners.get(order[i]);
+            position += key.length();
+        }
+        offsets[keys.size()] = position;
+
+        int[] byCount = IntStream.range(0, entries.length).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> entries[i].getCount()).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return new PrefixIndex(chars, offsets, owners, entries, byCount);
+    }
+
+    private static void addKey(Set<String> keys, String value) {
+        if (Objects.nonNull(value) && !value.trim().isEmpty()) {
+            keys.add(normalize(value));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 前缀查询，不区分大小写
+     *
+     * @param prefix 输入前缀，为空时返回登录次数最多的候选项
+     * @param size   返回数量
+     * @return {@link List}
+     */
+    public List<Suggestion> search(String prefix, int size) {
+        if (size <= 0 || entries.length == 0) {
+            return Collections.emptyList();
+        }
+        if (Objects.isNull(prefix) || prefix.trim().isEmpty()) {
+            List<Suggestion> top = new ArrayList<>(Math.min(size, byCount.length));
+            for (int i = 0; i < byCount.length && top.size() < size; i++) {
+                top.add(entries[byCount[i]]);
+            }
+            return top;
+        }
+        char[] p = normalize(prefix).toCharArray();
+        Set<Integer> matched = new LinkedHashSet<>();
+        for (int i = lowerBound(p), scanned = 0; i < owners.length && scanned < SCAN_LIMIT && startsWith(i, p); i++, scanned++) {
+            matched.add(owners[i]);
+        }
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong((Integer i) -> entries[i].getCount()));
+        for (Integer owner : matched) {
+            top.add(owner);
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+        List<Suggestion> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(entries[top.poll()]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 第一个不小于 p 的检索词下标
+     */
+    private int lowerBound(char[] p) {
+        int low = 0;
+        int high = owners.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, p) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int key, char[] p) {
+        int start = offsets[key];
+        int length = offsets[key + 1] - start;
+        int n = Math.min(length, p.length);
+        for (int i = 0; i < n; i++) {
+            int diff = chars[start + i] - p[i];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - p.length;
+    }
+
+    private boolean startsWith(int key, char[] p) {
+        int start = offsets[key];
+        if (offsets[key + 1] - start < p.length) {
+            return false;
+        }
+        for (int i = 0; i < p.length; i++) {
+            if (chars[start + i] != p[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 候选项数量
+     *
+     * @return int
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * 检索词数量
+     *
+     * @return int
+     */
+    public int keys() {
+        return owners.length;
+    }
+
+    /**
+     * 所有候选项，用于增量合并
+     *
+     * @return {@link List}
+     */
+    public List<Suggestion> entries() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.elasticsearch.es.suggest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 输入提示候选项
+ *
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class Suggestion {
+    /**
+     * 操作用户
+     */
+    private String operationUser;
+    /**
+     * 操作用户名
+     */
+    private String operationUserName;
+    /**
+     * 登录次数，用于排序
+     */
+    private long count;
+}
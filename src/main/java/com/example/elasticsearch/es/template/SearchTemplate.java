@@ -0,0 +1,47 @@
+package com.example.elasticsearch.es.template;
+
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.es.QueryFingerprint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 一次查询对应的搜索模板
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class SearchTemplate {
+    /**
+     * 模板 id 与骨架，同一形状共用
+     */
+    private final TemplateSkeleton skeleton;
+    /**
+     * 本次请求的参数
+     */
+    private final JSONObject params;
+    /**
+     * 查询指纹，同一形状只计算一次
+     */
+    private final QueryFingerprint fingerprint;
+    /**
+     * 模板是否已在集群注册，未注册时仍发送完整请求体
+     */
+    private final boolean ready;
+
+    public String getId() {
+        return skeleton.getId();
+    }
+
+    /**
+     * _search/template 请求体
+     *
+     * @return String
+     */
+    public String body() {
+        JSONObject body = new JSONObject(true);
+        body.put("id", getId());
+        body.put("params", params);
+        return body.toJSONString();
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.elasticsearch.es.template;
+
+import com.alibaba.fastjson.JSONObject;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.ScriptQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 查询形状：直接遍历 ESWhere / 生成的查询条件构建出的 {@link QueryBuilder} 树，一次遍历同时得到
+ * 形状键（查询类型、字段、排序等结构信息）与本次的参数值，不序列化请求体
+ * <p>
+ * 同一形状只在首次出现时用占位值构建一次 {@link TemplateSkeleton}；参数按遍历顺序命名为 pN，
+ * 骨架由同一遍历生成，参数与占位符一一对应。标量数组（terms、ids）整体作为一个参数，与
+ * {@link com.example.elasticsearch.es.QueryFingerprint} 规则一致
+ * <p>
+ * 只支持 bool、term、terms、ids、range、wildcard、script 查询与字段排序；含其他查询类型、聚合、折叠等内容时
+ * {@link #of(SearchSourceBuilder)} 返回 null，调用方发送完整请求体
+ *
+ */
+public final class TemplateShape {
+    private static final String PARAM = "p";
+    /**
+     * 占位值前后缀，构建骨架时替换为 mustache 参数
+     */
+    private static final String SENTINEL_PREFIX = "__esw_";
+    private static final String SENTINEL_SUFFIX = "__";
+
+    /**
+     * 是否同时构建占位查询，只在生成骨架时为 true
+     */
+    private final boolean placeholders;
+    private final StringBuilder key = new StringBuilder(128);
+    private final JSONObject params = new JSONObject(true);
+    private boolean supported = true;
+
+    private TemplateShape(boolean placeholders) {
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * 遍历查询得到形状键与参数
+     *
+     * @param source {@link SearchSourceBuilder}
+     * @return {@link TemplateShape}，含不支持的内容时为 null
+     */
+    public static TemplateShape of(SearchSourceBuilder source) {
+        TemplateShape shape = new TemplateShape(false);
+        shape.walk(source);
+        return shape.supported ? shape : null;
+    }
+
+    /**
+     * 用占位值构建骨架，每种形状只调用一次
+     *
+     * @param source 与本形状对应的 {@link SearchSourceBuilder}
+     * @return {@link TemplateSkeleton}
+     */
+    public static TemplateSkeleton skeleton(SearchSourceBuilder source) {
+        TemplateShape shape = new TemplateShape(true);
+        SearchSourceBuilder body = shape.walk(source);
+        if (!shape.supported) {
+            throw new IllegalArgumentException("不支持的查询形状");
+        }
+        // 分页与超时固定在请求体开头，与 SearchSourceBuilder 的输出顺序一致
+        StringBuilder template = new StringBuilder("{");
+        int next = 0;
+        for (String field : new String[]{"from", "size", "timeout"}) {
+            if (present(source, field)) {
+                template.append('"').append(field).append("\":").append(mustache(PARAM + next++)).append(',');
+            }
+        }
+        String rest = Strings.toString(body);
+        if (rest.length() > 2) {
+            template.append(rest, 1, rest.length());
+        } else if (template.length() > 1) {
+            template.setCharAt(template.length() - 1, '}');
+        } else {
+            template.append('}');
+        }
+        String text = template.toString();
+        for (String name : shape.params.keySet()) {
+            String sentinel = '"' + SENTINEL_PREFIX + name + SENTINEL_SUFFIX + '"';
+            // terms、ids 的占位数组整体替换
+            text = text.replace("[" + sentinel + "]", mustache(name)).replace(sentinel, mustache(name));
+        }
+        return TemplateSkeleton.of(text);
+    }
+
+    public String getKey() {
+        return key.toString();
+    }
+
+    /**
+     * 本次请求的参数
+     *
+     * @return {@link JSONObject}
+     */
+    public JSONObject getParams() {
+        return params;
+    }
+
+    /**
+     * @return 占位模式下为不含分页与超时的占位请求体，否则为 null
+     */
+    private SearchSourceBuilder walk(SearchSourceBuilder source) {
+        SearchSourceBuilder probe = new SearchSourceBuilder();
+        if (present(source, "from")) {
+            param(source.from());
+            probe.from(source.from());
+        }
+        if (present(source, "size")) {
+            param(source.size());
+            probe.size(source.size());
+        }
+        if (present(source, "timeout")) {
+            param(source.timeout().getStringRep());
+            probe.timeout(source.timeout());
+        }
+        SearchSourceBuilder body = placeholders ? new SearchSourceBuilder() : null;
+        if (Objects.nonNull(source.query())) {
+            key.append("query:");
+            QueryBuilder query = query(source.query());
+            probe.query(source.query());
+            if (placeholders) {
+                body.query(query);
+            }
+        }
+        if (Objects.nonNull(source.sorts())) {
+            key.append("|sort:");
+            for (SortBuilder<?> sort : source.sorts()) {
+                sort(sort);
+                probe.sort(sort);
+                if (placeholders) {
+                    body.sort(sort);
+                }
+            }
+        }
+        if (Objects.nonNull(source.trackTotalHitsUpTo())) {
+            key.append("|track:").append(source.trackTotalHitsUpTo());
+            probe.trackTotalHitsUpTo(source.trackTotalHitsUpTo());
+            if (placeholders) {
+                body.trackTotalHitsUpTo(source.trackTotalHitsUpTo());
+            }
+        }
+        // 还设置了聚合、折叠等其他内容时不是模板能表达的形状
+        if (!probe.equals(source)) {
+            supported = false;
+        }
+        return body;
+    }
+
+    private static boolean present(SearchSourceBuilder source, String field) {
+        switch (field) {
+            case "from":
+                return source.from() >= 0;
+            case "size":
+                return source.size() >= 0;
+            default:
+                return Objects.nonNull(source.timeout());
+        }
+    }
+
+    private QueryBuilder query(QueryBuilder query) {
+        if (!supported) {
+            return null;
+        }
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            BoolQueryBuilder copy = placeholders ? new BoolQueryBuilder() : null;
+            key.append("bool(").append(bool.minimumShouldMatch()).append(',').append(bool.adjustPureNegative());
+            clauses("must", bool.must(), placeholders ? copy::must : null);
+            clauses("filter", bool.filter(), placeholders ? copy::filter : null);
+            clauses("should", bool.should(), placeholders ? copy::should : null);
+            clauses("must_not", bool.mustNot(), placeholders ? copy::mustNot : null);
+            if (placeholders) {
+                copy.minimumShouldMatch(bool.minimumShouldMatch()).adjustPureNegative(bool.adjustPureNegative());
+            }
+            return common(bool, copy);
+        }
+        if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder term = (TermQueryBuilder) query;
+            key.append("term(").append(term.fieldName());
+            String value = param(term.value());
+            return common(term, placeholders ? new TermQueryBuilder(term.fieldName(), value) : null);
+        }
+        if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder terms = (TermsQueryBuilder) query;
+            if (Objects.nonNull(terms.termsLookup())) {
+                supported = false;
+                return null;
+            }
+            key.append("terms(").append(terms.fieldName());
+            String value = param(terms.values());
+            return common(terms, placeholders ? new TermsQueryBuilder(terms.fieldName(), Collections.singletonList(value)) : null);
+        }
+        if (query instanceof IdsQueryBuilder) {
+            IdsQueryBuilder ids = (IdsQueryBuilder) query;
+            if (ids.types().length > 0) {
+                supported = false;
+                return null;
+            }
+            key.append("ids(");
+            String value = param(new ArrayList<>(ids.ids()));
+            return common(ids, placeholders ? new IdsQueryBuilder().addIds(value) : null);
+        }
+        if (query instanceof RangeQueryBuilder) {
+            return range((RangeQueryBuilder) query);
+        }
+        if (query instanceof WildcardQueryBuilder) {
+            WildcardQueryBuilder wildcard = (WildcardQueryBuilder) query;
+            key.append("wildcard(").append(wildcard.fieldName()).append(',').append(wildcard.rewrite());
+            String value = param(wildcard.value());
+            return common(wildcard, placeholders ? new WildcardQueryBuilder(wildcard.fieldName(), value).rewrite(wildcard.rewrite()) : null);
+        }
+        if (query instanceof ScriptQueryBuilder) {
+            Script script = ((ScriptQueryBuilder) query).script();
+            key.append("script(").append(script.getType()).append(',').append(script.getLang()).append(',')
+                    .append(script.getIdOrCode()).append(',').append(script.getOptions());
+            Map<String, Object> values = new LinkedHashMap<>(script.getParams().size());
+            for (Map.Entry<String, Object> entry : script.getParams().entrySet()) {
+                key.append(',').append(entry.getKey());
+                values.put(entry.getKey(), param(entry.getValue()));
+            }
+            return common(query, placeholders ? new ScriptQueryBuilder(new Script(script.getType(), script.getLang(),
+                    script.getIdOrCode(), script.getOptions(), values)) : null);
+        }
+        supported = false;
+        return null;
+    }
+
+    private QueryBuilder range(RangeQueryBuilder range) {
+        key.append("range(").append(range.fieldName()).append(',').append(range.includeLower()).append(',').append(range.includeUpper())
+                .append(',').append(range.format()).append(',').append(range.timeZone()).append(',').append(range.relation())
+                .append(',').append(Objects.isNull(range.from())).append(',').append(Objects.isNull(range.to()));
+        String from = Objects.isNull(range.from()) ? null : param(range.from());
+        String to = Objects.isNull(range.to()) ? null : param(range.to());
+        if (!placeholders) {
+            return common(range, null);
+        }
+        RangeQueryBuilder copy = new RangeQueryBuilder(range.fieldName())
+                .from(from, range.includeLower())
+                .to(to, range.includeUpper());
+        if (Objects.nonNull(range.format())) {
+            copy.format(range.format());
+        }
+        if (Objects.nonNull(range.timeZone())) {
+            copy.timeZone(range.timeZone());
+        }
+        if (Objects.nonNull(range.relation())) {
+            copy.relation(range.relation().getRelationName());
+        }
+        return common(range, copy);
+    }
+
+    private void clauses(String name, List<QueryBuilder> clauses, Consumer<QueryBuilder> add) {
+        key.append(',').append(name).append('[');
+        for (QueryBuilder clause : clauses) {
+            QueryBuilder copy = query(clause);
+            if (Objects.nonNull(add) && Objects.nonNull(copy)) {
+                add.accept(copy);
+            }
+        }
+        key.append(']');
+    }
+
+    /**
+     * boost 与 _name 属于结构
+     */
+    private QueryBuilder common(QueryBuilder query, QueryBuilder copy) {
+        key.append(',').append(query.boost()).append(',').append(query.queryName()).append(')');
+        if (Objects.nonNull(copy)) {
+            copy.boost(query.boost()).queryName(query.queryName());
+        }
+        return copy;
+    }
+
+    private void sort(SortBuilder<?> sort) {
+        if (!(sort instanceof FieldSortBuilder)) {
+            supported = false;
+            return;
+        }
+        FieldSortBuilder field = (FieldSortBuilder) sort;
+        if (Objects.nonNull(field.getNestedSort())) {
+            supported = false;
+            return;
+        }
+        key.append(field.getFieldName()).append(',').append(field.order()).append(',').append(field.missing()).append(',')
+                .append(field.unmappedType()).append(',').append(field.sortMode()).append(',').append(field.getNumericType()).append(';');
+    }
+
+    /**
+     * 记录参数，返回占位值；参数只接受 JSON 标量与标量集合，其他类型无法保证与完整请求体序列化一致
+     */
+    private String param(Object value) {
+        if (!isScalar(value) && !(value instanceof Collection && ((Collection<?>) value).stream().allMatch(TemplateShape::isScalar))) {
+            supported = false;
+            return null;
+        }
+        String name = PARAM + params.size();
+        params.put(name, value);
+        key.append('?');
+        return SENTINEL_PREFIX + name + SENTINEL_SUFFIX;
+    }
+
+    private static boolean isScalar(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    private static String mustache(String name) {
+        return "{{#toJson}}" + name + "{{/toJson}}";
+    }
+}
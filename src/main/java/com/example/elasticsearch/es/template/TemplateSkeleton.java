@@ -0,0 +1,53 @@
+package com.example.elasticsearch.es.template;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 查询骨架：字面值替换为 mustache 参数 {{#toJson}}pN{{/toJson}} 后的请求体，
+ * 同一形状（同一 ESWhere 条件组合）只由 {@link TemplateShape#skeleton} 构建一次，注册为存储的搜索模板
+ *
+ */
+public final class TemplateSkeleton {
+    /**
+     * 模板 id 前缀
+     */
+    public static final String ID_PREFIX = "esw_";
+
+    /**
+     * 模板 id，骨架的哈希
+     */
+    private final String id;
+    /**
+     * mustache 模板
+     */
+    private final String source;
+
+    private TemplateSkeleton(String id, String source) {
+        this.id = id;
+        this.source = source;
+    }
+
+    /**
+     * @param source mustache 模板
+     * @return {@link TemplateSkeleton}
+     */
+    static TemplateSkeleton of(String source) {
+        return new TemplateSkeleton(ID_PREFIX + Hashing.murmur3_128().hashString(source, StandardCharsets.UTF_8).toString().substring(0, 16),
+                source);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
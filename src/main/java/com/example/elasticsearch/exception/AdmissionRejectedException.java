@@ -0,0 +1,9 @@
+package com.example.elasticsearch.exception;
+
+
+public class AdmissionRejectedException extends CustomException {
+
+    public AdmissionRejectedException(String message) {
+        super(message);
+    }
+}
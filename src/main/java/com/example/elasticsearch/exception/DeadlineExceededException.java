@@ -0,0 +1,9 @@
+package com.example.elasticsearch.exception;
+
+
+public class DeadlineExceededException extends CustomException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
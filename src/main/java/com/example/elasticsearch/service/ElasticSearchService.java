@@ -1,23 +1,73 @@
 package com.example.elasticsearch.service;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.example.elasticsearch.es.BulkResult;
+import com.example.elasticsearch.es.CancellableFuture;
+import com.example.elasticsearch.es.Collapsed;
+import com.example.elasticsearch.es.Deadline;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.es.EsPageInfo;
+import com.example.elasticsearch.es.FilterPath;
+import com.example.elasticsearch.es.QueryFingerprint;
+import com.example.elasticsearch.es.capture.CapturedQuery;
+import com.example.elasticsearch.es.capture.QueryRecorder;
+import com.example.elasticsearch.es.http.ByteBufferPool;
+import com.example.elasticsearch.es.http.DirectBufferPool;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.es.http.SearchHitsParser;
+import com.example.elasticsearch.es.http.StreamingSearchResponseConsumer;
+import com.example.elasticsearch.es.jfr.EsCall;
+import com.example.elasticsearch.es.lean.LeanBody;
+import com.example.elasticsearch.es.lean.LeanQuery;
+import com.example.elasticsearch.es.metrics.EsMetrics;
+import com.example.elasticsearch.es.template.SearchTemplate;
+import com.example.elasticsearch.exception.CustomException;
+import com.example.elasticsearch.exception.DeadlineExceededException;
 import com.github.pagehelper.PageInfo;
+import com.google.common.base.Suppliers;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.InnerHitBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.collapse.CollapseBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 封装ES通用API
@@ -26,8 +76,87 @@ import java.util.List;
 @Component
 @Slf4j
 public class ElasticSearchService {
+    /**
+     * bulk 请求体类型
+     */
+    private static final ContentType ND_JSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+    /**
+     * bulk 动作行中 _index 之后的部分
+     */
+    private static final byte[] BULK_ID = ",\"_id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BULK_ACTION_END = "}}\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE = {'\n'};
+    /**
+     * 折叠查询的 inner_hits 名称与组数统计聚合名称
+     */
+    private static final String INNER_HITS_NAME = "top";
+    private static final String COLLAPSE_GROUPS = "collapse_groups";
+    /**
+     * 组数在该值以内时 cardinality 统计基本精确
+     */
+    private static final int COLLAPSE_PRECISION_THRESHOLD = 3000;
+    /**
+     * 截止时间到达时中止异步调用
+     */
+    private static final ScheduledExecutorService DEADLINE_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsTaskService esTaskService;
     @Autowired
-    private RestHighLevelClient restHighLevelClient;
+    private EsAdmissionService esAdmissionService;
+    @Autowired
+    private RolloverIndexService rolloverIndexService;
+    @Autowired
+    private EsCompression esCompression;
+    @Autowired
+    private QueryRecorder queryRecorder;
+    @Autowired
+    private EsMetrics esMetrics;
+    @Autowired
+    private EsQueryStatsService esQueryStatsService;
+    @Autowired
+    private EsProfileService esProfileService;
+    @Autowired
+    private EsMetadataService esMetadataService;
+    @Autowired
+    private EsSearchTemplateService esSearchTemplateService;
+
+    /**
+     * 交互式查询默认超时预算（毫秒）
+     */
+    @Value("${elasticsearch.budget.search-millis:10000}")
+    private long searchBudgetMillis;
+    /**
+     * 数据导出默认超时预算（毫秒）
+     */
+    @Value("${elasticsearch.budget.export-millis:60000}")
+    private long exportBudgetMillis;
+    /**
+     * 批量写入默认超时预算（毫秒）
+     */
+    @Value("${elasticsearch.budget.bulk-millis:30000}")
+    private long bulkBudgetMillis;
+    /**
+     * 服务端超时相对客户端预算的预留时间（毫秒），用于传输与解析响应
+     */
+    @Value("${elasticsearch.budget.server-margin-millis:200}")
+    private long serverMarginMillis;
+    /**
+     * 是否按操作裁剪响应字段（filter_path）
+     */
+    @Value("${elasticsearch.filter-path.enabled:true}")
+    private boolean filterPathEnabled;
+    /**
+     * 排序与索引排序一致时总数统计上限，超过后总数为下限值（relation=gte）；0 表示不统计总数
+     */
+    @Value("${elasticsearch.index-sort.track-total-hits-up-to:1000}")
+    private int indexSortTrackTotalHitsUpTo;
 
     /**
      * ES分页查询
@@ -40,13 +169,286 @@ public class ElasticSearchService {
      * @return 分页结果
      */
     public <T> PageInfo<T> queryForPage(String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz, List<SortBuilder<?>> sortBuilders) {
-        SearchRequest searchRequest = new SearchRequest(index);
+        return queryForPage(EsOperation.SEARCH, index, queryBuilder, pager, clazz, sortBuilders);
+    }
+
+    /**
+     * ES分页查询，按操作类型使用对应的超时预算
+     *
+     * @param operation    操作类型，{@link EsOperation#SEARCH} 或 {@link EsOperation#EXPORT}
+     * @param index        查询索引
+     * @param queryBuilder 查询条件
+     * @param pager        分页条件
+     * @param clazz        响应类型
+     * @param <T>          泛型
+     * @return 分页结果
+     */
+    public <T> PageInfo<T> queryForPage(EsOperation operation, String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz, List<SortBuilder<?>> sortBuilders) {
+        Deadline deadline = deadline(operation).check(operation);
+        PageInfo<T> page = await(operation, deadline, index, queryForPageAsync(operation, deadline, index, queryBuilder, pager, clazz, sortBuilders));
+        return Objects.isNull(page) ? new PageInfo<>() : page;
+    }
+
+    /**
+     * 在剩余预算内等待异步查询结果，超时或调用线程被中断时取消查询
+     *
+     * @return 查询结果，非运行时异常且未超时时返回 null
+     */
+    private <R> R await(EsOperation operation, Deadline deadline, String index, CancellableFuture<R> future) {
+        try {
+            return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // 调用线程被中断（如请求已结束），中止客户端与服务端查询
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CustomException("查询已取消");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            DeadlineExceededException exception = new DeadlineExceededException("请求超时预算已耗尽：".concat(operation.name()));
+            esMetrics.failure(operation, rolloverIndexService.logicalIndex(index), 0, exception);
+            throw exception;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof ResponseException) {
+                // 与高级客户端保持一致：错误状态码转换为 ElasticsearchStatusException
+                ResponseException cause = (ResponseException) e.getCause();
+                throw new ElasticsearchStatusException(cause.getMessage(),
+                        RestStatus.fromCode(cause.getResponse().getStatusLine().getStatusCode()), cause);
+            }
+            deadline.check(operation);
+            log.error("查询失败",e.getMessage(), e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * ES异步分页查询，返回结果可取消：取消时中止客户端请求，并取消服务端查询任务
+     *
+     * @param operation    操作类型，{@link EsOperation#SEARCH} 或 {@link EsOperation#EXPORT}
+     * @param index        查询索引
+     * @param queryBuilder 查询条件
+     * @param pager        分页条件
+     * @param clazz        响应类型
+     * @param <T>          泛型
+     * @return 可取消的分页结果
+     */
+    public <T> CancellableFuture<PageInfo<T>> queryForPageAsync(EsOperation operation, String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz, List<SortBuilder<?>> sortBuilders) {
+        return queryForPageAsync(operation, deadline(operation).check(operation), index, queryBuilder, pager, clazz, sortBuilders);
+    }
+
+    private <T> CancellableFuture<PageInfo<T>> queryForPageAsync(EsOperation operation, Deadline deadline, String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz, List<SortBuilder<?>> sortBuilders) {
+        SearchSourceBuilder searchSourceBuilder = searchSource(deadline, index, queryBuilder, pager, sortBuilders);
+        return search(operation, deadline, index, searchSourceBuilder, clazz, null).map(parser -> page(parser, pager));
+    }
+
+    private static <T> PageInfo<T> page(SearchHitsParser<T> parser, PageInfo pager) {
+        EsPageInfo<T> pageInfo = new EsPageInfo<>();
+        pageInfo.setTotal(parser.getTotal());
+        pageInfo.setTotalRelation(parser.getTotalRelation());
+        pageInfo.setPageNum(pager.getPageNum());
+        pageInfo.setPageSize(pager.getPageSize());
+        pageInfo.setList(parser.getHits());
+        return pageInfo;
+    }
+
+    /**
+     * ES精简分页查询：预编译的查询骨架填入参数后直接写入池化缓冲区，不构建 SearchSourceBuilder、不经过 XContent，
+     * 响应流式解析为分页结果，适用于结构固定的热点查询
+     * <p>
+     * 骨架中的 {@link LeanQuery#FROM}、{@link LeanQuery#SIZE}、{@link LeanQuery#TIMEOUT} 参数由分页条件与超时预算填充
+     *
+     * @param operation 操作类型，{@link EsOperation#SEARCH} 或 {@link EsOperation#EXPORT}
+     * @param index     查询索引
+     * @param query     已绑定参数的查询骨架
+     * @param pager     分页条件
+     * @param clazz     响应类型
+     * @param <T>       泛型
+     * @return 分页结果
+     */
+    public <T> PageInfo<T> queryForPage(EsOperation operation, String index, LeanQuery.Bound query, PageInfo pager, Class<T> clazz) {
+        Deadline deadline = deadline(operation).check(operation);
+        LeanQuery skeleton = query.getQuery();
+        if (skeleton.has(LeanQuery.FROM)) {
+            query.set(LeanQuery.FROM, (pager.getPageNum() - 1) * pager.getPageSize());
+        }
+        if (skeleton.has(LeanQuery.SIZE)) {
+            query.set(LeanQuery.SIZE, pager.getPageSize());
+        }
+        if (skeleton.has(LeanQuery.TIMEOUT)) {
+            query.set(LeanQuery.TIMEOUT, deadline.serverTimeout(serverMarginMillis).getStringRep());
+        }
+        PageInfo<T> page = await(operation, deadline, index, leanSearch(operation, deadline, index, query, clazz).map(parser -> page(parser, pager)));
+        return Objects.isNull(page) ? new PageInfo<>() : page;
+    }
+
+    /**
+     * 精简查询的执行：请求体写入池化缓冲区，请求结束后归还
+     */
+    private <T> CancellableFuture<SearchHitsParser<T>> leanSearch(EsOperation operation, Deadline deadline, String index, LeanQuery.Bound query, Class<T> clazz) {
+        CancellableFuture<SearchHitsParser<T>> future = new CancellableFuture<>(UUID.randomUUID().toString());
+        QueryFingerprint fingerprint = query.getQuery().getFingerprint();
+        // 裁剪后的索引列表只用于请求地址，统计维度使用逻辑索引
+        String logical = rolloverIndexService.logicalIndex(index);
+        Request request = new Request("POST", "/" + index + "/_search");
+        if (index.indexOf(',') >= 0) {
+            request.addParameter("ignore_unavailable", "true");
+        }
+        if (filterPathEnabled) {
+            FilterPath.SEARCH.apply(request);
+        }
+        AtomicReference<StreamingSearchResponseConsumer<T>> consumer = new AtomicReference<>();
+        deadline.check(operation);
+        RequestOptions.Builder options = requestOptions().toBuilder()
+                .addHeader(EsTaskService.HEADER_OPAQUE_ID, future.getOpaqueId());
+        options.setHttpAsyncResponseConsumerFactory(() -> {
+            consumer.set(new StreamingSearchResponseConsumer<>(new SearchHitsParser<>(clazz), ByteBufferPool.DEFAULT, esCompression.getStats()));
+            return consumer.get();
+        });
+        request.setOptions(options);
+
+        EsCall event = EsCall.begin();
+        long admissionStart = System.nanoTime();
+        EsAdmissionService.Permit permit = acquire(logical, operation, deadline);
+        LeanBody body = LeanBody.pooled(DirectBufferPool.DEFAULT);
+        try {
+            query.writeTo(body);
+        } catch (RuntimeException e) {
+            body.release();
+            permit.release(null);
+            throw e;
+        }
+        request.setEntity(body.entity());
+        long requestBytes = body.length();
+        long start = System.nanoTime();
+        Cancellable cancellable = restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                permit.release(null);
+                SearchHitsParser<T> parser = consumer.get().getParser();
+                long nanos = System.nanoTime() - start;
+                commit(event, operation, logical, fingerprint, future.getOpaqueId(), request, start - admissionStart, consumer.get(), null);
+                // 已收到完整响应，请求体必已发送完毕
+                body.release();
+                esMetrics.search(operation, logical, nanos, requestBytes, parser);
+                esQueryStatsService.record(operation, logical, fingerprint, query::toString, nanos, parser.getTook(), parser.getHitCount());
+                future.complete(parser);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                permit.release(e);
+                esMetrics.failure(operation, logical, System.nanoTime() - start, e);
+                commit(event, operation, logical, fingerprint, future.getOpaqueId(), request, start - admissionStart, consumer.get(), e);
+                // 取消时在调用 cancel 的线程上回调，I/O 线程可能仍在发送请求体，不能归还到池
+                body.discard();
+                future.completeExceptionally(e);
+            }
+        });
+        return expireAt(operation, deadline, future.onCancel(() -> {
+            cancellable.cancel();
+            esTaskService.cancelSearch(future.getOpaqueId());
+        }));
+    }
+
+    /**
+     * ES流式分页查询：命中结果边接收边回调，不在内存中保留整页结果，适用于大页导出
+     * 注意：请求失败后在其他节点重试时，已回调的结果可能重复回调
+     *
+     * @param operation    操作类型，{@link EsOperation#SEARCH} 或 {@link EsOperation#EXPORT}
+     * @param index        查询索引
+     * @param queryBuilder 查询条件
+     * @param pager        分页条件
+     * @param clazz        响应类型
+     * @param onHit        命中回调，在 IO 线程上执行，不应阻塞
+     * @param <T>          泛型
+     * @return 命中总数
+     */
+    public <T> CancellableFuture<Long> forEachHit(EsOperation operation, String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz, List<SortBuilder<?>> sortBuilders, Consumer<T> onHit) {
+        Objects.requireNonNull(onHit, "参数【onHit】是必须的");
+        Deadline deadline = deadline(operation).check(operation);
+        SearchSourceBuilder searchSourceBuilder = searchSource(deadline, index, queryBuilder, pager, sortBuilders);
+        return search(operation, deadline, index, searchSourceBuilder, clazz, onHit).map(SearchHitsParser::getTotal);
+    }
+
+    /**
+     * ES折叠分页查询：按字段折叠，每组只返回排序后的第一条，分页对象为组，一页一次请求
+     * 总数为组数（cardinality 近似统计，{@link #COLLAPSE_PRECISION_THRESHOLD} 以内精确）
+     *
+     * @param operation     操作类型，{@link EsOperation#SEARCH} 或 {@link EsOperation#EXPORT}
+     * @param index         查询索引
+     * @param queryBuilder  查询条件
+     * @param pager         分页条件，按组分页
+     * @param clazz         响应类型
+     * @param sortBuilders  排序，决定每组返回哪一条
+     * @param collapseField 折叠字段，需为开启 doc_values 的 keyword 或数值字段
+     * @param innerHits     每组额外返回的前 N 条（inner_hits），0 为不返回
+     * @param <T>           泛型
+     * @return 分页结果
+     */
+    public <T> PageInfo<Collapsed<T>> queryForCollapsedPage(EsOperation operation, String index, QueryBuilder queryBuilder, PageInfo pager, Class<T> clazz,
+                                                            List<SortBuilder<?>> sortBuilders, String collapseField, int innerHits) {
+        Deadline deadline = deadline(operation).check(operation);
+        SearchSourceBuilder searchSourceBuilder = searchSource(deadline, index, queryBuilder, pager, sortBuilders);
+        CollapseBuilder collapse = new CollapseBuilder(collapseField);
+        if (innerHits > 0) {
+            InnerHitBuilder innerHitBuilder = new InnerHitBuilder(INNER_HITS_NAME).setSize(innerHits);
+            if (Objects.nonNull(sortBuilders) && !sortBuilders.isEmpty()) {
+                innerHitBuilder.setSorts(sortBuilders);
+            }
+            collapse.setInnerHits(innerHitBuilder);
+        }
+        searchSourceBuilder.collapse(collapse);
+        // 折叠后命中总数仍为文档数，组数另行统计
+        searchSourceBuilder.trackTotalHits(false);
+        searchSourceBuilder.aggregation(AggregationBuilders.cardinality(COLLAPSE_GROUPS).field(collapseField)
+                .precisionThreshold(COLLAPSE_PRECISION_THRESHOLD));
+
+        PageInfo<Collapsed<T>> page = await(operation, deadline, index, search(operation, deadline, index, searchSourceBuilder, clazz, null).map(parser -> {
+            List<Collapsed<T>> groups = new ArrayList<>(parser.getHits().size());
+            for (int i = 0; i < parser.getHits().size(); i++) {
+                groups.add(collapsed(parser.getHits().get(i), parser.getInnerHits(i), clazz));
+            }
+            PageInfo<Collapsed<T>> pageInfo = new PageInfo<>();
+            JSONObject aggregations = parser.getAggregations();
+            pageInfo.setTotal(Objects.isNull(aggregations) ? -1 : aggregations.getJSONObject(COLLAPSE_GROUPS).getLongValue("value"));
+            pageInfo.setPageNum(pager.getPageNum());
+            pageInfo.setPageSize(pager.getPageSize());
+            pageInfo.setList(groups);
+            return pageInfo;
+        }));
+        return Objects.isNull(page) ? new PageInfo<>() : page;
+    }
+
+    private static <T> Collapsed<T> collapsed(T hit, JSONObject innerHits, Class<T> clazz) {
+        JSONObject hits = Objects.isNull(innerHits) || Objects.isNull(innerHits.getJSONObject(INNER_HITS_NAME))
+                ? null : innerHits.getJSONObject(INNER_HITS_NAME).getJSONObject("hits");
+        if (Objects.isNull(hits)) {
+            return Collapsed.<T>builder().hit(hit).build();
+        }
+        Object total = hits.get("total");
+        JSONArray array = hits.getJSONArray("hits");
+        List<T> inner = new ArrayList<>(Objects.isNull(array) ? 0 : array.size());
+        for (int i = 0; Objects.nonNull(array) && i < array.size(); i++) {
+            inner.add(array.getJSONObject(i).getObject("_source", clazz));
+        }
+        return Collapsed.<T>builder()
+                .hit(hit)
+                .total(total instanceof JSONObject ? ((JSONObject) total).getLongValue("value") : hits.getLongValue("total"))
+                .innerHits(inner)
+                .build();
+    }
+
+    private SearchSourceBuilder searchSource(Deadline deadline, String index, QueryBuilder queryBuilder, PageInfo pager, List<SortBuilder<?>> sortBuilders) {
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
         // 构建查询条件
         searchSourceBuilder.query(queryBuilder);
         // 分页
         searchSourceBuilder.size(pager.getPageSize());
         searchSourceBuilder.from((pager.getPageNum() - 1) * pager.getPageSize());
+        // 服务端超时与客户端剩余预算保持一致
+        searchSourceBuilder.timeout(deadline.serverTimeout(serverMarginMillis));
 
         // 排序
         if (sortBuilders != null) {
@@ -54,26 +456,390 @@ public class ElasticSearchService {
                 searchSourceBuilder.sort(sortBuilder);
             }
         }
-        searchRequest.source(searchSourceBuilder);
+        // 排序与索引排序一致时不精确统计总数，分片收集到足够结果后即可提前终止
+        if (esMetadataService.matchesIndexSort(index, sortBuilders)) {
+            if (indexSortTrackTotalHitsUpTo > 0) {
+                searchSourceBuilder.trackTotalHitsUpTo(indexSortTrackTotalHitsUpTo);
+            } else {
+                searchSourceBuilder.trackTotalHits(false);
+            }
+        }
+        return searchSourceBuilder;
+    }
+
+    /**
+     * 通过低级客户端执行 _search，响应由 {@link StreamingSearchResponseConsumer} 流式解析
+     */
+    private <T> CancellableFuture<SearchHitsParser<T>> search(EsOperation operation, Deadline deadline, String index, SearchSourceBuilder searchSourceBuilder, Class<T> clazz, Consumer<T> onHit) {
+        CancellableFuture<SearchHitsParser<T>> future = new CancellableFuture<>(UUID.randomUUID().toString());
+        // 裁剪后的索引列表只用于请求地址，统计维度使用逻辑索引
+        String logical = rolloverIndexService.logicalIndex(index);
+        // 完整请求体只在需要时（未走模板、模板丢失回退、统计首次出现、采样记录）序列化一次
+        Supplier<String> source = Suppliers.memoize(() -> Strings.toString(searchSourceBuilder));
+        SearchTemplate template = esSearchTemplateService.compile(searchSourceBuilder);
+        // 同一形状的指纹只计算一次
+        QueryFingerprint fingerprint = Objects.nonNull(template) ? template.getFingerprint() : QueryFingerprint.of(source.get());
+        boolean profiled = esProfileService.sample(fingerprint);
+        boolean templated = !profiled && Objects.nonNull(template) && template.isReady();
+        Request request;
+        if (profiled) {
+            // 采样 profile：请求带 profile: true，响应保留 profile 字段；source 仍记录原始查询
+            request = new Request("POST", "/" + index + "/_search");
+            JSONObject body = JSON.parseObject(source.get(), Feature.OrderedField);
+            body.put("profile", true);
+            request.setJsonEntity(body.toJSONString());
+        } else if (templated) {
+            // 已注册的搜索模板：只发送模板 id 与参数，响应格式与 _search 相同
+            request = new Request("POST", "/" + index + "/_search/template");
+            request.setJsonEntity(template.body());
+        } else {
+            request = new Request("POST", "/" + index + "/_search");
+            request.setJsonEntity(source.get());
+        }
+        if (index.indexOf(',') >= 0) {
+            // 按时间范围裁剪出的多个索引中，可能有刚被保留策略删除的
+            request.addParameter("ignore_unavailable", "true");
+        }
+        if (filterPathEnabled) {
+            List<String> paths = new ArrayList<>(3);
+            if (profiled) {
+                paths.add("profile");
+            }
+            if (Objects.nonNull(searchSourceBuilder.aggregations())) {
+                paths.add("aggregations");
+            }
+            if (Objects.nonNull(searchSourceBuilder.collapse()) && Objects.nonNull(searchSourceBuilder.collapse().getInnerHits())
+                    && !searchSourceBuilder.collapse().getInnerHits().isEmpty()) {
+                paths.add("hits.hits.inner_hits.*.hits.total");
+                paths.add("hits.hits.inner_hits.*.hits.hits._source");
+            }
+            request.addParameter(FilterPath.PARAMETER, FilterPath.SEARCH.with(paths.toArray(new String[0])));
+        }
+
+        // 每次尝试（含失败后在其他节点重试）都创建新的解析器，只采用最后一次的结果
+        AtomicReference<StreamingSearchResponseConsumer<T>> consumer = new AtomicReference<>();
+        deadline.check(operation);
+        RequestOptions.Builder options = requestOptions().toBuilder()
+                .addHeader(EsTaskService.HEADER_OPAQUE_ID, future.getOpaqueId());
+        options.setHttpAsyncResponseConsumerFactory(() -> {
+            consumer.set(new StreamingSearchResponseConsumer<>(new SearchHitsParser<>(clazz, onHit), ByteBufferPool.DEFAULT, esCompression.getStats()));
+            return consumer.get();
+        });
+        request.setOptions(options);
 
-        PageInfo<T> pageInfo = new PageInfo<>();
+        EsCall event = EsCall.begin();
+        long admissionStart = System.nanoTime();
+        EsAdmissionService.Permit permit = acquire(logical, operation, deadline);
+        boolean sampled = queryRecorder.sample();
+        long start = System.nanoTime();
+        // 实际发出的请求与对应的取消句柄，模板丢失改发完整请求体后指向新的请求
+        AtomicReference<Request> sent = new AtomicReference<>(request);
+        AtomicReference<Cancellable> cancellable = new AtomicReference<>();
+        Cancellable first = restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                permit.release(null);
+                SearchHitsParser<T> parser = consumer.get().getParser();
+                long nanos = System.nanoTime() - start;
+                commit(event, operation, logical, fingerprint, future.getOpaqueId(), sent.get(), start - admissionStart, consumer.get(), null);
+                esMetrics.search(operation, logical, nanos, sent.get().getEntity().getContentLength(), parser);
+                esQueryStatsService.record(operation, logical, fingerprint, source, nanos, parser.getTook(), parser.getHitCount());
+                if (Objects.nonNull(parser.getProfile())) {
+                    esProfileService.record(operation, logical, fingerprint, parser.getTook(), parser.getProfile());
+                }
+                if (sampled) {
+                    record(operation, index, searchSourceBuilder, source.get(), start, parser, null);
+                }
+                future.complete(parser);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (templated && sent.get() == request && esSearchTemplateService.isMissing(e) && !future.isDone()) {
+                    // 模板在集群中不存在（如从快照恢复）：标记重新注册，本次沿用准入许可改发完整请求体
+                    esSearchTemplateService.invalidate(template.getId());
+                    Request fallback = new Request("POST", "/" + index + "/_search");
+                    request.getParameters().forEach(fallback::addParameter);
+                    fallback.setJsonEntity(source.get());
+                    fallback.setOptions(request.getOptions());
+                    sent.set(fallback);
+                    cancellable.set(restClient.performRequestAsync(fallback, this));
+                    return;
+                }
+                permit.release(e);
+                esMetrics.failure(operation, logical, System.nanoTime() - start, e);
+                commit(event, operation, logical, fingerprint, future.getOpaqueId(), sent.get(), start - admissionStart, consumer.get(), e);
+                if (sampled) {
+                    record(operation, index, searchSourceBuilder, source.get(), start, null, e);
+                }
+                future.completeExceptionally(e);
+            }
+        });
+        cancellable.compareAndSet(null, first);
+        return expireAt(operation, deadline, future.onCancel(() -> {
+            cancellable.get().cancel();
+            esTaskService.cancelSearch(future.getOpaqueId());
+        }));
+    }
+
+    /**
+     * 提交查询的 JFR 事件，未开启录制时不计算字段
+     */
+    private void commit(EsCall event, EsOperation operation, String index, QueryFingerprint fingerprint, String opaqueId, Request request,
+                        long admissionNanos, StreamingSearchResponseConsumer<?> consumer, Exception e) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.index = index;
+        event.operation = operation.name();
+        event.fingerprint = fingerprint.getId();
+        event.opaqueId = opaqueId;
+        event.requestBytes = request.getEntity().getContentLength();
+        event.admissionWait = admissionNanos;
+        if (Objects.nonNull(consumer)) {
+            event.responseBytes = consumer.getParser().getBytes();
+            event.hits = consumer.getParser().getHitCount();
+            event.took = consumer.getParser().getTook();
+            event.timeToFirstByte = consumer.getTimeToFirstByteNanos();
+            event.decode = consumer.getDecodeNanos();
+        }
+        event.error = Objects.isNull(e) ? null : e.getClass().getSimpleName();
+        event.commit();
+    }
+
+    /**
+     * 申请准入许可，被拒绝时计入错误指标
+     */
+    private EsAdmissionService.Permit acquire(String index, EsOperation operation, Deadline deadline) {
         try {
-            SearchResponse search = restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
-            SearchHits searchHits = search.getHits();
-            SearchHit[] hits = searchHits.getHits();
-            List<T> result = new ArrayList<>();
-            for (SearchHit hit : hits) {
-                T data = JSON.parseObject(hit.getSourceAsString(), clazz);
-                result.add(data);
+            return esAdmissionService.acquire(index, operation, deadline);
+        } catch (RuntimeException e) {
+            esMetrics.failure(operation, index, 0, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 记录采样查询
+     */
+    private void record(EsOperation operation, String index, SearchSourceBuilder searchSourceBuilder, String source, long start, SearchHitsParser<?> parser, Exception e) {
+        int size = Math.max(searchSourceBuilder.size(), 1);
+        queryRecorder.record(CapturedQuery.builder()
+                .timestamp(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .operation(operation.name())
+                .index(index)
+                .source(source)
+                .pageNum(Math.max(searchSourceBuilder.from(), 0) / size + 1)
+                .pageSize(searchSourceBuilder.size())
+                .took(Objects.isNull(parser) ? -1 : parser.getTook())
+                .latencyMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start))
+                .hits(Objects.isNull(parser) ? 0 : parser.getHitCount())
+                .total(Objects.isNull(parser) ? -1 : parser.getTotal())
+                .error(Objects.isNull(e) ? null : e.getClass().getSimpleName())
+                .build());
+    }
+
+    /**
+     * ES批量写入
+     *
+     * @param index      写入索引
+     * @param documents  文档集合
+     * @param idFunction 文档 id 提取函数，返回 null 时由 ES 生成 id
+     * @param <T>        泛型
+     * @return 写入结果
+     */
+    public <T> BulkResult bulkSave(String index, List<T> documents, Function<T, String> idFunction) {
+        Deadline deadline = deadline(EsOperation.BULK).check(EsOperation.BULK);
+        BulkResult result = BulkResult.builder().total(documents.size()).build();
+        EsCall event = EsCall.begin();
+        long admissionStart = System.nanoTime();
+        String logical = rolloverIndexService.logicalIndex(index);
+        EsAdmissionService.Permit permit = acquire(logical, EsOperation.BULK, deadline);
+        long start = System.nanoTime();
+        event.admissionWait = start - admissionStart;
+        LeanBody requestBody = null;
+        try {
+            // 走低级客户端直接构建 NDJSON 请求体，写入池化的堆外缓冲区，大请求体可按阈值 gzip 压缩
+            Request request = new Request("POST", "/_bulk");
+            request.addParameter("timeout", deadline.serverTimeout(serverMarginMillis).getStringRep());
+            if (filterPathEnabled) {
+                FilterPath.BULK.apply(request);
             }
+            requestBody = bulkBody(index, documents, idFunction);
+            long requestBytes = requestBody.length();
+            request.setEntity(esCompression.entity(requestBody.getBody(), ND_JSON));
+            deadline.check(EsOperation.BULK);
+            request.setOptions(requestOptions());
+            Response response = perform(EsOperation.BULK, deadline, request);
+            // 正常返回即已收到完整响应，请求体必已发送完毕
+            requestBody.release();
 
-            pageInfo.setTotal(searchHits.getTotalHits().value);
-            pageInfo.setPageNum(pager.getPageNum());
-            pageInfo.setPageSize(pager.getPageSize());
-            pageInfo.setList(result);
-        } catch (IOException e) {
-            log.error("查询失败",e.getMessage(), e);
+            // 同步调用返回时响应体已缓冲完毕，包含响应体传输耗时
+            event.timeToFirstByte = System.nanoTime() - start;
+            byte[] responseBody = EntityUtils.toByteArray(response.getEntity());
+            long decodeStart = System.nanoTime();
+            JSONObject body = JSON.parseObject(new String(responseBody, StandardCharsets.UTF_8));
+            result.setTook(body.getLongValue("took"));
+            JSONArray items = body.getJSONArray("items");
+            if (body.getBooleanValue("errors") && Objects.nonNull(items)) {
+                // 响应不含 _id，结果与请求中的文档按位置一一对应
+                for (int i = 0; i < items.size() && i < documents.size(); i++) {
+                    JSONObject item = items.getJSONObject(i).getJSONObject("index");
+                    if (Objects.nonNull(item) && Objects.nonNull(item.get("error"))) {
+                        result.getFailures().add(BulkResult.Failure.builder()
+                                .id(idFunction.apply(documents.get(i)))
+                                .status(item.getIntValue("status"))
+                                .reason(item.getJSONObject("error").getString("reason"))
+                                .build());
+                    }
+                }
+            }
+            // 部分文档被写入线程池拒绝同样视为集群反压
+            permit.release(result.getFailures().stream().anyMatch(f -> f.getStatus() == RestStatus.TOO_MANY_REQUESTS.getStatus()));
+            event.decode = System.nanoTime() - decodeStart;
+            esMetrics.bulk(logical, System.nanoTime() - start, requestBytes, responseBody.length, result);
+            event.end();
+            if (event.shouldCommit()) {
+                event.index = logical;
+                event.operation = EsOperation.BULK.name();
+                event.requestBytes = requestBytes;
+                event.responseBytes = responseBody.length;
+                event.hits = result.getTotal() - result.getFailures().size();
+                event.took = result.getTook();
+                event.error = result.hasFailures() ? "BulkItemFailures" : null;
+                event.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (Objects.nonNull(requestBody)) {
+                // 超时、线程被中断等异常返回时请求可能仍在 I/O 线程中发送，不能归还到池；已归还时无效果
+                requestBody.discard();
+            }
+            permit.release(e);
+            esMetrics.failure(EsOperation.BULK, logical, System.nanoTime() - start, e);
+            event.end();
+            if (event.shouldCommit()) {
+                event.index = logical;
+                event.operation = EsOperation.BULK.name();
+                event.error = e.getClass().getSimpleName();
+                event.commit();
+            }
+            deadline.check(EsOperation.BULK);
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            log.error("批量写入失败", e);
+            throw new CustomException("批量写入失败：".concat(String.valueOf(e.getMessage())));
+        }
+        return result;
+    }
+
+    /**
+     * 构建 bulk NDJSON 请求体：动作行按字节拼接，文档由 fastjson 直接写入池化缓冲区，由调用方在请求结束后归还
+     */
+    private <T> LeanBody bulkBody(String index, List<T> documents, Function<T, String> idFunction) throws IOException {
+        byte[] action = ("{\"index\":{\"_index\":" + JSON.toJSONString(index)).getBytes(StandardCharsets.UTF_8);
+        LeanBody body = LeanBody.pooled(DirectBufferPool.DEFAULT, documents.size() * 256);
+        try {
+            for (T document : documents) {
+                body.write(action);
+                String id = idFunction.apply(document);
+                if (Objects.nonNull(id)) {
+                    body.write(BULK_ID);
+                    body.writeValue(id);
+                }
+                body.write(BULK_ACTION_END);
+                body.writeJson(document);
+                body.write(NEW_LINE);
+            }
+        } catch (IOException | RuntimeException e) {
+            body.release();
+            throw e;
+        }
+        return body;
+    }
+
+    /**
+     * 按操作类型解析本次调用的截止时间：调用方传入的截止时间与操作默认预算取更早者
+     *
+     * @param operation {@link EsOperation}
+     * @return {@link Deadline}
+     */
+    private Deadline deadline(EsOperation operation) {
+        switch (operation) {
+            case EXPORT:
+                return Deadline.resolve(exportBudgetMillis);
+            case BULK:
+                return Deadline.resolve(bulkBudgetMillis);
+            default:
+                return Deadline.resolve(searchBudgetMillis);
+        }
+    }
+
+    /**
+     * 请求参数：接受 gzip 响应。低级客户端 7.6 不支持按请求设置 socket 超时，剩余预算由 {@link #expireAt} 与 {@link #perform} 保证
+     *
+     * @return {@link RequestOptions}
+     */
+    private RequestOptions requestOptions() {
+        return esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()).build();
+    }
+
+    /**
+     * 剩余预算耗尽时以 {@link DeadlineExceededException} 结束异步调用，并中止客户端请求与服务端任务
+     *
+     * @param operation {@link EsOperation}
+     * @param deadline  {@link Deadline}
+     * @param future    {@link CancellableFuture}
+     * @param <T>       泛型
+     * @return future
+     */
+    private static <T> CancellableFuture<T> expireAt(EsOperation operation, Deadline deadline, CancellableFuture<T> future) {
+        ScheduledFuture<?> timer = DEADLINE_TIMER.schedule(
+                () -> future.abort(new DeadlineExceededException("请求超时预算已耗尽：".concat(operation.name()))),
+                deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        future.whenComplete((value, e) -> timer.cancel(false));
+        return future;
+    }
+
+    /**
+     * 同步执行请求，剩余预算耗尽或调用线程被中断时中止请求
+     *
+     * @param operation {@link EsOperation}
+     * @param deadline  {@link Deadline}
+     * @param request   {@link Request}
+     * @return {@link Response}
+     */
+    private Response perform(EsOperation operation, Deadline deadline, Request request) throws IOException {
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        Cancellable cancellable = restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response result) {
+                response.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                response.completeExceptionally(e);
+            }
+        });
+        try {
+            return response.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancellable.cancel();
+            throw new DeadlineExceededException("请求超时预算已耗尽：".concat(operation.name()));
+        } catch (InterruptedException e) {
+            cancellable.cancel();
+            Thread.currentThread().interrupt();
+            throw new CustomException("请求已取消：".concat(operation.name()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
         }
-        return pageInfo;
     }
 }
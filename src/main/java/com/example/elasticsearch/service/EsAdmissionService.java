@@ -0,0 +1,208 @@
+package com.example.elasticsearch.service;
+
+import com.example.elasticsearch.config.EsAdmissionProperties;
+import com.example.elasticsearch.es.Deadline;
+import com.example.elasticsearch.es.EsCaller;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.exception.AdmissionRejectedException;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ES 客户端准入控制：按 索引+操作类型、调用方 进行令牌桶限流与并发限制，
+ * 集群返回 429 / 队列拒绝时自动下调速率，恢复后逐步回升
+ *
+ */
+@Service
+@Slf4j
+public class EsAdmissionService {
+
+    @Autowired
+    private EsAdmissionProperties properties;
+
+    private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 申请执行许可，等待时间不超过排队上限与剩余预算，超时直接拒绝
+     *
+     * @param index     索引
+     * @param operation {@link EsOperation}
+     * @param deadline  {@link Deadline}
+     * @return {@link Permit} 调用结束后必须释放
+     */
+    public Permit acquire(final String index, final EsOperation operation, final Deadline deadline) {
+        if (!properties.isEnabled()) {
+            return Permit.NONE;
+        }
+        long waitMillis = Math.min(properties.getQueueTimeoutMillis(), deadline.remainingMillis());
+        List<Limiter> acquired = new ArrayList<>(2);
+        try {
+            String caller = EsCaller.current();
+            if (StringUtils.isNotBlank(caller) && properties.getLimits().containsKey("caller:" + caller)) {
+                Limiter callerLimiter = limiter("caller:" + caller);
+                callerLimiter.acquire(waitMillis);
+                acquired.add(callerLimiter);
+            }
+            Limiter limiter = limiter(index + ":" + operation.name());
+            limiter.acquire(waitMillis);
+            acquired.add(limiter);
+        } catch (RuntimeException e) {
+            acquired.forEach(Limiter::release);
+            throw e;
+        }
+        return new Permit(acquired);
+    }
+
+    private Limiter limiter(final String key) {
+        return limiters.computeIfAbsent(key, k -> {
+            EsAdmissionProperties.Limit limit = properties.getLimits().get(k);
+            if (Objects.isNull(limit)) {
+                // 未单独配置索引时，尝试按操作类型通配：*:EXPORT
+                limit = properties.getLimits().getOrDefault("*" + k.substring(k.lastIndexOf(':')), properties.getDefaults());
+            }
+            return new Limiter(k, limit, properties);
+        });
+    }
+
+    /**
+     * 判断异常是否为集群反压：HTTP 429 或线程池队列拒绝
+     *
+     * @param e {@link Throwable}
+     * @return true 集群反压
+     */
+    public static boolean isPushback(Throwable e) {
+        for (Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchException && ((ElasticsearchException) cause).status() == RestStatus.TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (cause instanceof ResponseException
+                    && ((ResponseException) cause).getResponse().getStatusLine().getStatusCode() == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+                return true;
+            }
+            if (StringUtils.contains(cause.getMessage(), "es_rejected_execution_exception")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行许可
+     */
+    public static final class Permit {
+        static final Permit NONE = new Permit(Collections.emptyList());
+
+        private final List<Limiter> limiters;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(List<Limiter> limiters) {
+            this.limiters = limiters;
+        }
+
+        /**
+         * 释放许可，并按调用结果调整限流速率
+         *
+         * @param failure 调用异常，成功时为 null
+         */
+        public void release(Throwable failure) {
+            release(Objects.nonNull(failure) && isPushback(failure));
+        }
+
+        /**
+         * 释放许可，并按是否发生集群反压调整限流速率
+         *
+         * @param pushback true 集群反压
+         */
+        public void release(boolean pushback) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            for (Limiter limiter : limiters) {
+                if (pushback) {
+                    limiter.onPushback();
+                } else {
+                    limiter.onSuccess();
+                }
+                limiter.release();
+            }
+        }
+    }
+
+    /**
+     * 单个 key 的令牌桶与并发限制
+     */
+    static final class Limiter {
+        private final String key;
+        private final double configuredRate;
+        private final RateLimiter rateLimiter;
+        private final Semaphore semaphore;
+        private final AtomicInteger successes = new AtomicInteger();
+        private final EsAdmissionProperties properties;
+
+        Limiter(String key, EsAdmissionProperties.Limit limit, EsAdmissionProperties properties) {
+            this.key = key;
+            this.configuredRate = limit.getPermitsPerSecond();
+            this.rateLimiter = RateLimiter.create(configuredRate);
+            this.semaphore = new Semaphore(limit.getMaxConcurrency(), true);
+            this.properties = properties;
+        }
+
+        void acquire(long waitMillis) {
+            long start = System.nanoTime();
+            if (!rateLimiter.tryAcquire(1, waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new AdmissionRejectedException("ES 请求速率超限：".concat(key));
+            }
+            long left = Math.max(0, waitMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            try {
+                if (!semaphore.tryAcquire(left, TimeUnit.MILLISECONDS)) {
+                    throw new AdmissionRejectedException("ES 并发请求超限：".concat(key));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AdmissionRejectedException("等待 ES 并发许可时被中断：".concat(key));
+            }
+        }
+
+        void release() {
+            semaphore.release();
+        }
+
+        synchronized void onPushback() {
+            double rate = Math.max(1, rateLimiter.getRate() * properties.getBackoffFactor());
+            rateLimiter.setRate(rate);
+            successes.set(0);
+            log.warn("ES 集群反压，下调限流速率 {} -> {}/s", key, rate);
+        }
+
+        void onSuccess() {
+            if (rateLimiter.getRate() < configuredRate && successes.incrementAndGet() >= properties.getRecoverAfter()) {
+                synchronized (this) {
+                    double rate = Math.min(configuredRate, rateLimiter.getRate() + configuredRate * 0.1);
+                    rateLimiter.setRate(rate);
+                    successes.set(0);
+                    log.info("ES 限流速率回升 {} -> {}/s", key, rate);
+                }
+            }
+        }
+    }
+}
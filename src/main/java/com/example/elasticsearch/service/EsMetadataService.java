@@ -0,0 +1,360 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.es.ClusterMetadata;
+import com.example.elasticsearch.es.http.EsCompression;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 集群元数据缓存：只拉取所需的 cluster state 片段（metric + filter_path），按版本号增量刷新，
+ * 索引解析、字段类型判断等热点路径只读内存快照，不发起 ES 请求
+ *
+ */
+@Service
+@Slf4j
+public class EsMetadataService {
+    /**
+     * 每次拉取 mapping 的索引数量
+     */
+    private static final int MAPPING_BATCH = 50;
+
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsCompression esCompression;
+
+    /**
+     * 是否开启元数据缓存
+     */
+    @Value("${elasticsearch.metadata.enabled:true}")
+    private boolean enabled;
+
+    private volatile ClusterMetadata metadata = ClusterMetadata.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            refreshQuietly();
+        }
+    }
+
+    /**
+     * 定时检查 cluster state 版本号，变化时增量刷新
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.metadata.refresh-millis:30000}")
+    public void scheduledRefresh() {
+        if (enabled) {
+            refreshQuietly();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("刷新集群元数据失败，继续使用版本 {} 的缓存", metadata.getVersion(), e);
+        }
+    }
+
+    /**
+     * 刷新元数据：版本号未变化时直接返回；否则只重新拉取 mapping 版本变化的索引
+     *
+     * @return {@link ClusterMetadata}
+     */
+    public synchronized ClusterMetadata refresh() throws IOException {
+        ClusterMetadata current = metadata;
+        long version = get("/_cluster/state/version", "version").getLongValue("version");
+        if (version == current.getVersion()) {
+            return current;
+        }
+
+        JSONObject state = get("/_cluster/state/version,metadata,nodes",
+                "version,nodes.*.name,metadata.indices.*.state,metadata.indices.*.mapping_version,metadata.indices.*.aliases,"
+                        + "metadata.indices.*.settings.index.sort");
+        JSONObject indices = state.getJSONObject("metadata") == null ? null : state.getJSONObject("metadata").getJSONObject("indices");
+
+        Map<String, ClusterMetadata.IndexMetadata> result = new HashMap<>();
+        Map<String, Set<String>> aliases = new HashMap<>();
+        List<String> changed = new ArrayList<>();
+        if (Objects.nonNull(indices)) {
+            for (String index : indices.keySet()) {
+                JSONObject meta = indices.getJSONObject(index);
+                long mappingVersion = meta.getLongValue("mapping_version");
+                Set<String> indexAliases = new TreeSet<>();
+                if (Objects.nonNull(meta.getJSONArray("aliases"))) {
+                    indexAliases.addAll(meta.getJSONArray("aliases").toJavaList(String.class));
+                }
+                for (String alias : indexAliases) {
+                    aliases.computeIfAbsent(alias, k -> new TreeSet<>()).add(index);
+                }
+                ClusterMetadata.IndexMetadata cached = current.getIndices().get(index);
+                Map<String, String> fieldTypes;
+                if (Objects.nonNull(cached) && cached.getMappingVersion() == mappingVersion) {
+                    fieldTypes = cached.getFieldTypes();
+                } else {
+                    fieldTypes = Collections.emptyMap();
+                    changed.add(index);
+                }
+                List<String> sortFields = Collections.emptyList();
+                List<String> sortOrders = Collections.emptyList();
+                JSONObject settings = meta.getJSONObject("settings");
+                JSONObject sort = Objects.isNull(settings) || Objects.isNull(settings.getJSONObject("index"))
+                        ? null : settings.getJSONObject("index").getJSONObject("sort");
+                if (Objects.nonNull(sort)) {
+                    sortFields = stringList(sort.get("field"));
+                    sortOrders = stringList(sort.get("order"));
+                }
+                result.put(index, new ClusterMetadata.IndexMetadata(index, meta.getString("state"), mappingVersion, indexAliases, fieldTypes,
+                        sortFields, sortOrders));
+            }
+        }
+
+        for (int i = 0; i < changed.size(); i += MAPPING_BATCH) {
+            List<String> batch = changed.subList(i, Math.min(i + MAPPING_BATCH, changed.size()));
+            JSONObject mappings = get("/" + String.join(",", batch) + "/_mapping", "*.mappings.properties");
+            for (String index : mappings.keySet()) {
+                ClusterMetadata.IndexMetadata meta = result.get(index);
+                JSONObject properties = mappings.getJSONObject(index).getJSONObject("mappings").getJSONObject("properties");
+                if (Objects.isNull(meta) || Objects.isNull(properties)) {
+                    continue;
+                }
+                Map<String, String> fieldTypes = new HashMap<>();
+                flatten("", properties, fieldTypes);
+                result.put(index, new ClusterMetadata.IndexMetadata(index, meta.getState(), meta.getMappingVersion(), meta.getAliases(), fieldTypes,
+                        meta.getSortFields(), meta.getSortOrders()));
+            }
+        }
+
+        List<String> nodes = new ArrayList<>();
+        JSONObject nodeMap = state.getJSONObject("nodes");
+        if (Objects.nonNull(nodeMap)) {
+            for (String nodeId : nodeMap.keySet()) {
+                nodes.add(nodeMap.getJSONObject(nodeId).getString("name"));
+            }
+            Collections.sort(nodes);
+        }
+
+        ClusterMetadata refreshed = new ClusterMetadata(state.getLongValue("version"), result, aliases, nodes);
+        metadata = refreshed;
+        log.info("集群元数据已刷新：版本 {} -> {}，索引 {} 个，重新拉取 mapping {} 个",
+                current.getVersion(), refreshed.getVersion(), result.size(), changed.size());
+        return refreshed;
+    }
+
+    private JSONObject get(String endpoint, String filterPath) throws IOException {
+        Request request = new Request("GET", endpoint);
+        request.addParameter("filter_path", filterPath);
+        request.setOptions(esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()));
+        JSONObject body = JSON.parseObject(EntityUtils.toString(restClient.performRequest(request).getEntity()));
+        return Objects.isNull(body) ? new JSONObject() : body;
+    }
+
+    /**
+     * 索引设置中的单值或数组
+     */
+    private static List<String> stringList(Object value) {
+        if (Objects.isNull(value)) {
+            return Collections.emptyList();
+        }
+        if (value instanceof JSONArray) {
+            return ((JSONArray) value).toJavaList(String.class);
+        }
+        return Collections.singletonList(value.toString());
+    }
+
+    /**
+     * 展开 mapping：对象字段递归，多字段记为 field.sub
+     */
+    private static void flatten(String prefix, JSONObject properties, Map<String, String> fieldTypes) {
+        for (String name : properties.keySet()) {
+            JSONObject field = properties.getJSONObject(name);
+            String path = prefix + name;
+            JSONObject children = field.getJSONObject("properties");
+            if (Objects.nonNull(children)) {
+                fieldTypes.put(path, field.containsKey("type") ? field.getString("type") : "object");
+                flatten(path + ".", children, fieldTypes);
+                continue;
+            }
+            fieldTypes.put(path, field.getString("type"));
+            JSONObject fields = field.getJSONObject("fields");
+            if (Objects.nonNull(fields)) {
+                for (String sub : fields.keySet()) {
+                    fieldTypes.put(path + "." + sub, fields.getJSONObject(sub).getString("type"));
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前缓存的元数据快照
+     *
+     * @return {@link ClusterMetadata}
+     */
+    public ClusterMetadata current() {
+        return metadata;
+    }
+
+    /**
+     * 解析索引名、别名或通配符为具体索引名，只查内存缓存
+     *
+     * @param expression 索引名、别名或通配符，多个用逗号分隔
+     * @return 具体索引名
+     */
+    public Set<String> resolve(String expression) {
+        return resolve(metadata, expression);
+    }
+
+    private static Set<String> resolve(ClusterMetadata current, String expression) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String name : expression.split(",")) {
+            String trimmed = name.trim();
+            if (Regex.isSimpleMatchPattern(trimmed)) {
+                for (String index : current.getIndices().keySet()) {
+                    if (Regex.simpleMatch(trimmed, index)) {
+                        resolved.add(index);
+                    }
+                }
+                for (Map.Entry<String, Set<String>> alias : current.getAliases().entrySet()) {
+                    if (Regex.simpleMatch(trimmed, alias.getKey())) {
+                        resolved.addAll(alias.getValue());
+                    }
+                }
+            } else if (current.getIndices().containsKey(trimmed)) {
+                resolved.add(trimmed);
+            } else {
+                resolved.addAll(current.getAliases().getOrDefault(trimmed, Collections.emptySet()));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * 索引或别名是否存在，只查内存缓存
+     *
+     * @param expression 索引名或别名
+     * @return boolean
+     */
+    public boolean exists(String expression) {
+        return !resolve(expression).isEmpty();
+    }
+
+    /**
+     * 字段类型，只查内存缓存；各索引类型不一致或字段不存在时返回 null
+     *
+     * @param expression 索引名、别名或通配符
+     * @param field      字段路径，如 operationUserName.keyword
+     * @return 字段类型
+     */
+    public String fieldType(String expression, String field) {
+        ClusterMetadata current = metadata;
+        String type = null;
+        for (String index : resolve(current, expression)) {
+            String indexType = current.getIndices().get(index).getFieldTypes().get(field);
+            if (Objects.isNull(indexType) || (Objects.nonNull(type) && !type.equals(indexType))) {
+                return null;
+            }
+            type = indexType;
+        }
+        return type;
+    }
+
+    /**
+     * 字段类型是否为指定类型
+     *
+     * @param expression 索引名、别名或通配符
+     * @param field      字段路径
+     * @param type       字段类型，如 keyword、date
+     * @return boolean
+     */
+    public boolean isType(String expression, String field, String type) {
+        return Objects.equals(type, fieldType(expression, field));
+    }
+
+    /**
+     * 可用于聚合、折叠的 keyword 字段：所有索引中字段本身为 keyword 时返回字段本身，
+     * 都有 keyword 子字段时（动态 mapping 的旧索引）返回 字段.keyword，否则返回 null
+     *
+     * @param expression 索引名、别名或通配符
+     * @param field      字段路径
+     * @return 字段路径
+     */
+    public String keywordField(String expression, String field) {
+        if (isType(expression, field, "keyword")) {
+            return field;
+        }
+        if (isType(expression, field + ".keyword", "keyword")) {
+            return field + ".keyword";
+        }
+        return null;
+    }
+
+    /**
+     * 请求的排序是否与所有目标索引的索引排序一致（为索引排序的前缀），一致时分片可提前终止收集，只查内存缓存
+     *
+     * @param expression   索引名、别名或通配符
+     * @param sortBuilders 请求的排序
+     * @return boolean
+     */
+    public boolean matchesIndexSort(String expression, List<SortBuilder<?>> sortBuilders) {
+        if (Objects.isNull(sortBuilders) || sortBuilders.isEmpty()) {
+            return false;
+        }
+        ClusterMetadata current = metadata;
+        Set<String> indices = resolve(current, expression);
+        if (indices.isEmpty()) {
+            return false;
+        }
+        for (String index : indices) {
+            ClusterMetadata.IndexMetadata meta = current.getIndices().get(index);
+            if (meta.getSortFields().size() < sortBuilders.size()) {
+                return false;
+            }
+            for (int i = 0; i < sortBuilders.size(); i++) {
+                if (!(sortBuilders.get(i) instanceof FieldSortBuilder)) {
+                    return false;
+                }
+                FieldSortBuilder sort = (FieldSortBuilder) sortBuilders.get(i);
+                // index.sort.order 缺省为 asc
+                String order = i < meta.getSortOrders().size() ? meta.getSortOrders().get(i) : "asc";
+                if (!sort.getFieldName().equals(meta.getSortFields().get(i)) || !sort.order().toString().equals(order)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 节点名列表
+     *
+     * @return {@link List}
+     */
+    public List<String> nodes() {
+        return metadata.getNodes();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.es.QueryFingerprint;
+import com.example.elasticsearch.es.metrics.EsMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 线上查询采样 profile：按比例或按指纹为查询加上 profile: true，解析各分片的 query / rewrite / collector 耗时，
+ * 定位最耗时的查询子句，写入指标与 es.profile 结构化日志
+ *
+ */
+@Service
+public class EsProfileService {
+    /**
+     * profile 结构化日志，每行一个 JSON
+     */
+    private static final Logger PROFILE_LOG = LoggerFactory.getLogger("es.profile");
+    /**
+     * 每个分片记录的最耗时子句数
+     */
+    private static final int TOP_CLAUSES = 5;
+    private static final int DESCRIPTION_LIMIT = 500;
+
+    @Autowired
+    private EsMetrics esMetrics;
+
+    /**
+     * 采样比例 0-1，0 为关闭
+     */
+    @Value("${elasticsearch.profile.sample-rate:0}")
+    private double sampleRate;
+    /**
+     * 始终 profile 的查询指纹，多个用逗号分隔
+     */
+    @Value("${elasticsearch.profile.fingerprints:}")
+    private String fingerprints;
+
+    private Set<String> targets = Collections.emptySet();
+
+    @PostConstruct
+    public void init() {
+        targets = Stream.of(StringUtils.split(Objects.toString(fingerprints, ""), ','))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 本次查询是否 profile
+     *
+     * @param source 请求体
+     * @return boolean
+     */
+    public boolean sample(String source) {
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return true;
+        }
+        return !targets.isEmpty() && targets.contains(QueryFingerprint.of(source).getId());
+    }
+
+    /**
+     * 本次查询是否 profile，指纹已由调用方计算
+     *
+     * @param fingerprint 查询指纹
+     * @return boolean
+     */
+    public boolean sample(QueryFingerprint fingerprint) {
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return true;
+        }
+        return targets.contains(fingerprint.getId());
+    }
+
+    /**
+     * 解析并记录 profile 结果
+     *
+     * @param operation {@link EsOperation}
+     * @param index     索引
+     * @param source    请求体（不含 profile 参数）
+     * @param took      服务端耗时（毫秒）
+     * @param profile   响应中的 profile
+     */
+    public void record(EsOperation operation, String index, String source, long took, JSONObject profile) {
+        record(operation, index, QueryFingerprint.of(source), took, profile);
+    }
+
+    /**
+     * 解析并记录 profile 结果
+     *
+     * @param operation   {@link EsOperation}
+     * @param index       索引
+     * @param fingerprint 查询指纹
+     * @param took        服务端耗时（毫秒）
+     * @param profile     响应中的 profile
+     */
+    public void record(EsOperation operation, String index, QueryFingerprint fingerprint, long took, JSONObject profile) {
+        JSONArray shards = profile.getJSONArray("shards");
+        if (Objects.isNull(shards)) {
+            return;
+        }
+        List<Map<String, Object>> shardLogs = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            JSONObject shard = shards.getJSONObject(i);
+            long queryNanos = 0;
+            long rewriteNanos = 0;
+            long collectorNanos = 0;
+            List<Clause> clauses = new ArrayList<>();
+            JSONArray searches = shard.getJSONArray("searches");
+            for (int j = 0; Objects.nonNull(searches) && j < searches.size(); j++) {
+                JSONObject search = searches.getJSONObject(j);
+                rewriteNanos += search.getLongValue("rewrite_time");
+                JSONArray queries = search.getJSONArray("query");
+                for (int k = 0; Objects.nonNull(queries) && k < queries.size(); k++) {
+                    queryNanos += queries.getJSONObject(k).getLongValue("time_in_nanos");
+                    flatten(queries.getJSONObject(k), 0, clauses);
+                }
+                JSONArray collectors = search.getJSONArray("collector");
+                for (int k = 0; Objects.nonNull(collectors) && k < collectors.size(); k++) {
+                    collectorNanos += collectors.getJSONObject(k).getLongValue("time_in_nanos");
+                }
+            }
+            esMetrics.profileShard(operation, index, queryNanos, rewriteNanos, collectorNanos);
+            for (Clause clause : clauses) {
+                esMetrics.profileClause(operation, index, clause.type, clause.selfNanos);
+            }
+            clauses.sort(Comparator.comparingLong((Clause c) -> c.selfNanos).reversed());
+
+            Map<String, Object> shardLog = new LinkedHashMap<>();
+            shardLog.put("shard", shard.getString("id"));
+            shardLog.put("queryMillis", queryNanos / 1e6);
+            shardLog.put("rewriteMillis", rewriteNanos / 1e6);
+            shardLog.put("collectorMillis", collectorNanos / 1e6);
+            shardLog.put("topClauses", clauses.subList(0, Math.min(TOP_CLAUSES, clauses.size())).stream()
+                    .map(Clause::toLog).collect(Collectors.toList()));
+            shardLogs.add(shardLog);
+        }
+
+        Map<String, Object> log = new LinkedHashMap<>();
+        log.put("fingerprint", fingerprint.getId());
+        log.put("operation", operation);
+        log.put("index", index);
+        log.put("took", took);
+        log.put("shards", shardLogs);
+        PROFILE_LOG.info(JSON.toJSONString(log));
+    }
+
+    /**
+     * 展开查询树，自身耗时 = 总耗时 - 子查询耗时
+     */
+    private static void flatten(JSONObject query, int depth, List<Clause> clauses) {
+        long nanos = query.getLongValue("time_in_nanos");
+        long childNanos = 0;
+        JSONArray children = query.getJSONArray("children");
+        for (int i = 0; Objects.nonNull(children) && i < children.size(); i++) {
+            childNanos += children.getJSONObject(i).getLongValue("time_in_nanos");
+            flatten(children.getJSONObject(i), depth + 1, clauses);
+        }
+        clauses.add(new Clause(query.getString("type"), query.getString("description"), depth, nanos, Math.max(nanos - childNanos, 0)));
+    }
+
+    private static final class Clause {
+        private final String type;
+        private final String description;
+        private final int depth;
+        private final long nanos;
+        private final long selfNanos;
+
+        Clause(String type, String description, int depth, long nanos, long selfNanos) {
+            this.type = type;
+            this.description = description;
+            this.depth = depth;
+            this.nanos = nanos;
+            this.selfNanos = selfNanos;
+        }
+
+        Map<String, Object> toLog() {
+            Map<String, Object> log = new LinkedHashMap<>();
+            log.put("type", type);
+            log.put("description", StringUtils.abbreviate(description, DESCRIPTION_LIMIT));
+            log.put("depth", depth);
+            log.put("millis", nanos / 1e6);
+            log.put("selfMillis", selfNanos / 1e6);
+            return log;
+        }
+    }
+}
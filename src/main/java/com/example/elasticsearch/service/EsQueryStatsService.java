@@ -0,0 +1,240 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.es.FingerprintStats;
+import com.example.elasticsearch.es.QueryFingerprint;
+import com.example.elasticsearch.exception.CustomException;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 查询指纹统计与客户端慢查询日志：按 索引+指纹 聚合耗时、次数、命中数；
+ * 超过阈值的查询写入 es.slowlog，可选附带 profile 结果
+ *
+ */
+@Service
+@Slf4j
+public class EsQueryStatsService {
+    /**
+     * 慢查询日志，可在日志配置中单独输出到文件
+     */
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("es.slowlog");
+    /**
+     * 超过上限后新指纹归入该项，避免动态拼接查询导致内存无限增长
+     */
+    private static final String OTHER = "other";
+
+    @Autowired
+    private RestClient restClient;
+
+    @Value("${elasticsearch.slow-query.threshold-millis:1000}")
+    private long thresholdMillis;
+    /**
+     * 慢查询是否重新以 profile: true 执行并记录 profile 结果
+     */
+    @Value("${elasticsearch.slow-query.profile:false}")
+    private boolean profile;
+    /**
+     * 最多统计的指纹数
+     */
+    @Value("${elasticsearch.slow-query.max-fingerprints:1000}")
+    private int maxFingerprints;
+
+    /**
+     * 限制 profile 重新执行的频率，避免慢查询时进一步加重集群负担
+     */
+    private final RateLimiter profileLimiter = RateLimiter.create(0.2);
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次查询
+     *
+     * @param operation {@link EsOperation}
+     * @param index     索引
+     * @param source    请求体
+     * @param nanos     客户端观测耗时
+     * @param took      服务端耗时（毫秒）
+     * @param hits      返回命中数
+     */
+    public void record(EsOperation operation, String index, String source, long nanos, long took, int hits) {
+        QueryFingerprint fingerprint;
+        try {
+            fingerprint = QueryFingerprint.of(source);
+        } catch (RuntimeException e) {
+            log.warn("计算查询指纹失败", e);
+            return;
+        }
+        record(operation, index, fingerprint, () -> source, nanos, took, hits);
+    }
+
+    /**
+     * 记录一次查询，指纹已由调用方计算
+     *
+     * @param operation   {@link EsOperation}
+     * @param index       索引
+     * @param fingerprint 查询指纹
+     * @param source      请求体，只在慢查询时获取
+     * @param nanos       客户端观测耗时
+     * @param took        服务端耗时（毫秒）
+     * @param hits        返回命中数
+     */
+    public void record(EsOperation operation, String index, QueryFingerprint fingerprint, Supplier<String> source, long nanos, long took, int hits) {
+        String key = index + "|" + fingerprint.getId();
+        Stats stat = stats.get(key);
+        if (Objects.isNull(stat)) {
+            stat = stats.size() < maxFingerprints
+                    ? stats.computeIfAbsent(key, k -> new Stats(index, fingerprint))
+                    : stats.computeIfAbsent(OTHER, k -> new Stats(OTHER, null));
+        }
+        boolean slow = TimeUnit.NANOSECONDS.toMillis(nanos) >= thresholdMillis;
+        stat.add(nanos, took, hits, slow);
+        if (slow) {
+            String body = source.get();
+            SLOW_LOG.warn("慢查询 [{}] {}ms took={}ms hits={} operation={} index={} source={}",
+                    fingerprint.getId(), TimeUnit.NANOSECONDS.toMillis(nanos), took, hits, operation, index, body);
+            if (profile && profileLimiter.tryAcquire()) {
+                profile(index, body, fingerprint);
+            }
+        }
+    }
+
+    /**
+     * 按指定维度排序的前 N 个指纹
+     *
+     * @param top     数量
+     * @param orderBy total 总耗时、count 次数、avg 平均耗时、max 最大耗时、slow 慢查询次数
+     * @return {@link List}
+     */
+    public List<FingerprintStats> top(int top, String orderBy) {
+        if (top < 0) {
+            throw new CustomException("参数【top】不能小于 0");
+        }
+        Comparator<FingerprintStats> comparator;
+        switch (Objects.toString(orderBy, "total")) {
+            case "count":
+                comparator = Comparator.comparingLong(FingerprintStats::getCount);
+                break;
+            case "avg":
+                comparator = Comparator.comparingDouble(FingerprintStats::getAvgMillis);
+                break;
+            case "max":
+                comparator = Comparator.comparingDouble(FingerprintStats::getMaxMillis);
+                break;
+            case "slow":
+                comparator = Comparator.comparingLong(FingerprintStats::getSlowCount);
+                break;
+            default:
+                comparator = Comparator.comparingDouble(FingerprintStats::getTotalMillis);
+        }
+        return stats.values().stream()
+                .map(Stats::snapshot)
+                .sorted(comparator.reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * 以 profile: true 重新执行慢查询，只取 profile 结果
+     */
+    private void profile(String index, String source, QueryFingerprint fingerprint) {
+        JSONObject body = JSON.parseObject(source, Feature.OrderedField);
+        body.put("profile", true);
+        body.put("size", 0);
+        body.remove("from");
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.addParameter("filter_path", "took,profile");
+        request.setJsonEntity(body.toJSONString());
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    SLOW_LOG.warn("慢查询 [{}] profile={}", fingerprint.getId(), EntityUtils.toString(response.getEntity()));
+                } catch (IOException e) {
+                    log.warn("读取 profile 结果失败: {}", fingerprint.getId(), e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                log.warn("profile 慢查询失败: {}", fingerprint.getId(), e);
+            }
+        });
+    }
+
+    private static final class Stats {
+        private final String index;
+        private final QueryFingerprint fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder took = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        Stats(String index, QueryFingerprint fingerprint) {
+            this.index = index;
+            this.fingerprint = fingerprint;
+        }
+
+        void add(long nanos, long took, int hits, boolean slow) {
+            this.count.increment();
+            this.nanos.add(nanos);
+            this.maxNanos.accumulate(nanos);
+            this.took.add(Math.max(took, 0));
+            this.hits.add(hits);
+            if (slow) {
+                this.slow.increment();
+            }
+        }
+
+        FingerprintStats snapshot() {
+            long n = Math.max(count.sum(), 1);
+            double totalMillis = nanos.sum() / 1e6;
+            return FingerprintStats.builder()
+                    .fingerprint(Objects.isNull(fingerprint) ? OTHER : fingerprint.getId())
+                    .index(index)
+                    .shape(Objects.isNull(fingerprint) ? null : fingerprint.getShape())
+                    .count(count.sum())
+                    .totalMillis(totalMillis)
+                    .avgMillis(totalMillis / n)
+                    .maxMillis(maxNanos.get() / 1e6)
+                    .totalTookMillis(took.sum())
+                    .avgHits((double) hits.sum() / n)
+                    .slowCount(slow.sum())
+                    .build();
+        }
+    }
+}
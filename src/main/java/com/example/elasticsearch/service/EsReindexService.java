@@ -0,0 +1,761 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.es.reindex.ReindexProgress;
+import com.example.elasticsearch.es.reindex.ReindexRequest;
+import com.example.elasticsearch.exception.CustomException;
+import com.example.elasticsearch.utils.Maps;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重建索引 / 数据回填：
+ * <ol>
+ *     <li>目标索引写入期间关闭刷新、副本数置 0</li>
+ *     <li>sliced scroll 并行读取源索引，原样写入 bulk，按集群反压自适应限速</li>
+ *     <li>完成后恢复刷新间隔与副本数、刷新、强制合并</li>
+ *     <li>一次 _aliases 请求原子切换别名</li>
+ * </ol>
+ *
+ */
+@Service
+@Slf4j
+public class EsReindexService {
+    private static final ContentType ND_JSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    /**
+     * 创建目标索引时从源索引复制的配置前缀
+     */
+    private static final String[] COPIED_SETTINGS = {"index.number_of_shards", "index.analysis.", "index.sort.", "index.max_ngram_diff"};
+    /**
+     * 429 重试次数上限
+     */
+    private static final int MAX_RETRIES = 8;
+    /**
+     * scroll 只取文档原样写入所需的字段
+     */
+    private static final String HIT_FILTER_PATH = "_scroll_id,hits.hits._id,hits.hits._routing,hits.hits._source";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    /**
+     * 强制合并超过客户端超时后轮询任务状态的间隔
+     */
+    private static final long FORCE_MERGE_POLL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsCompression esCompression;
+    @Autowired
+    private EsMetadataService esMetadataService;
+
+    @Value("${elasticsearch.reindex.slices:4}")
+    private int defaultSlices;
+    @Value("${elasticsearch.reindex.batch-size:1000}")
+    private int defaultBatchSize;
+    @Value("${elasticsearch.reindex.max-docs-per-second:20000}")
+    private int defaultMaxDocsPerSecond;
+    @Value("${elasticsearch.reindex.max-num-segments:1}")
+    private int defaultMaxNumSegments;
+    @Value("${elasticsearch.reindex.scroll-keep-alive:5m}")
+    private String scrollKeepAlive;
+    /**
+     * 单次 bulk 服务端耗时超过该值视为集群繁忙，下调速率
+     */
+    @Value("${elasticsearch.reindex.slow-bulk-millis:2000}")
+    private long slowBulkMillis;
+    /**
+     * 等待强制合并完成的最长时间
+     */
+    @Value("${elasticsearch.reindex.admin-timeout-millis:3600000}")
+    private int adminTimeoutMillis;
+    @Value("${elasticsearch.reindex.progress-log-millis:5000}")
+    private long progressLogMillis;
+
+    private final ConcurrentMap<String, ReindexProgress> tasks = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "es-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        tasks.values().forEach(task -> task.setCancelled(true));
+        executor.shutdownNow();
+    }
+
+    /**
+     * 异步开始重建索引
+     *
+     * @param request {@link ReindexRequest}
+     * @return {@link ReindexProgress}
+     */
+    public ReindexProgress start(ReindexRequest request) {
+        if (StringUtils.isBlank(request.getSource()) || StringUtils.isBlank(request.getTarget())) {
+            throw new CustomException("源索引与目标索引不能为空");
+        }
+        if (Objects.equals(request.getSource(), request.getTarget())) {
+            throw new CustomException("源索引与目标索引不能相同");
+        }
+        boolean running = tasks.values().stream()
+                .anyMatch(t -> !t.isDone() && Objects.equals(t.getTarget(), request.getTarget()));
+        if (running) {
+            throw new CustomException("目标索引正在重建：".concat(request.getTarget()));
+        }
+        ReindexProgress progress = new ReindexProgress();
+        progress.setId(UUID.randomUUID().toString().replace("-", ""));
+        progress.setSource(request.getSource());
+        progress.setTarget(request.getTarget());
+        progress.setAlias(request.getAlias());
+        progress.setStartTime(new Date());
+        tasks.put(progress.getId(), progress);
+        executor.execute(() -> run(request, progress));
+        return progress;
+    }
+
+    public ReindexProgress get(String id) {
+        ReindexProgress progress = tasks.get(id);
+        if (Objects.isNull(progress)) {
+            throw new CustomException("重建任务不存在：".concat(id));
+        }
+        return progress;
+    }
+
+    public Collection<ReindexProgress> list() {
+        return tasks.values();
+    }
+
+    /**
+     * 取消任务：停止读取与写入，恢复目标索引配置，不切换别名
+     *
+     * @param id 任务 id
+     * @return {@link ReindexProgress}
+     */
+    public ReindexProgress cancel(String id) {
+        ReindexProgress progress = get(id);
+        progress.setCancelled(true);
+        return progress;
+    }
+
+    private void run(ReindexRequest request, ReindexProgress progress) {
+        String target = request.getTarget();
+        Map<String, Object> restore = null;
+        try {
+            progress.setPhase(ReindexProgress.Phase.PREPARING);
+            restore = prepareTarget(request.getSource(), target);
+            progress.setTotal(count(request.getSource()));
+
+            progress.setPhase(ReindexProgress.Phase.COPYING);
+            copy(request, progress);
+            if (progress.isCancelled()) {
+                throw new CustomException("任务已取消");
+            }
+
+            progress.setPhase(ReindexProgress.Phase.RESTORING);
+            updateSettings(target, restore);
+            restore = null;
+            perform(new Request("POST", "/" + target + "/_refresh"));
+            long count = count(target);
+            if (progress.getFailed().get() > 0) {
+                throw new CustomException(String.format("%d 个文档写入失败，目标索引 %s 保留，别名未切换",
+                        progress.getFailed().get(), target));
+            }
+            if (count < progress.getCopied().get()) {
+                throw new CustomException(String.format("目标索引文档数 %d 少于已复制文档数 %d，别名未切换", count, progress.getCopied().get()));
+            }
+
+            int maxNumSegments = Objects.isNull(request.getMaxNumSegments()) ? defaultMaxNumSegments : request.getMaxNumSegments();
+            if (maxNumSegments > 0) {
+                progress.setPhase(ReindexProgress.Phase.FORCE_MERGING);
+                forceMerge(target, maxNumSegments);
+            }
+
+            if (StringUtils.isNotBlank(request.getAlias())) {
+                progress.setPhase(ReindexProgress.Phase.SWAPPING);
+                swapAlias(request.getAlias(), target, request.isRemoveOldIndex());
+            }
+            progress.setPhase(ReindexProgress.Phase.SUCCEEDED);
+            progress.setEndTime(new Date());
+            log.info("重建索引完成 {} -> {}：{} 个文档，耗时 {} ms，平均 {} 文档/秒", request.getSource(), target,
+                    progress.getCopied().get(), progress.getElapsedMillis(), progress.getDocsPerSecond());
+        } catch (IOException | RuntimeException e) {
+            progress.setError(String.valueOf(e.getMessage()));
+            progress.setPhase(ReindexProgress.Phase.FAILED);
+            progress.setEndTime(new Date());
+            log.error("重建索引失败 {} -> {}", request.getSource(), target, e);
+            if (Objects.nonNull(restore)) {
+                try {
+                    updateSettings(target, restore);
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("恢复目标索引配置失败：{}", target, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 目标索引不存在时按源索引创建；写入前关闭刷新、副本数置 0
+     *
+     * @return 完成后需恢复的配置，值为 null 时恢复为默认值
+     */
+    private Map<String, Object> prepareTarget(String source, String target) throws IOException {
+        // 值为 null 时恢复为默认值
+        Map<String, Object> restore = new LinkedHashMap<>();
+        Map<String, Object> loading = Maps.ofSO()
+                .put(REFRESH_INTERVAL, "-1")
+                .put(NUMBER_OF_REPLICAS, 0)
+                .build();
+        if (exists("/" + target)) {
+            JSONObject settings = flatSettings(target);
+            restore.put(REFRESH_INTERVAL, settings.get(REFRESH_INTERVAL));
+            restore.put(NUMBER_OF_REPLICAS, settings.get(NUMBER_OF_REPLICAS));
+            updateSettings(target, loading);
+        } else {
+            JSONObject settings = flatSettings(source);
+            Map<String, Object> created = new LinkedHashMap<>(loading);
+            for (String key : settings.keySet()) {
+                for (String prefix : COPIED_SETTINGS) {
+                    if (key.startsWith(prefix)) {
+                        created.put(key, settings.get(key));
+                    }
+                }
+            }
+            JSONObject mappings = perform(new Request("GET", "/" + source + "/_mapping"));
+            if (mappings.isEmpty()) {
+                throw new CustomException("源索引不存在：".concat(source));
+            }
+            Request create = new Request("PUT", "/" + target);
+            create.setJsonEntity(Maps.ofSO()
+                    .put("settings", created)
+                    .put("mappings", mappings.getJSONObject(mappings.keySet().iterator().next()).getJSONObject("mappings"))
+                    .json());
+            perform(create);
+            restore.put(REFRESH_INTERVAL, settings.get(REFRESH_INTERVAL));
+            restore.put(NUMBER_OF_REPLICAS, settings.get(NUMBER_OF_REPLICAS));
+            log.info("已按源索引 {} 创建目标索引 {}", source, target);
+        }
+        return restore;
+    }
+
+    /**
+     * 并行读取所有切片，全部完成后返回
+     */
+    private void copy(ReindexRequest request, ReindexProgress progress) throws IOException {
+        int slices = Math.max(1, Objects.isNull(request.getSlices()) ? defaultSlices : request.getSlices());
+        int batchSize = Math.max(1, Objects.isNull(request.getBatchSize()) ? defaultBatchSize : request.getBatchSize());
+        int maxDocsPerSecond = Objects.isNull(request.getMaxDocsPerSecond()) ? defaultMaxDocsPerSecond : request.getMaxDocsPerSecond();
+        Throttle throttle = new Throttle(Math.max(batchSize, maxDocsPerSecond), progress);
+        AtomicLong lastLog = new AtomicLong(System.nanoTime());
+
+        List<Future<?>> futures = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            final int slice = i;
+            futures.add(executor.submit(() -> {
+                copySlice(request.getSource(), request.getTarget(), slice, slices, batchSize, throttle, progress, lastLog);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.setCancelled(true);
+            throw new CustomException("重建索引被中断");
+        } catch (ExecutionException e) {
+            // 一个切片失败即停止其他切片
+            progress.setCancelled(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new CustomException(String.valueOf(cause));
+        }
+    }
+
+    private void copySlice(String source, String target, int slice, int slices, int batchSize, Throttle throttle,
+                           ReindexProgress progress, AtomicLong lastLog) throws IOException {
+        Request search = new Request("POST", "/" + source + "/_search");
+        search.addParameter("scroll", scrollKeepAlive);
+        search.addParameter("filter_path", HIT_FILTER_PATH);
+        search.setJsonEntity(Maps.ofSO()
+                .put(slices > 1, "slice", Maps.ofSO().put("id", slice).put("max", slices).build())
+                .put("size", batchSize)
+                .put("sort", Collections.singletonList("_doc"))
+                .json());
+        ScrollPage page = scrollPage(search);
+        String scrollId = page.scrollId;
+        try {
+            while (!progress.isCancelled() && !page.docs.isEmpty()) {
+                write(target, page.docs, throttle, progress);
+                logProgress(progress, throttle, lastLog);
+
+                Request scroll = new Request("POST", "/_search/scroll");
+                scroll.addParameter("filter_path", HIT_FILTER_PATH);
+                scroll.setJsonEntity(Maps.ofSO().put("scroll", scrollKeepAlive).put("scroll_id", scrollId).json());
+                page = scrollPage(scroll);
+                scrollId = StringUtils.defaultIfBlank(page.scrollId, scrollId);
+            }
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    /**
+     * 流式解析一页 scroll 结果：_source 按原始字节区间截取，不经对象模型重新序列化，字段顺序与数值写法不变
+     */
+    private ScrollPage scrollPage(Request request) throws IOException {
+        byte[] bytes = performBytes(request);
+        ScrollPage page = new ScrollPage();
+        if (bytes.length == 0) {
+            return page;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return page;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("_scroll_id".equals(name)) {
+                    page.scrollId = parser.getText();
+                } else if ("hits".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        boolean hits = "hits".equals(parser.getCurrentName());
+                        if (parser.nextToken() == JsonToken.START_ARRAY && hits) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                page.docs.add(readHit(parser, bytes));
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    private static Doc readHit(JsonParser parser, byte[] bytes) throws IOException {
+        String id = null;
+        String routing = null;
+        byte[] source = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("_id".equals(name)) {
+                id = parser.getText();
+            } else if ("_routing".equals(name)) {
+                routing = parser.getText();
+            } else if ("_source".equals(name) && value == JsonToken.START_OBJECT) {
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                source = Arrays.copyOfRange(bytes, start, (int) parser.getCurrentLocation().getByteOffset());
+                // 按原格式存储的 _source 可能含换行；JSON 字符串内的换行必为转义形式，原始换行只会是空白，替换为空格保持 NDJSON 单行
+                for (int i = 0; i < source.length; i++) {
+                    if (source[i] == '\n' || source[i] == '\r') {
+                        source[i] = ' ';
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (Objects.isNull(source)) {
+            throw new CustomException("文档未存储 _source，无法重建：".concat(String.valueOf(id)));
+        }
+        return new Doc(id, routing, source);
+    }
+
+    /**
+     * 写入一批文档：按速率取令牌后 bulk，被拒绝（429）的文档退避后重试
+     */
+    private void write(String target, List<Doc> docs, Throttle throttle, ReindexProgress progress) throws IOException {
+        List<Doc> pending = docs;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (progress.isCancelled()) {
+                return;
+            }
+            if (attempt > 0) {
+                backoff(attempt);
+                progress.getRetried().addAndGet(pending.size());
+            }
+            throttle.acquire(pending.size());
+            Request request = new Request("POST", "/_bulk");
+            request.addParameter("filter_path", "took,errors,items.*.status,items.*.error.reason");
+            request.setEntity(esCompression.entity(bulkBody(target, pending), ND_JSON));
+            JSONObject body;
+            try {
+                body = perform(request);
+            } catch (IOException | RuntimeException e) {
+                if (!EsAdmissionService.isPushback(e) || attempt >= MAX_RETRIES) {
+                    throw e;
+                }
+                throttle.onPushback();
+                continue;
+            }
+
+            List<Doc> rejected = new ArrayList<>();
+            int failed = 0;
+            JSONArray items = body.getJSONArray("items");
+            if (body.getBooleanValue("errors") && Objects.nonNull(items)) {
+                for (int i = 0; i < items.size() && i < pending.size(); i++) {
+                    JSONObject item = items.getJSONObject(i).getJSONObject("index");
+                    if (Objects.isNull(item) || Objects.isNull(item.get("error"))) {
+                        continue;
+                    }
+                    if (item.getIntValue("status") == RestStatus.TOO_MANY_REQUESTS.getStatus() && attempt < MAX_RETRIES) {
+                        rejected.add(pending.get(i));
+                    } else {
+                        failed++;
+                        log.warn("文档写入失败 {}/{}：{}", target, pending.get(i).id, item.getJSONObject("error").getString("reason"));
+                    }
+                }
+            }
+            progress.getCopied().addAndGet(pending.size() - rejected.size() - failed);
+            progress.getFailed().addAndGet(failed);
+            if (!rejected.isEmpty()) {
+                throttle.onPushback();
+            } else {
+                throttle.onSuccess(body.getLongValue("took") > slowBulkMillis);
+            }
+            pending = rejected;
+        }
+    }
+
+    /**
+     * 构建 bulk NDJSON 请求体，_source 原样写入
+     */
+    private static byte[] bulkBody(String target, List<Doc> docs) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(docs.size() * 256);
+        for (Doc doc : docs) {
+            body.write(JSON.toJSONBytes(Maps.bySO("index", Maps.ofSO()
+                    .put("_index", target)
+                    .put("_id", doc.id)
+                    .put(Objects.nonNull(doc.routing), "routing", doc.routing)
+                    .build())));
+            body.write('\n');
+            body.write(doc.source);
+            body.write('\n');
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * 原子切换别名：移除别名当前指向的索引并指向目标索引；别名为实体索引或需删除原索引时在同一请求中删除
+     */
+    private void swapAlias(String alias, String target, boolean removeOldIndex) throws IOException {
+        List<Object> actions = new ArrayList<>();
+        Set<String> members = aliasMembers(alias);
+        if (members.isEmpty() && exists("/" + alias)) {
+            // 别名与现有实体索引同名（如 ems），只能删除该索引后再建别名
+            if (!removeOldIndex) {
+                throw new CustomException(String.format("%s 是实体索引，需设置 removeOldIndex 才能切换为别名", alias));
+            }
+            actions.add(Maps.bySO("remove_index", Maps.bySO("index", alias)));
+        }
+        for (String member : members) {
+            if (Objects.equals(member, target)) {
+                continue;
+            }
+            actions.add(removeOldIndex
+                    ? Maps.bySO("remove_index", Maps.bySO("index", member))
+                    : Maps.bySO("remove", Maps.ofSO().put("index", member).put("alias", alias).build()));
+        }
+        actions.add(Maps.bySO("add", Maps.ofSO().put("index", target).put("alias", alias).build()));
+        Request request = new Request("POST", "/_aliases");
+        request.setJsonEntity(JSON.toJSONString(Maps.bySO("actions", actions)));
+        perform(request);
+        log.info("别名 {} 已切换到 {}，原索引 {}", alias, target, members);
+        esMetadataService.refresh();
+    }
+
+    private Set<String> aliasMembers(String alias) throws IOException {
+        try {
+            return perform(new Request("GET", "/_alias/" + alias)).keySet();
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == RestStatus.NOT_FOUND.getStatus()) {
+                return Collections.emptySet();
+            }
+            throw e;
+        }
+    }
+
+    private void logProgress(ReindexProgress progress, Throttle throttle, AtomicLong lastLog) {
+        long now = System.nanoTime();
+        long last = lastLog.get();
+        if (now - last >= TimeUnit.MILLISECONDS.toNanos(progressLogMillis) && lastLog.compareAndSet(last, now)) {
+            log.info("重建索引 {} -> {}：{}/{} ({}%)，失败 {}，重试 {}，平均 {} 文档/秒，当前限速 {} 文档/秒",
+                    progress.getSource(), progress.getTarget(), progress.getCopied().get(), progress.getTotal(),
+                    String.format("%.1f", progress.getPercent()), progress.getFailed().get(), progress.getRetried().get(),
+                    progress.getDocsPerSecond(), (long) throttle.rate());
+        }
+    }
+
+    private JSONObject flatSettings(String index) throws IOException {
+        Request request = new Request("GET", "/" + index + "/_settings");
+        request.addParameter("flat_settings", "true");
+        JSONObject body = perform(request);
+        if (body.isEmpty()) {
+            return new JSONObject();
+        }
+        JSONObject settings = body.getJSONObject(body.keySet().iterator().next()).getJSONObject("settings");
+        return Objects.isNull(settings) ? new JSONObject() : settings;
+    }
+
+    private void updateSettings(String index, Map<String, Object> settings) throws IOException {
+        Request request = new Request("PUT", "/" + index + "/_settings");
+        // WriteMapNullValue：值为 null 的配置恢复为默认值
+        request.setJsonEntity(JSON.toJSONString(settings, SerializerFeature.WriteMapNullValue));
+        perform(request);
+    }
+
+    private long count(String index) throws IOException {
+        Request request = new Request("GET", "/" + index + "/_count");
+        request.addParameter("filter_path", "count");
+        return perform(request).getLongValue("count");
+    }
+
+    private boolean exists(String endpoint) throws IOException {
+        try {
+            return restClient.performRequest(new Request("HEAD", endpoint)).getStatusLine().getStatusCode() == 200;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == RestStatus.NOT_FOUND.getStatus()) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private void clearScroll(String scrollId) {
+        if (StringUtils.isBlank(scrollId)) {
+            return;
+        }
+        try {
+            Request request = new Request("DELETE", "/_search/scroll");
+            request.setJsonEntity(JSON.toJSONString(Maps.bySO("scroll_id", Collections.singletonList(scrollId))));
+            perform(request);
+        } catch (IOException | RuntimeException e) {
+            log.warn("清除 scroll 失败", e);
+        }
+    }
+
+    /**
+     * 强制合并。7.6 的 _forcemerge 不支持 wait_for_completion=false，且请求可能超过客户端 socket 超时：
+     * 异步发出请求，客户端超时后合并仍在服务端进行，改为轮询 _tasks 直到合并结束
+     */
+    private void forceMerge(String target, int maxNumSegments) throws IOException {
+        Request request = new Request("POST", "/" + target + "/_forcemerge");
+        request.addParameter("max_num_segments", String.valueOf(maxNumSegments));
+        request.setOptions(esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()));
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response result) {
+                response.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                response.completeExceptionally(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + adminTimeoutMillis;
+        try {
+            response.get(adminTimeoutMillis, TimeUnit.MILLISECONDS);
+            return;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof SocketTimeoutException)) {
+                Throwables.propagateIfPossible(e.getCause(), IOException.class);
+                throw new IOException(e.getCause());
+            }
+            log.info("强制合并 {} 超过客户端 socket 超时，改为轮询任务状态", target);
+        } catch (TimeoutException e) {
+            throw new CustomException("强制合并超时：".concat(target));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("重建索引被中断");
+        }
+        while (forceMerging(target)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new CustomException("强制合并超时：".concat(target));
+            }
+            try {
+                Thread.sleep(FORCE_MERGE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CustomException("重建索引被中断");
+            }
+        }
+    }
+
+    /**
+     * 是否仍有目标索引的强制合并任务；任务描述不含索引名时按任意强制合并任务判断
+     */
+    private boolean forceMerging(String target) throws IOException {
+        Request request = new Request("GET", "/_tasks");
+        request.addParameter("actions", "indices:admin/forcemerge*");
+        request.addParameter("detailed", "true");
+        JSONObject nodes = perform(request).getJSONObject("nodes");
+        if (Objects.isNull(nodes)) {
+            return false;
+        }
+        for (Object node : nodes.values()) {
+            JSONObject tasks = ((JSONObject) node).getJSONObject("tasks");
+            if (Objects.isNull(tasks)) {
+                continue;
+            }
+            for (Object task : tasks.values()) {
+                String description = ((JSONObject) task).getString("description");
+                if (StringUtils.isBlank(description) || description.contains(target)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private JSONObject perform(Request request) throws IOException {
+        byte[] bytes = performBytes(request);
+        JSONObject body = bytes.length == 0 ? null : JSON.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        return Objects.isNull(body) ? new JSONObject() : body;
+    }
+
+    private byte[] performBytes(Request request) throws IOException {
+        request.setOptions(esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()));
+        Response response = restClient.performRequest(request);
+        return Objects.isNull(response.getEntity()) ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(30), 100L << Math.min(attempt, 8)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("重建索引被中断");
+        }
+    }
+
+    private static final class Doc {
+        private final String id;
+        private final String routing;
+        private final byte[] source;
+
+        Doc(String id, String routing, byte[] source) {
+            this.id = id;
+            this.routing = routing;
+            this.source = source;
+        }
+    }
+
+    private static final class ScrollPage {
+        private String scrollId;
+        private final List<Doc> docs = new ArrayList<>();
+    }
+
+    /**
+     * 写入速率自适应：集群反压时减半，bulk 变慢时下调 20%，连续成功后回升至上限的 10%
+     */
+    private static final class Throttle {
+        private static final int RECOVER_AFTER = 10;
+        private static final double MIN_RATE = 100;
+
+        private final double maxRate;
+        private final RateLimiter rateLimiter;
+        private final AtomicInteger successes = new AtomicInteger();
+        private final ReindexProgress progress;
+
+        Throttle(double maxRate, ReindexProgress progress) {
+            this.maxRate = maxRate;
+            this.rateLimiter = RateLimiter.create(maxRate);
+            this.progress = progress;
+            progress.setThrottle(maxRate);
+        }
+
+        void acquire(int docs) {
+            rateLimiter.acquire(docs);
+        }
+
+        double rate() {
+            return rateLimiter.getRate();
+        }
+
+        synchronized void onPushback() {
+            adjust(Math.max(MIN_RATE, rateLimiter.getRate() * 0.5));
+            log.warn("重建索引 {} 集群反压，下调写入速率至 {} 文档/秒", progress.getTarget(), (long) rateLimiter.getRate());
+        }
+
+        void onSuccess(boolean slow) {
+            if (slow) {
+                synchronized (this) {
+                    adjust(Math.max(MIN_RATE, rateLimiter.getRate() * 0.8));
+                }
+                return;
+            }
+            if (rateLimiter.getRate() < maxRate && successes.incrementAndGet() >= RECOVER_AFTER) {
+                synchronized (this) {
+                    adjust(Math.min(maxRate, rateLimiter.getRate() + maxRate * 0.1));
+                }
+            }
+        }
+
+        private void adjust(double rate) {
+            rateLimiter.setRate(rate);
+            successes.set(0);
+            progress.setThrottle(rate);
+        }
+    }
+}
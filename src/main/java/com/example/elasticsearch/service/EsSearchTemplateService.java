@@ -0,0 +1,179 @@
+package com.example.elasticsearch.service;
+
+import com.example.elasticsearch.es.QueryFingerprint;
+import com.example.elasticsearch.es.template.SearchTemplate;
+import com.example.elasticsearch.es.template.TemplateShape;
+import com.example.elasticsearch.es.template.TemplateSkeleton;
+import com.example.elasticsearch.utils.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索模板：每种查询形状首次出现时构建骨架并异步注册为存储的 mustache 搜索模板（PUT _scripts/{id}），
+ * 注册完成后的查询改走 _search/template，只发送模板 id 与参数
+ * <p>
+ * 形状与参数直接从查询条件对象提取，同一形状的骨架、模板 id 与查询指纹只计算一次，
+ * 统计、profile 采样与 JFR 事件复用，不再逐次序列化、解析请求体
+ *
+ */
+@Service
+@Slf4j
+public class EsSearchTemplateService {
+    private static final String LANG = "mustache";
+
+    private static final int NEW = 0;
+    private static final int REGISTERING = 1;
+    private static final int READY = 2;
+
+    @Autowired
+    private RestClient restClient;
+
+    @Value("${elasticsearch.search-template.enabled:false}")
+    private boolean enabled;
+    /**
+     * 最多注册的模板数，超过后新骨架发送完整请求体
+     */
+    @Value("${elasticsearch.search-template.max-templates:1000}")
+    private int maxTemplates;
+    /**
+     * 注册失败后的重试间隔（毫秒）
+     */
+    @Value("${elasticsearch.search-template.retry-millis:60000}")
+    private long retryMillis;
+
+    private final Map<String, Registration> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 按查询形状取得模板并确保已注册：每次只遍历查询条件提取参数，骨架、模板 id 与指纹每种形状只计算一次
+     *
+     * @param source {@link SearchSourceBuilder}
+     * @return {@link SearchTemplate}，未开启、形状不支持或模板数已达上限时为 null
+     */
+    public SearchTemplate compile(SearchSourceBuilder source) {
+        if (!enabled) {
+            return null;
+        }
+        TemplateShape shape = TemplateShape.of(source);
+        if (Objects.isNull(shape)) {
+            return null;
+        }
+        Registration registration = templates.get(shape.getKey());
+        if (Objects.isNull(registration)) {
+            if (templates.size() >= maxTemplates) {
+                return null;
+            }
+            try {
+                registration = templates.computeIfAbsent(shape.getKey(),
+                        k -> new Registration(TemplateShape.skeleton(source), QueryFingerprint.of(Strings.toString(source))));
+            } catch (RuntimeException e) {
+                log.warn("构建查询模板失败", e);
+                return null;
+            }
+        }
+        registration.uses.increment();
+        if (registration.state.get() == NEW && System.currentTimeMillis() >= registration.retryAt
+                && registration.state.compareAndSet(NEW, REGISTERING)) {
+            register(registration.skeleton, registration);
+        }
+        return new SearchTemplate(registration.skeleton, shape.getParams(), registration.fingerprint, registration.state.get() == READY);
+    }
+
+    private void register(TemplateSkeleton skeleton, Registration registration) {
+        Request request = new Request("PUT", "/_scripts/" + skeleton.getId());
+        request.setJsonEntity(Maps.ofSO()
+                .put("script", Maps.ofSO()
+                        .put("lang", LANG)
+                        .put("source", skeleton.getSource())
+                        .build())
+                .json());
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                registration.state.set(READY);
+                log.info("已注册搜索模板 {}，指纹 {}", skeleton.getId(), registration.fingerprint);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                registration.retryAt = System.currentTimeMillis() + retryMillis;
+                registration.state.set(NEW);
+                log.warn("注册搜索模板 {} 失败，{} ms 后重试", skeleton.getId(), retryMillis, e);
+            }
+        });
+    }
+
+    /**
+     * 是否为模板在集群中不存在的错误（如集群从快照恢复、模板被删除）
+     *
+     * @param e 查询异常
+     * @return boolean
+     */
+    public boolean isMissing(Exception e) {
+        return e instanceof ResponseException
+                && ((ResponseException) e).getResponse().getStatusLine().getStatusCode() == RestStatus.NOT_FOUND.getStatus()
+                && Objects.toString(e.getMessage(), "").contains("unable to find script");
+    }
+
+    /**
+     * 标记模板需要重新注册
+     *
+     * @param id 模板 id
+     */
+    public void invalidate(String id) {
+        for (Registration registration : templates.values()) {
+            if (registration.skeleton.getId().equals(id)) {
+                registration.retryAt = 0;
+                registration.state.set(NEW);
+            }
+        }
+    }
+
+    /**
+     * 已知模板，按使用次数倒序
+     *
+     * @return {@link List}
+     */
+    public List<Map<String, Object>> list() {
+        return templates.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Registration> e) -> e.getValue().uses.sum()).reversed())
+                .map(e -> Maps.ofSO()
+                        .put("id", e.getValue().skeleton.getId())
+                        .put("fingerprint", e.getValue().fingerprint.getId())
+                        .put("ready", e.getValue().state.get() == READY)
+                        .put("uses", e.getValue().uses.sum())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static class Registration {
+        private final TemplateSkeleton skeleton;
+        private final QueryFingerprint fingerprint;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private final LongAdder uses = new LongAdder();
+        private volatile long retryAt;
+
+        private Registration(TemplateSkeleton skeleton, QueryFingerprint fingerprint) {
+            this.skeleton = skeleton;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.es.FilterPath;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * ES 服务端任务管理：按 X-Opaque-Id 定位并取消仍在执行的查询任务
+ *
+ */
+@Service
+@Slf4j
+public class EsTaskService {
+    /**
+     * 请求头：请求标识，ES 会记录在任务信息中
+     */
+    public static final String HEADER_OPAQUE_ID = "X-Opaque-Id";
+
+    @Autowired
+    private RestClient restClient;
+
+    /**
+     * 异步取消请求标识对应的查询任务，子任务由 ES 级联取消
+     *
+     * @param opaqueId 请求标识
+     */
+    public void cancelSearch(final String opaqueId) {
+        Request request = new Request("GET", "/_tasks");
+        request.addParameter("actions", "indices:data/read/search");
+        request.addParameter("detailed", "false");
+        FilterPath.TASKS.apply(request);
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    JSONObject nodes = JSON.parseObject(EntityUtils.toString(response.getEntity())).getJSONObject("nodes");
+                    if (Objects.isNull(nodes)) {
+                        return;
+                    }
+                    for (String nodeId : nodes.keySet()) {
+                        JSONObject tasks = nodes.getJSONObject(nodeId).getJSONObject("tasks");
+                        if (Objects.isNull(tasks)) {
+                            continue;
+                        }
+                        for (String taskId : tasks.keySet()) {
+                            JSONObject headers = tasks.getJSONObject(taskId).getJSONObject("headers");
+                            if (Objects.nonNull(headers) && Objects.equals(opaqueId, headers.getString(HEADER_OPAQUE_ID))) {
+                                cancelTask(taskId);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("解析任务列表失败: {}", opaqueId, e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                log.warn("查询任务列表失败: {}", opaqueId, e);
+            }
+        });
+    }
+
+    /**
+     * 异步取消指定任务
+     *
+     * @param taskId 任务 id，格式 nodeId:taskNumber
+     */
+    public void cancelTask(final String taskId) {
+        Request request = new Request("POST", "/_tasks/" + taskId + "/_cancel");
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                log.info("已取消 ES 任务: {}", taskId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                log.warn("取消 ES 任务失败: {}", taskId, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.es.suggest.PrefixIndex;
+import com.example.elasticsearch.es.suggest.Suggestion;
+import com.example.elasticsearch.utils.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 操作用户输入提示：本地内存前缀索引，输入过程中不访问 ES
+ * <p>
+ * 定时用 composite 聚合分页扫描去重的 operationUser / operationUserName：
+ * 首次与每隔 full-refresh-millis 全量重建（淘汰已过期的用户），其余只扫描水位线（最新 operationTime）之后的新数据并合并
+ *
+ */
+@Service
+@Slf4j
+public class LoginUserSuggestService {
+    private static final String USER = ApplicationLoginLog.GroupBy.operationUser.getFieldName();
+    private static final String USER_NAME = ApplicationLoginLog.GroupBy.operationUserName.getFieldName();
+    private static final int MAX_SIZE = 50;
+    private static final String FRESH = "fresh";
+
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsCompression esCompression;
+    @Autowired
+    private EsMetadataService esMetadataService;
+    @Autowired
+    private RolloverIndexService rolloverIndexService;
+
+    @Value("${elasticsearch.suggest.enabled:true}")
+    private boolean enabled;
+    @Value("${elasticsearch.suggest.full-refresh-millis:3600000}")
+    private long fullRefreshMillis;
+    /**
+     * 增量扫描向水位线之前多覆盖的时间，容忍写入延迟
+     */
+    @Value("${elasticsearch.suggest.overlap-millis:60000}")
+    private long overlapMillis;
+    @Value("${elasticsearch.suggest.page-size:1000}")
+    private int pageSize;
+
+    private volatile PrefixIndex prefixIndex = PrefixIndex.EMPTY;
+    private volatile long lastFullRefresh;
+    /**
+     * 已扫描数据的最新 operationTime（毫秒），-1 表示未知
+     */
+    private volatile long watermark = -1;
+
+    /**
+     * 输入提示，只读内存
+     *
+     * @param prefix 输入前缀，匹配操作用户或操作用户名，不区分大小写
+     * @param size   返回数量
+     * @return {@link List}
+     */
+    public List<Suggestion> suggest(String prefix, int size) {
+        return prefixIndex.search(prefix, Math.min(size, MAX_SIZE));
+    }
+
+    @Scheduled(fixedDelayString = "${elasticsearch.suggest.refresh-millis:30000}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (watermark < 0 || System.currentTimeMillis() - lastFullRefresh >= fullRefreshMillis) {
+                fullRefresh();
+            } else {
+                incrementalRefresh();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("刷新操作用户输入提示失败，继续使用 {} 个候选项", prefixIndex.size(), e);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public synchronized void fullRefresh() throws IOException {
+        long start = System.currentTimeMillis();
+        String indices = rolloverIndexService.searchIndices(null, null);
+        if (Objects.isNull(indices)) {
+            return;
+        }
+        Map<String, Suggestion> entries = new HashMap<>();
+        long latest = scan(indices, null, entries, null);
+        prefixIndex = PrefixIndex.of(entries.values());
+        watermark = Math.max(latest, 0);
+        lastFullRefresh = start;
+        log.info("操作用户输入提示已重建：{} 个候选项，{} 个检索词，耗时 {} ms", prefixIndex.size(), prefixIndex.keys(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量合并：新用户按重叠窗口内的登录次数加入，已有用户累加水位线之后的登录次数；
+     * 重叠窗口只用于发现迟到的新用户，已有用户迟到的登录在全量重建时计入
+     */
+    public synchronized void incrementalRefresh() throws IOException {
+        Date from = new Date(watermark - overlapMillis);
+        String indices = rolloverIndexService.searchIndices(from, null);
+        if (Objects.isNull(indices)) {
+            return;
+        }
+        Map<String, Suggestion> scanned = new HashMap<>();
+        Map<String, Long> fresh = new HashMap<>();
+        long latest = scan(indices, from, scanned, fresh);
+
+        PrefixIndex current = prefixIndex;
+        Map<String, Suggestion> merged = new LinkedHashMap<>(current.size() + scanned.size());
+        current.entries().forEach(s -> merged.put(key(s.getOperationUser(), s.getOperationUserName()), s));
+        int added = 0;
+        int updated = 0;
+        for (Map.Entry<String, Suggestion> entry : scanned.entrySet()) {
+            Suggestion existing = merged.get(entry.getKey());
+            if (Objects.isNull(existing)) {
+                merged.put(entry.getKey(), entry.getValue());
+                added++;
+                continue;
+            }
+            long count = fresh.getOrDefault(entry.getKey(), 0L);
+            if (count > 0) {
+                merged.put(entry.getKey(), Suggestion.builder()
+                        .operationUser(existing.getOperationUser())
+                        .operationUserName(existing.getOperationUserName())
+                        .count(existing.getCount() + count)
+                        .build());
+                updated++;
+            }
+        }
+        watermark = Math.max(watermark, latest);
+        if (added > 0 || updated > 0) {
+            prefixIndex = PrefixIndex.of(merged.values());
+            log.debug("操作用户输入提示新增 {} 个候选项，更新 {} 个登录次数", added, updated);
+        }
+    }
+
+    /**
+     * composite 聚合分页扫描，按各索引的字段类型分组（旧索引为动态 mapping，需使用 .keyword 子字段）
+     *
+     * @param fresh 非 null 时同时统计水位线之后的登录次数
+     * @return 最新 operationTime（毫秒），没有数据时为 -1
+     */
+    private long scan(String indices, Date from, Map<String, Suggestion> out, Map<String, Long> fresh) throws IOException {
+        Map<List<String>, List<String>> groups = new LinkedHashMap<>();
+        Set<String> resolved = esMetadataService.resolve(indices);
+        if (resolved.isEmpty()) {
+            // 元数据尚未加载，按新 mapping 的字段名查询
+            groups.put(Arrays.asList(USER, USER_NAME), Collections.singletonList(indices));
+        }
+        for (String index : resolved) {
+            String userField = esMetadataService.keywordField(index, USER);
+            if (Objects.isNull(userField)) {
+                continue;
+            }
+            groups.computeIfAbsent(Arrays.asList(userField, esMetadataService.keywordField(index, USER_NAME)), k -> new ArrayList<>()).add(index);
+        }
+        long latest = -1;
+        for (Map.Entry<List<String>, List<String>> group : groups.entrySet()) {
+            latest = Math.max(latest, scan(String.join(",", group.getValue()), group.getKey().get(0), group.getKey().get(1), from, out, fresh));
+        }
+        return latest;
+    }
+
+    private long scan(String indices, String userField, String nameField, Date from, Map<String, Suggestion> out,
+                      Map<String, Long> fresh) throws IOException {
+        List<Object> sources = new ArrayList<>(2);
+        sources.add(Maps.bySO(USER, Maps.bySO("terms", Maps.bySO("field", userField))));
+        if (Objects.nonNull(nameField)) {
+            sources.add(Maps.bySO(USER_NAME, Maps.bySO("terms", Maps.ofSO().put("field", nameField).put("missing_bucket", true).build())));
+        }
+        long latest = -1;
+        JSONObject after = null;
+        do {
+            Maps<String, Object> aggs = Maps.ofSO()
+                    .put("users", Maps.ofSO()
+                            .put("composite", Maps.ofSO()
+                                    .put("size", pageSize)
+                                    .put("sources", sources)
+                                    .put("after", after)
+                                    .build())
+                            // 水位线之后的登录次数，累加到已有用户，重叠窗口不重复计数
+                            .put(Objects.nonNull(fresh), "aggs", Maps.bySO(FRESH, Maps.bySO("filter", Maps.bySO("range",
+                                    Maps.bySO("operationTime", Maps.ofSO()
+                                            .put("gt", watermark)
+                                            .put("format", "epoch_millis")
+                                            .build())))))
+                            .build())
+                    // 只在第一页统计最新时间
+                    .put(Objects.isNull(after), "latest", Maps.bySO("max", Maps.bySO("field", "operationTime")));
+            Request request = new Request("POST", "/" + indices + "/_search");
+            request.addParameter("ignore_unavailable", "true");
+            request.addParameter("filter_path", "aggregations.users.after_key,aggregations.users.buckets,aggregations.latest.value");
+            request.setJsonEntity(Maps.ofSO()
+                    .put("size", 0)
+                    .put("track_total_hits", false)
+                    .put(Objects.nonNull(from), "query", Maps.bySO("range", Maps.bySO("operationTime", Maps.ofSO()
+                            .put("gte", Objects.isNull(from) ? null : from.getTime())
+                            .put("format", "epoch_millis")
+                            .build())))
+                    .put("aggs", aggs.build())
+                    .json());
+            request.setOptions(esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()));
+            Response response = restClient.performRequest(request);
+            JSONObject body = JSON.parseObject(EntityUtils.toString(response.getEntity()));
+            JSONObject aggregations = Objects.isNull(body) ? null : body.getJSONObject("aggregations");
+            if (Objects.isNull(aggregations)) {
+                break;
+            }
+            JSONObject latestValue = aggregations.getJSONObject("latest");
+            if (Objects.nonNull(latestValue) && Objects.nonNull(latestValue.get("value"))) {
+                latest = Math.max(latest, latestValue.getLongValue("value"));
+            }
+            JSONObject users = aggregations.getJSONObject("users");
+            JSONArray buckets = Objects.isNull(users) ? null : users.getJSONArray("buckets");
+            if (Objects.isNull(buckets) || buckets.isEmpty()) {
+                break;
+            }
+            for (int i = 0; i < buckets.size(); i++) {
+                JSONObject bucket = buckets.getJSONObject(i);
+                JSONObject key = bucket.getJSONObject("key");
+                String user = key.getString(USER);
+                String name = key.getString(USER_NAME);
+                long count = bucket.getLongValue("doc_count");
+                if (Objects.nonNull(fresh) && Objects.nonNull(bucket.getJSONObject(FRESH))) {
+                    fresh.merge(key(user, name), bucket.getJSONObject(FRESH).getLongValue("doc_count"), Long::sum);
+                }
+                out.merge(key(user, name), Suggestion.builder().operationUser(user).operationUserName(name).count(count).build(),
+                        (a, b) -> Suggestion.builder().operationUser(user).operationUserName(name).count(a.getCount() + b.getCount()).build());
+            }
+            after = buckets.size() < pageSize ? null : users.getJSONObject("after_key");
+        } while (Objects.nonNull(after));
+        return latest;
+    }
+
+    private static String key(String user, String name) {
+        return user + '\u0001' + name;
+    }
+}
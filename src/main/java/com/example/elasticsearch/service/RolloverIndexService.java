@@ -0,0 +1,306 @@
+package com.example.elasticsearch.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.elasticsearch.config.EsRolloverProperties;
+import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.es.http.EsCompression;
+import com.example.elasticsearch.es.mapping.MappingAdvice;
+import com.example.elasticsearch.es.mapping.MappingAdvisor;
+import com.example.elasticsearch.utils.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 登录日志滚动索引：写别名指向当前索引，按时间或大小滚动；查询前按时间范围裁剪出需要查询的索引，
+ * 过期数据按整个索引删除
+ * <p>
+ * 索引名 别名-yyyy.MM.dd-000001 中的日期为索引创建日期，索引覆盖 [创建日期, 下一个索引的创建日期]
+ *
+ */
+@Service
+@Slf4j
+public class RolloverIndexService {
+    private static final ZoneId ZONE_ID = ZoneId.of("GMT+8");
+    private static final DateTimeFormatter INDEX_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    @Autowired
+    private EsRolloverProperties properties;
+    @Autowired
+    private EsMetadataService esMetadataService;
+    @Autowired
+    private RestClient restClient;
+    @Autowired
+    private EsCompression esCompression;
+
+    /**
+     * 未开启滚动时使用的单一索引
+     */
+    @Value("${elasticsearch.export-index}")
+    private String exportIndex;
+
+    private Pattern indexPattern;
+
+    @PostConstruct
+    public void init() {
+        indexPattern = Pattern.compile(Pattern.quote(properties.getAlias()) + "-(\\d{4}\\.\\d{2}\\.\\d{2})-(\\d+)");
+        if (properties.isEnabled()) {
+            try {
+                bootstrap();
+            } catch (IOException | RuntimeException e) {
+                log.warn("初始化滚动索引失败，将在下次检查时重试", e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 写入索引（写别名）
+     *
+     * @return String
+     */
+    public String writeIndex() {
+        return properties.isEnabled() ? properties.getWriteAlias() : exportIndex;
+    }
+
+    /**
+     * 逻辑索引名，作为准入控制、指标、查询统计与 JFR 事件的维度：
+     * 按时间裁剪出的索引列表随查询范围变化，直接作为维度会让限流器与指标标签无限增长
+     *
+     * @param indices 实际查询或写入的索引，多个用逗号分隔
+     * @return 滚动索引、读写别名与别名成员均归为读别名（未开启滚动时为 elasticsearch.export-index），其余原样返回
+     */
+    public String logicalIndex(String indices) {
+        String logical = properties.isEnabled() ? properties.getAlias() : exportIndex;
+        if (Objects.isNull(indices) || Objects.equals(indices, logical)) {
+            return logical;
+        }
+        Set<String> members = esMetadataService.current().getAliases().getOrDefault(properties.getAlias(), Collections.emptySet());
+        for (String index : indices.split(",")) {
+            boolean known = index.equals(exportIndex) || index.equals(properties.getAlias()) || index.equals(properties.getWriteAlias())
+                    || members.contains(index) || indexPattern.matcher(index).matches();
+            if (!known) {
+                return indices;
+            }
+        }
+        return logical;
+    }
+
+    /**
+     * 覆盖时间范围的最小索引集合，只读元数据缓存
+     *
+     * @param begin 开始时间，null 表示不限
+     * @param end   结束时间，null 表示不限
+     * @return 索引名，多个用逗号分隔；范围内没有索引时返回 null
+     */
+    public String searchIndices(Date begin, Date end) {
+        if (!properties.isEnabled()) {
+            return exportIndex;
+        }
+        Set<String> members = esMetadataService.current().getAliases().get(properties.getAlias());
+        if (Objects.isNull(members) || members.isEmpty()) {
+            // 元数据尚未加载，退回查询读别名
+            return properties.getAlias();
+        }
+        if (Objects.isNull(begin) && Objects.isNull(end)) {
+            return properties.getAlias();
+        }
+        LocalDate from = Objects.isNull(begin) ? LocalDate.MIN : toLocalDate(begin).minusDays(properties.getLateArrivalDays());
+        LocalDate to = Objects.isNull(end) ? LocalDate.MAX : toLocalDate(end);
+
+        List<Dated> dated = new ArrayList<>();
+        List<String> selected = new ArrayList<>();
+        for (String index : members) {
+            Matcher matcher = indexPattern.matcher(index);
+            if (matcher.matches()) {
+                dated.add(new Dated(index, LocalDate.parse(matcher.group(1), INDEX_DATE), Long.parseLong(matcher.group(2))));
+            } else {
+                // 无日期的索引（如迁移前的旧索引）无法裁剪，始终查询
+                selected.add(index);
+            }
+        }
+        dated.sort(Comparator.comparing((Dated d) -> d.date).thenComparingLong(d -> d.sequence));
+        for (int i = 0; i < dated.size(); i++) {
+            LocalDate created = dated.get(i).date;
+            LocalDate next = i + 1 < dated.size() ? dated.get(i + 1).date : LocalDate.MAX;
+            if (!created.isAfter(to) && !next.isBefore(from)) {
+                selected.add(dated.get(i).name);
+            }
+        }
+        return selected.isEmpty() ? null : String.join(",", selected);
+    }
+
+    /**
+     * 定时检查滚动条件与保留期限
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.rollover.check-millis:600000}")
+    public void maintain() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            bootstrap();
+            rollover();
+            enforceRetention();
+        } catch (IOException | RuntimeException e) {
+            log.warn("滚动索引维护失败", e);
+        }
+    }
+
+    /**
+     * 创建索引模板，写别名不存在时创建第一个索引
+     */
+    public void bootstrap() throws IOException {
+        String alias = properties.getAlias();
+        // 按实体字段的查询、排序用途生成精简 mapping（含子串查询分词器），不依赖动态 mapping
+        MappingAdvice advice = MappingAdvisor.advise(ApplicationLoginLog.class);
+        Request template = new Request("PUT", "/_template/" + alias);
+        template.setJsonEntity(Maps.ofSO()
+                .put("index_patterns", Collections.singletonList(alias + "-*"))
+                .put("settings", Maps.ofSO()
+                        .putAll(advice.getSettings())
+                        .put("number_of_shards", properties.getShards())
+                        .put("number_of_replicas", properties.getReplicas())
+                        // 索引排序：按时间倒序存储，最新优先的查询可提前终止
+                        .put(StringUtils.isNotBlank(properties.getSortField()), "index.sort.field", properties.getSortField())
+                        .put(StringUtils.isNotBlank(properties.getSortField()), "index.sort.order", properties.getSortOrder())
+                        .build())
+                .put("mappings", advice.getMappings())
+                .put("aliases", Maps.bySO(alias, new JSONObject()))
+                .json());
+        perform(template);
+
+        if (head("/_alias/" + properties.getWriteAlias())) {
+            return;
+        }
+        // 日期数学表达式：<别名-{now/d}-000001>，需 URL 编码
+        String name = URLEncoder.encode("<" + alias + "-{now/d{yyyy.MM.dd|+08:00}}-000001>", StandardCharsets.UTF_8.name());
+        Request create = new Request("PUT", "/" + name);
+        create.setJsonEntity(JSON.toJSONString(Maps.bySO("aliases",
+                Maps.bySO(properties.getWriteAlias(), Maps.bySO("is_write_index", true)))));
+        perform(create);
+        // 旧的单一索引加入读别名，查询时始终包含
+        if (!Objects.equals(exportIndex, alias) && head("/" + exportIndex)) {
+            Request aliases = new Request("POST", "/_aliases");
+            aliases.setJsonEntity(JSON.toJSONString(Maps.bySO("actions", Collections.singletonList(
+                    Maps.bySO("add", Maps.ofSO().put("index", exportIndex).put("alias", alias).build())))));
+            perform(aliases);
+        }
+        esMetadataService.refresh();
+        log.info("已创建滚动索引写别名 {}", properties.getWriteAlias());
+    }
+
+    /**
+     * 满足条件时滚动写别名到新索引
+     */
+    public void rollover() throws IOException {
+        Request request = new Request("POST", "/" + properties.getWriteAlias() + "/_rollover");
+        request.setJsonEntity(JSON.toJSONString(Maps.bySO("conditions", Maps.ofSO()
+                .put("max_age", properties.getMaxAge())
+                .put("max_size", properties.getMaxSize())
+                .build())));
+        JSONObject result = perform(request);
+        if (result.getBooleanValue("rolled_over")) {
+            log.info("索引已滚动：{} -> {}", result.getString("old_index"), result.getString("new_index"));
+            esMetadataService.refresh();
+        }
+    }
+
+    /**
+     * 删除整个索引内数据均已超过保留期限的索引，写索引不删除
+     */
+    public void enforceRetention() throws IOException {
+        Set<String> members = esMetadataService.current().getAliases().get(properties.getAlias());
+        Set<String> writeIndices = esMetadataService.current().getAliases().get(properties.getWriteAlias());
+        if (Objects.isNull(members)) {
+            return;
+        }
+        List<Dated> dated = new ArrayList<>();
+        for (String index : members) {
+            Matcher matcher = indexPattern.matcher(index);
+            if (matcher.matches()) {
+                dated.add(new Dated(index, LocalDate.parse(matcher.group(1), INDEX_DATE), Long.parseLong(matcher.group(2))));
+            }
+        }
+        dated.sort(Comparator.comparing((Dated d) -> d.date).thenComparingLong(d -> d.sequence));
+        LocalDate cutoff = LocalDate.now(ZONE_ID).minusDays(properties.getRetentionDays());
+        List<String> expired = new ArrayList<>();
+        // 索引的最新数据不晚于下一个索引的创建日期
+        for (int i = 0; i + 1 < dated.size(); i++) {
+            if (dated.get(i + 1).date.isBefore(cutoff) && (Objects.isNull(writeIndices) || !writeIndices.contains(dated.get(i).name))) {
+                expired.add(dated.get(i).name);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        perform(new Request("DELETE", "/" + String.join(",", expired)));
+        log.info("已删除过期索引：{}", expired);
+        esMetadataService.refresh();
+    }
+
+    private JSONObject perform(Request request) throws IOException {
+        request.setOptions(esCompression.acceptGzip(RequestOptions.DEFAULT.toBuilder()));
+        Response response = restClient.performRequest(request);
+        JSONObject body = JSON.parseObject(EntityUtils.toString(response.getEntity()));
+        return Objects.isNull(body) ? new JSONObject() : body;
+    }
+
+    private boolean head(String endpoint) throws IOException {
+        try {
+            return restClient.performRequest(new Request("HEAD", endpoint)).getStatusLine().getStatusCode() == 200;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZONE_ID).toLocalDate();
+    }
+
+    private static final class Dated {
+        private final String name;
+        private final LocalDate date;
+        private final long sequence;
+
+        Dated(String name, LocalDate date, long sequence) {
+            this.name = name;
+            this.date = date;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -1,13 +1,29 @@
 package com.example.elasticsearch.service;
 
 import com.example.elasticsearch.entity.ApplicationLoginLog;
+import com.example.elasticsearch.entity.ApplicationLoginLogQueries;
+import com.example.elasticsearch.es.BulkResult;
+import com.example.elasticsearch.es.CancellableFuture;
+import com.example.elasticsearch.es.Collapsed;
+import com.example.elasticsearch.es.EsOperation;
+import com.example.elasticsearch.es.SubstringQuery;
+import com.example.elasticsearch.es.lean.LeanQuery;
+import com.example.elasticsearch.exception.CustomException;
+import com.example.elasticsearch.utils.Dates;
 import com.github.pagehelper.PageInfo;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 安全审计业务
@@ -16,21 +32,149 @@ import java.util.Collections;
 @Service
 @Slf4j
 public class SecurityAuditService {
+    private static final String USER = ApplicationLoginLog.GroupBy.operationUser.getFieldName();
+    /**
+     * 单个用户最近的登录记录：结构固定的热点查询，走精简查询
+     */
+    private static final LeanQuery USER_LOGINS = LeanQuery.compile("{\"from\":\"{{from}}\",\"size\":\"{{size}}\",\"timeout\":\"{{timeout}}\","
+            + "\"query\":{\"bool\":{\"filter\":[{\"term\":{\"" + USER + "\":\"{{user}}\"}},"
+            + "{\"range\":{\"operationTime\":{\"gte\":\"{{begin}}\",\"format\":\"epoch_millis\"}}}]}},"
+            + "\"sort\":[{\"operationTime\":{\"order\":\"desc\"}}]}");
+
     @Autowired
     private ElasticSearchService elasticSearchService;
+    @Autowired
+    private RolloverIndexService rolloverIndexService;
+    @Autowired
+    private EsMetadataService esMetadataService;
 
     /**
-     * 数据导出日志索引
+     * 数据导出日志分页查询
      */
-    @Value("${elasticsearch.export-index}")
-    private String EXPORT_LOG_INDEX;
+    public PageInfo<ApplicationLoginLog> loginLogPage(ApplicationLoginLog condition, PageInfo pager) {
+        condition.setSorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc()));
+        String indices = searchIndices(condition);
+        if (Objects.isNull(indices)) {
+            return emptyPage(pager);
+        }
+        return elasticSearchService.queryForPage(indices, where(condition, indices), pager, ApplicationLoginLog.class, condition.buildEsSort());
+    }
 
     /**
-     * 数据导出日志分页查询
+     * 数据导出日志异步分页查询，调用方断开或超时时可取消
      */
-    public PageInfo<ApplicationLoginLog> loginLogPage(ApplicationLoginLog condition, PageInfo pager) {
+    public CancellableFuture<PageInfo<ApplicationLoginLog>> loginLogPageAsync(ApplicationLoginLog condition, PageInfo pager) {
+        condition.setSorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc()));
+        String indices = searchIndices(condition);
+        if (Objects.isNull(indices)) {
+            CancellableFuture<PageInfo<ApplicationLoginLog>> empty = new CancellableFuture<>(null);
+            empty.complete(emptyPage(pager));
+            return empty;
+        }
+        return elasticSearchService.queryForPageAsync(EsOperation.SEARCH, indices, where(condition, indices), pager, ApplicationLoginLog.class, condition.buildEsSort());
+    }
+
+    /**
+     * 数据导出日志分页导出，使用导出操作的超时预算
+     */
+    public PageInfo<ApplicationLoginLog> loginLogExportPage(ApplicationLoginLog condition, PageInfo pager) {
         condition.setSorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc()));
-        return elasticSearchService.queryForPage(EXPORT_LOG_INDEX, condition.where().toPredicate(), pager, ApplicationLoginLog.class, condition.buildEsSort());
+        String indices = searchIndices(condition);
+        if (Objects.isNull(indices)) {
+            return emptyPage(pager);
+        }
+        return elasticSearchService.queryForPage(EsOperation.EXPORT, indices, where(condition, indices), pager, ApplicationLoginLog.class, condition.buildEsSort());
+    }
+
+    /**
+     * 每个操作用户的最近一次登录，按用户分页，一页一次请求
+     *
+     * @param innerHits 每个用户额外返回的最近 N 次登录，0 为不返回
+     */
+    public PageInfo<Collapsed<ApplicationLoginLog>> latestLoginPage(ApplicationLoginLog condition, PageInfo pager, int innerHits) {
+        condition.setSorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc()));
+        String indices = searchIndices(condition);
+        if (Objects.isNull(indices)) {
+            return emptyPage(pager);
+        }
+        String field = esMetadataService.keywordField(indices, ApplicationLoginLog.GroupBy.operationUser.getFieldName());
+        if (Objects.isNull(field)) {
+            // 元数据未加载时按新 mapping；新旧索引 mapping 不一致时无法用同一字段折叠
+            if (!esMetadataService.resolve(indices).isEmpty()) {
+                throw new CustomException("查询范围内索引的 operationUser 字段类型不一致，无法按用户折叠，请先重建旧索引");
+            }
+            field = ApplicationLoginLog.GroupBy.operationUser.getFieldName();
+        }
+        return elasticSearchService.queryForCollapsedPage(EsOperation.SEARCH, indices, where(condition, indices), pager,
+                ApplicationLoginLog.class, condition.buildEsSort(), field, innerHits);
+    }
+
+    /**
+     * 单个操作用户最近 N 天的登录记录，按时间倒序分页
+     */
+    public PageInfo<ApplicationLoginLog> userLoginPage(String operationUser, int recentlyDays, PageInfo pager) {
+        Date begin = Dates.now().addDay(-recentlyDays).timestamp();
+        String indices = rolloverIndexService.searchIndices(begin, null);
+        if (Objects.isNull(indices)) {
+            return emptyPage(pager);
+        }
+        String field = esMetadataService.keywordField(indices, USER);
+        if (Objects.isNull(field) && !esMetadataService.resolve(indices).isEmpty()) {
+            throw new CustomException("查询范围内索引的 operationUser 字段类型不一致，请先重建旧索引");
+        }
+        if (Objects.isNull(field) || USER.equals(field)) {
+            return elasticSearchService.queryForPage(EsOperation.SEARCH, indices,
+                    USER_LOGINS.bind().set("user", operationUser).set("begin", begin), pager, ApplicationLoginLog.class);
+        }
+        // 旧索引（动态 mapping）需查询 .keyword 子字段，骨架的字段名是固定的，走通用查询
+        QueryBuilder query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery(field, operationUser))
+                .filter(QueryBuilders.rangeQuery("operationTime").gte(begin.getTime()).format("epoch_millis"));
+        return elasticSearchService.queryForPage(EsOperation.SEARCH, indices, query, pager, ApplicationLoginLog.class,
+                ApplicationLoginLogQueries.sorts(Collections.singletonList(ApplicationLoginLog.OrderBy.operationTime.desc())));
+    }
+
+    /**
+     * 批量写入登录日志，开启滚动索引时写入写别名
+     */
+    public BulkResult saveLoginLogs(List<ApplicationLoginLog> logs) {
+        return elasticSearchService.bulkSave(rolloverIndexService.writeIndex(), logs, ApplicationLoginLog::getId);
+    }
+
+    /**
+     * 按查询条件的时间范围裁剪需要查询的索引：operationTimeBegin/operationTimeEnd 与 recentlyDays 取交集
+     *
+     * @return 索引名，范围内没有索引时返回 null
+     */
+    private String searchIndices(ApplicationLoginLog condition) {
+        Date begin = condition.getOperationTimeBegin();
+        Date end = condition.getOperationTimeEnd();
+        if (Objects.nonNull(condition.getRecentlyDays())) {
+            Date recentBegin = Dates.now().addDay(-condition.getRecentlyDays()).timestamp();
+            begin = Objects.isNull(begin) || begin.before(recentBegin) ? recentBegin : begin;
+        }
+        return rolloverIndexService.searchIndices(begin, end);
+    }
+
+    /**
+     * 构建查询条件：用户名子串查询按索引选择，有 n-gram 子字段的索引走 n-gram 查询，旧索引退回通配符查询
+     */
+    private QueryBuilder where(ApplicationLoginLog condition, String indices) {
+        Set<String> resolved = esMetadataService.resolve(indices);
+        String subfield = SubstringQuery.subfield("operationUserName");
+        Set<String> indexed = resolved.stream()
+                .filter(index -> esMetadataService.isType(index, subfield, "text"))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // 元数据未加载（resolved 为空）时 indexed 也为空，全部走通配符查询
+        condition.setSubstringIndices(!resolved.isEmpty() && indexed.size() == resolved.size() ? null : indexed);
+        return condition.where().toPredicate();
+    }
+
+    private static <T> PageInfo<T> emptyPage(PageInfo pager) {
+        PageInfo<T> page = new PageInfo<>(Collections.emptyList());
+        page.setPageNum(pager.getPageNum());
+        page.setPageSize(pager.getPageSize());
+        return page;
     }
 
 }